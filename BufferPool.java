@@ -0,0 +1,108 @@
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool {@link ByteBuffer} direct yang dipakai bersama oleh semua unduhan.
+ * Ukuran dibulatkan ke pangkat dua antara {@link #MIN_SIZE} dan
+ * {@link #MAX_SIZE}; total byte yang disimpan dibatasi
+ * {@code downloader.bufferPoolBytes} (default 32 MB).
+ */
+final class BufferPool {
+
+    static final int MIN_SIZE = 8 * 1024;
+    static final int MAX_SIZE = 1024 * 1024;
+
+    private static final long MAX_POOLED_BYTES = Math.max(0L,
+            Long.getLong("downloader.bufferPoolBytes", 32L * 1024L * 1024L));
+    private static final int CLASS_COUNT = Integer.numberOfTrailingZeros(MAX_SIZE / MIN_SIZE) + 1;
+
+    private static final Queue<ByteBuffer>[] FREE = newQueues();
+    private static final LongAdder[] ACQUIRED = newCounters();
+    private static final AtomicLong POOLED_BYTES = new AtomicLong();
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+
+    /**
+     * Ringkasan pemakaian pool: jumlah hit/miss, byte yang sedang disimpan,
+     * dan berapa kali tiap ukuran buffer dipilih.
+     */
+    record Stats(long hits, long misses, long pooledBytes, Map<Integer, Long> acquiredBySize) {
+        double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+
+    private BufferPool() {
+    }
+
+    static int normalize(int size) {
+        int clamped = Math.max(MIN_SIZE, Math.min(MAX_SIZE, size));
+        int rounded = Integer.highestOneBit(clamped);
+        return rounded == clamped ? clamped : Math.min(MAX_SIZE, rounded << 1);
+    }
+
+    static ByteBuffer acquire(int size) {
+        int capacity = normalize(size);
+        int index = classIndex(capacity);
+        ACQUIRED[index].increment();
+
+        ByteBuffer buffer = FREE[index].poll();
+        if (buffer != null) {
+            POOLED_BYTES.addAndGet(-capacity);
+            HITS.increment();
+            buffer.clear();
+            return buffer;
+        }
+        MISSES.increment();
+        return ByteBuffer.allocateDirect(capacity);
+    }
+
+    static void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        if (capacity != normalize(capacity) || !buffer.isDirect()) {
+            return;
+        }
+        if (POOLED_BYTES.addAndGet(capacity) > MAX_POOLED_BYTES) {
+            POOLED_BYTES.addAndGet(-capacity);
+            return;
+        }
+        buffer.clear();
+        FREE[classIndex(capacity)].offer(buffer);
+    }
+
+    static Stats stats() {
+        Map<Integer, Long> acquired = new LinkedHashMap<>();
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            acquired.put(MIN_SIZE << i, ACQUIRED[i].sum());
+        }
+        return new Stats(HITS.sum(), MISSES.sum(), POOLED_BYTES.get(), Collections.unmodifiableMap(acquired));
+    }
+
+    private static int classIndex(int capacity) {
+        return Integer.numberOfTrailingZeros(capacity / MIN_SIZE);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Queue<ByteBuffer>[] newQueues() {
+        Queue<ByteBuffer>[] queues = new Queue[CLASS_COUNT];
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            queues[i] = new ConcurrentLinkedQueue<>();
+        }
+        return queues;
+    }
+
+    private static LongAdder[] newCounters() {
+        LongAdder[] counters = new LongAdder[CLASS_COUNT];
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+}
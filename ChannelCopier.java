@@ -0,0 +1,178 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mesin salin NIO untuk {@link FileDownloader}: body dibaca dari
+ * {@link ReadableByteChannel} ke {@link ByteBuffer} direct dari
+ * {@link BufferPool}, lalu ditulis dengan {@link FileChannel#write(ByteBuffer, long)}
+ * sehingga JDK tidak perlu menyalin ke buffer direct sementara. Sumber yang
+ * berupa {@link FileChannel} langsung dipindah dengan {@link FileChannel#transferFrom}.
+ * <p>
+ * Ukuran baca dimulai dari {@code downloader.bufferSize} (default 64 KB) dan
+ * disesuaikan selama salinan: membesar bila pembacaan hampir selalu penuh dan
+ * throughput cukup untuk mengisi buffer yang lebih besar, mengecil bila
+ * pembacaan jauh lebih kecil dari buffer. Nonaktifkan dengan
+ * {@code -Ddownloader.adaptiveBuffer=false}.
+ */
+final class ChannelCopier {
+
+    /**
+     * Dipanggil setelah setiap potongan ditulis. Kembalikan {@code false}
+     * untuk menghentikan salinan (misalnya saat unduhan dibatalkan).
+     */
+    interface ChunkListener {
+        boolean onChunk(long position, int bytes);
+    }
+
+    static final int BUFFER_SIZE = BufferPool.normalize(Integer.getInteger("downloader.bufferSize", 64 * 1024));
+    private static final boolean ADAPTIVE = Boolean.parseBoolean(
+            System.getProperty("downloader.adaptiveBuffer", "true"));
+    private static final long TRANSFER_CHUNK = 1024L * 1024L;
+
+    private ChannelCopier() {
+    }
+
+    /**
+     * Menyalin dari {@code source} ke {@code target} mulai di {@code position}.
+     * Dengan {@code length >= 0} salinan berhenti setelah tepat sekian byte
+     * dan akhir stream yang terlalu cepat dilaporkan sebagai {@link EOFException};
+     * dengan {@code length < 0} salinan berjalan sampai akhir stream.
+     *
+     * @return jumlah byte yang ditulis
+     */
+    static long copy(ReadableByteChannel source, FileChannel target, long position, long length,
+            ChunkListener listener) throws IOException {
+        if (source instanceof FileChannel file) {
+            return transfer(file, target, position, length, listener);
+        }
+
+        ReadSizer sizer = new ReadSizer(BUFFER_SIZE);
+        ByteBuffer buffer = BufferPool.acquire(sizer.size());
+        try {
+            long copied = 0;
+            while (length < 0 || copied < length) {
+                buffer.clear();
+                if (length >= 0 && length - copied < buffer.capacity()) {
+                    buffer.limit((int) (length - copied));
+                }
+
+                int requested = buffer.remaining();
+                int read = source.read(buffer);
+                if (read == -1) {
+                    if (length >= 0) {
+                        throw new EOFException("Koneksi ditutup sebelum segmen selesai diunduh.");
+                    }
+                    break;
+                }
+                if (read == 0) {
+                    continue;
+                }
+
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    position += target.write(buffer, position);
+                }
+                copied += read;
+                if (!listener.onChunk(position, read)) {
+                    break;
+                }
+                if (ADAPTIVE && sizer.record(read, requested)) {
+                    // Ambil buffer baru dulu agar buffer lama tidak dilepas dua kali bila alokasi gagal.
+                    ByteBuffer resized = BufferPool.acquire(sizer.size());
+                    BufferPool.release(buffer);
+                    buffer = resized;
+                }
+            }
+            return copied;
+        } finally {
+            BufferPool.release(buffer);
+        }
+    }
+
+    private static long transfer(FileChannel source, FileChannel target, long position, long length,
+            ChunkListener listener) throws IOException {
+        long copied = 0;
+        while (length < 0 || copied < length) {
+            long count = length < 0 ? TRANSFER_CHUNK : Math.min(TRANSFER_CHUNK, length - copied);
+            long transferred = target.transferFrom(source, position, count);
+            if (transferred <= 0) {
+                if (length >= 0) {
+                    throw new EOFException("Sumber berakhir sebelum segmen selesai disalin.");
+                }
+                break;
+            }
+            position += transferred;
+            copied += transferred;
+            if (!listener.onChunk(position, (int) transferred)) {
+                break;
+            }
+        }
+        return copied;
+    }
+
+    /**
+     * Menentukan ukuran baca dari jendela {@value #WINDOW} pembacaan terakhir.
+     * Targetnya satu buffer kira-kira setara {@code TARGET_NANOS} data pada
+     * throughput yang teramati.
+     */
+    private static final class ReadSizer {
+        private static final int WINDOW = 16;
+        private static final long TARGET_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+        private int size;
+        private int reads;
+        private int fullReads;
+        private long windowBytes;
+        private long windowStart = System.nanoTime();
+
+        ReadSizer(int initialSize) {
+            this.size = BufferPool.normalize(initialSize);
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * @return {@code true} bila ukuran buffer berubah
+         */
+        boolean record(int read, int requested) {
+            reads++;
+            windowBytes += read;
+            if (read >= requested) {
+                fullReads++;
+            }
+            if (reads < WINDOW) {
+                return false;
+            }
+
+            long now = System.nanoTime();
+            long elapsed = Math.max(1L, now - windowStart);
+            double target = (double) windowBytes / elapsed * TARGET_NANOS;
+            long averageRead = windowBytes / reads;
+
+            int next = size;
+            if (fullReads * 4 >= reads * 3 && target > size) {
+                next = size << 1;
+            } else if (averageRead < size / 4 && target < size / 2.0) {
+                next = size >> 1;
+            }
+
+            reads = 0;
+            fullReads = 0;
+            windowBytes = 0;
+            windowStart = now;
+
+            next = BufferPool.normalize(next);
+            if (next == size) {
+                return false;
+            }
+            size = next;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,429 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Cache konten untuk {@link FileDownloader}. Setiap URL yang responsnya
+ * membawa {@code ETag} atau {@code Last-Modified} dicatat bersama validator
+ * dan hash SHA-256 isinya; isi file disimpan sekali per hash di
+ * {@code blobs/}, sehingga URL berbeda dengan isi sama hanya memakan satu
+ * salinan.
+ * <p>
+ * Unduhan berikutnya untuk URL yang sama mengirim {@code If-None-Match} /
+ * {@code If-Modified-Since}; bila server menjawab {@code 304} file diambil
+ * dari cache dengan hard link atau salinan lokal, bukan dari jaringan.
+ * Total ukuran dibatasi dan blob yang paling lama tidak dipakai dibuang
+ * lebih dulu.
+ * <p>
+ * Cache tidak aktif kecuali diberi batas ukuran, karena setiap unduhan yang
+ * disimpan berarti satu salinan dan satu hash tambahan di disk.
+ * Konfigurasi lewat system property:
+ * <ul>
+ * <li>{@code downloader.cacheDir} - lokasi cache (default {@code data/cache})</li>
+ * <li>{@code downloader.cacheMaxBytes} - batas ukuran; lebih dari {@code 0} mengaktifkan
+ * cache (default {@code 0}, mati)</li>
+ * <li>{@code downloader.cacheLinks} - {@code true} untuk memakai hard link saat menyimpan dan
+ * mengambil file bila berada di filesystem yang sama (default {@code false}, salinan)</li>
+ * </ul>
+ * Salinan memakai {@link Files#copy(Path, Path, java.nio.file.CopyOption...)} sehingga JDK bisa
+ * memakai salinan di kernel (termasuk reflink pada filesystem yang mendukung).
+ * Blob yang ukuran atau waktu ubahnya berbeda dari catatan (misalnya file
+ * tujuan yang ter-hard-link diedit) dianggap rusak dan dibuang.
+ */
+final class DownloadCache {
+
+    /**
+     * Catatan satu URL di cache.
+     */
+    record Entry(String url, String hash, long size, String etag, String lastModified, long lastAccess) {
+
+        Map<String, String> conditionalHeaders() {
+            Map<String, String> headers = new LinkedHashMap<>();
+            if (etag != null) {
+                headers.put("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                headers.put("If-Modified-Since", lastModified);
+            }
+            return headers;
+        }
+    }
+
+    private record Blob(long size, long modifiedMillis) {
+    }
+
+    private static final String INDEX_FILE = "index.properties";
+    private static final String BLOB_DIR = "blobs";
+
+    private final Path directory;
+    private final Path blobDirectory;
+    private final long maxBytes;
+    private final boolean links;
+    private final ExecutorService executor = DownloadExecutors.newBoundedExecutor("download-cache");
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<String, Blob> blobs = new HashMap<>();
+    private long totalBytes;
+    private boolean loaded;
+
+    DownloadCache(Path directory, long maxBytes, boolean links) {
+        this.directory = directory;
+        this.blobDirectory = directory.resolve(BLOB_DIR);
+        this.maxBytes = Math.max(0L, maxBytes);
+        this.links = links;
+    }
+
+    static DownloadCache fromSystemProperties() {
+        return new DownloadCache(Paths.get(System.getProperty("downloader.cacheDir", "data/cache")),
+                Long.getLong("downloader.cacheMaxBytes", 0L),
+                Boolean.getBoolean("downloader.cacheLinks"));
+    }
+
+    boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * Catatan untuk {@code url} yang blob-nya masih utuh, atau {@code null}.
+     */
+    synchronized Entry lookup(String url) {
+        if (!isEnabled() || !ensureLoaded()) {
+            return null;
+        }
+        Entry entry = entries.get(url);
+        if (entry == null) {
+            return null;
+        }
+        if (!blobIntact(entry.hash())) {
+            dropBlob(entry.hash());
+            saveIndex();
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Membuat {@code target} berisi blob milik {@code entry} setelah server
+     * menjawab {@code 304}. Gagal bila blob sudah dibuang atau rusak; pemanggil
+     * lalu mengunduh ulang dari jaringan.
+     */
+    void materialize(Entry entry, Path target) throws IOException {
+        Path blob = blobDirectory.resolve(entry.hash());
+        synchronized (this) {
+            if (!entries.containsKey(entry.url()) || !blobIntact(entry.hash())) {
+                throw new IOException("Blob cache tidak tersedia: " + entry.hash());
+            }
+            entries.put(entry.url(), new Entry(entry.url(), entry.hash(), entry.size(), entry.etag(),
+                    entry.lastModified(), System.currentTimeMillis()));
+            saveIndex();
+        }
+        Files.deleteIfExists(target);
+        if (links) {
+            try {
+                Files.createLink(target, blob);
+                return;
+            } catch (IOException | UnsupportedOperationException ex) {
+                // Filesystem berbeda atau tidak mendukung hard link; jatuh ke salinan.
+            }
+        }
+        Files.copy(blob, target, StandardCopyOption.REPLACE_EXISTING);
+        if (Files.size(target) != entry.size()) {
+            Files.deleteIfExists(target);
+            throw new IOException("Salinan dari cache tidak lengkap.");
+        }
+    }
+
+    /**
+     * Menyimpan {@code file} yang baru selesai diunduh di background. Respons
+     * tanpa validator tidak disimpan karena tidak bisa divalidasi ulang.
+     */
+    void storeAsync(String url, String etag, String lastModified, Path file) {
+        if (!isEnabled() || (etag == null && lastModified == null)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                store(url, etag, lastModified, file);
+            } catch (IOException | RuntimeException ex) {
+                System.err.println("Gagal menyimpan ke cache unduhan: " + ex.getMessage());
+            }
+        });
+    }
+
+    synchronized void invalidate(String url) {
+        Entry removed = entries.remove(url);
+        if (removed != null) {
+            dropIfUnreferenced(removed.hash());
+            saveIndex();
+        }
+    }
+
+    void store(String url, String etag, String lastModified, Path file) throws IOException {
+        long size = Files.size(file);
+        if (size > maxBytes) {
+            invalidate(url);
+            return;
+        }
+        synchronized (this) {
+            if (!ensureLoaded()) {
+                return;
+            }
+        }
+
+        // Isi di-hash sambil disalin (atau di-link) ke file sementara, sehingga hash pasti sesuai isi blob.
+        Path temp = Files.createTempFile(blobDirectory, "incoming", ".tmp");
+        String hash;
+        try {
+            hash = links && linkInto(file, temp) ? hash(temp) : copyAndHash(file, temp);
+            synchronized (this) {
+                Path blob = blobDirectory.resolve(hash);
+                if (!blobs.containsKey(hash)) {
+                    move(temp, blob);
+                    blobs.put(hash, new Blob(size, Files.getLastModifiedTime(blob).toMillis()));
+                    totalBytes += size;
+                }
+                Entry previous = entries.put(url, new Entry(url, hash, size, etag, lastModified,
+                        System.currentTimeMillis()));
+                if (previous != null && !previous.hash().equals(hash)) {
+                    dropIfUnreferenced(previous.hash());
+                }
+                evict();
+                saveIndex();
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private boolean linkInto(Path file, Path temp) {
+        try {
+            Files.delete(temp);
+            Files.createLink(temp, file);
+            return true;
+        } catch (IOException | UnsupportedOperationException ex) {
+            try {
+                Files.deleteIfExists(temp);
+                Files.createFile(temp);
+            } catch (IOException ignored) {
+            }
+            return false;
+        }
+    }
+
+    private static String copyAndHash(Path source, Path target) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = BufferPool.acquire(ChannelCopier.BUFFER_SIZE);
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (true) {
+                buffer.clear();
+                if (in.read(buffer) < 0) {
+                    break;
+                }
+                buffer.flip();
+                digest.update(buffer.duplicate());
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+            }
+        } finally {
+            BufferPool.release(buffer);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static String hash(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream input = Files.newInputStream(file)) {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private boolean blobIntact(String hash) {
+        Blob blob = blobs.get(hash);
+        if (blob == null) {
+            return false;
+        }
+        Path path = blobDirectory.resolve(hash);
+        try {
+            return Files.size(path) == blob.size()
+                    && Files.getLastModifiedTime(path).toMillis() == blob.modifiedMillis();
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    // Blob yang paling lama tidak dipakai oleh URL mana pun dibuang sampai total di bawah batas.
+    private void evict() {
+        if (totalBytes <= maxBytes) {
+            return;
+        }
+        Map<String, Long> lastUse = new HashMap<>();
+        for (Entry entry : entries.values()) {
+            lastUse.merge(entry.hash(), entry.lastAccess(), Math::max);
+        }
+        List<String> order = new ArrayList<>(blobs.keySet());
+        order.sort(Comparator.comparingLong(hash -> lastUse.getOrDefault(hash, 0L)));
+        for (String hash : order) {
+            if (totalBytes <= maxBytes) {
+                break;
+            }
+            dropBlob(hash);
+        }
+    }
+
+    private void dropIfUnreferenced(String hash) {
+        for (Entry entry : entries.values()) {
+            if (entry.hash().equals(hash)) {
+                return;
+            }
+        }
+        dropBlob(hash);
+    }
+
+    private void dropBlob(String hash) {
+        Blob removed = blobs.remove(hash);
+        if (removed != null) {
+            totalBytes -= removed.size();
+        }
+        entries.values().removeIf(entry -> entry.hash().equals(hash));
+        try {
+            Files.deleteIfExists(blobDirectory.resolve(hash));
+        } catch (IOException ignored) {
+            // Blob yatim dibersihkan saat cache dimuat berikutnya.
+        }
+    }
+
+    private boolean ensureLoaded() {
+        if (loaded) {
+            return true;
+        }
+        try {
+            Files.createDirectories(blobDirectory);
+            loadIndex();
+            loaded = true;
+        } catch (IOException ex) {
+            System.err.println("Gagal membuka cache unduhan: " + ex.getMessage());
+        }
+        return loaded;
+    }
+
+    private void loadIndex() throws IOException {
+        Properties props = new Properties();
+        Path index = directory.resolve(INDEX_FILE);
+        if (Files.isRegularFile(index)) {
+            try (InputStream input = Files.newInputStream(index)) {
+                props.load(input);
+            } catch (IllegalArgumentException ex) {
+                props.clear();
+            }
+        }
+
+        for (String key : props.stringPropertyNames()) {
+            String[] fields = props.getProperty(key).split("\t", -1);
+            try {
+                if (key.startsWith("blob.") && fields.length == 2) {
+                    blobs.put(key.substring("blob.".length()),
+                            new Blob(Long.parseLong(fields[0]), Long.parseLong(fields[1])));
+                } else if (key.startsWith("url.") && fields.length == 6) {
+                    entries.put(fields[0], new Entry(fields[0], fields[1], Long.parseLong(fields[2]),
+                            emptyToNull(fields[3]), emptyToNull(fields[4]), Long.parseLong(fields[5])));
+                }
+            } catch (NumberFormatException ignored) {
+                // Baris rusak dilewati; blob-nya ikut terbuang sebagai yatim di bawah.
+            }
+        }
+
+        entries.values().removeIf(entry -> !blobs.containsKey(entry.hash()));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(blobDirectory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (!blobs.containsKey(name)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        blobs.keySet().removeIf(hash -> !Files.isRegularFile(blobDirectory.resolve(hash)));
+        entries.values().removeIf(entry -> !blobs.containsKey(entry.hash()));
+        totalBytes = 0;
+        for (Blob blob : blobs.values()) {
+            totalBytes += blob.size();
+        }
+        evict();
+    }
+
+    private void saveIndex() {
+        Properties props = new Properties();
+        for (Map.Entry<String, Blob> blob : blobs.entrySet()) {
+            props.setProperty("blob." + blob.getKey(),
+                    blob.getValue().size() + "\t" + blob.getValue().modifiedMillis());
+        }
+        int n = 0;
+        for (Entry entry : entries.values()) {
+            props.setProperty("url." + n++, String.join("\t", entry.url(), entry.hash(),
+                    Long.toString(entry.size()), nullToEmpty(entry.etag()), nullToEmpty(entry.lastModified()),
+                    Long.toString(entry.lastAccess())));
+        }
+
+        Path index = directory.resolve(INDEX_FILE);
+        Path temp = directory.resolve(INDEX_FILE + ".tmp");
+        try {
+            try (OutputStream output = Files.newOutputStream(temp)) {
+                props.store(output, "FileDownloader content cache");
+            }
+            move(temp, index);
+        } catch (IOException ex) {
+            System.err.println("Gagal menyimpan index cache unduhan: " + ex.getMessage());
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException | FileAlreadyExistsException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
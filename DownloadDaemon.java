@@ -0,0 +1,720 @@
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mode layanan: server HTTP lokal ({@code com.sun.net.httpserver}) agar
+ * banyak klien bisa mengantre unduhan ke satu proses dengan
+ * {@link DownloadScheduler}, transport HTTP dan worker yt-dlp yang sama.
+ * <p>
+ * Endpoint (parameter sebagai query string atau form urlencoded):
+ * <ul>
+ * <li>{@code POST /jobs} - {@code url}, opsional {@code name}, {@code format},
+ * {@code priority} ({@code high}/{@code normal}/{@code low})</li>
+ * <li>{@code GET /jobs}, {@code GET /jobs/<id>} - daftar dan status pekerjaan</li>
+ * <li>{@code DELETE /jobs/<id>} atau {@code POST /jobs/<id>/cancel} - membatalkan</li>
+ * <li>{@code GET /events}, {@code GET /jobs/<id>/events} - Server-Sent Events
+ * berisi snapshot pekerjaan setiap ada perubahan</li>
+ * <li>{@code GET /metrics} - metrik format Prometheus</li>
+ * </ul>
+ * Server mendengarkan di {@code 127.0.0.1} secara default. Bila
+ * {@code downloader.daemonToken} diisi, setiap request wajib membawa
+ * {@code Authorization: Bearer <token>}. Request dari halaman web lain
+ * ({@code Origin} selain server ini, {@code Sec-Fetch-Site} cross-site atau
+ * same-site) ditolak, begitu juga {@code Host} non-loopback saat server hanya
+ * mendengarkan di loopback, agar situs yang dibuka pengguna tidak bisa
+ * mengirim pekerjaan lewat form atau DNS rebinding.
+ */
+public final class DownloadDaemon {
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Penggunaan: java Main --serve [opsi]",
+            "      --host HOST         alamat bind (default: 127.0.0.1)",
+            "      --port N            port (default: 8765)",
+            "  -o, --output DIR        folder tujuan (default: downloads)",
+            "  -j, --concurrency N     unduhan bersamaan (default: 4)",
+            "      --per-host N        unduhan bersamaan per host (default: 2)");
+
+    private static final Path QUEUE_FILE = Paths.get("data", "daemon-queue.log");
+    private static final int FINISHED_JOBS_KEPT = Integer.getInteger("downloader.daemonHistory", 500);
+    private static final int SUBSCRIBER_BACKLOG = 256;
+    private static final long HEARTBEAT_SECONDS = 15;
+    private static final ExecutorService HTTP_EXECUTOR = DownloadExecutors.newExecutor("daemon-http");
+
+    private final HttpServer server;
+    private final DownloadScheduler scheduler;
+    private final Path outputDir;
+    private final String token = System.getProperty("downloader.daemonToken");
+    private final Set<String> localHosts;
+    private final boolean loopbackOnly;
+    private final Map<String, Job> jobs = new LinkedHashMap<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong eventSequence = new AtomicLong();
+
+    public DownloadDaemon(InetSocketAddress address, Path outputDir, int maxConcurrent, int maxPerHost)
+            throws IOException {
+        this.outputDir = outputDir;
+        Set<String> hosts = new HashSet<>(List.of("localhost", "127.0.0.1", "[::1]"));
+        String bindHost = address.getHostString().toLowerCase(Locale.ROOT);
+        hosts.add(bindHost.contains(":") ? "[" + bindHost + "]" : bindHost);
+        this.localHosts = Set.copyOf(hosts);
+        this.loopbackOnly = address.getAddress() != null && address.getAddress().isLoopbackAddress();
+        this.scheduler = new DownloadScheduler(maxConcurrent, Math.min(maxPerHost, maxConcurrent), QUEUE_FILE);
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(HTTP_EXECUTOR);
+        server.createContext("/jobs", this::handleJobs);
+        server.createContext("/events", exchange -> handle(exchange, () -> {
+            requireMethod(exchange, "GET");
+            streamEvents(exchange, null);
+        }));
+        server.createContext("/metrics", exchange -> handle(exchange, () -> {
+            requireMethod(exchange, "GET");
+            send(exchange, 200, "text/plain; version=0.0.4", DownloadMetrics.toPrometheus());
+        }));
+    }
+
+    public static void main(String[] args) {
+        String host = "127.0.0.1";
+        int port = 8765;
+        Path output = Paths.get("downloads");
+        int concurrency = 4;
+        int perHost = 2;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--serve" -> {
+                    }
+                    case "--host" -> host = value(args, ++i, arg);
+                    case "--port" -> port = Integer.parseInt(value(args, ++i, arg));
+                    case "-o", "--output" -> output = Paths.get(value(args, ++i, arg));
+                    case "-j", "--concurrency" -> concurrency = Integer.parseInt(value(args, ++i, arg));
+                    case "--per-host" -> perHost = Integer.parseInt(value(args, ++i, arg));
+                    case "-h", "--help" -> {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    default -> throw new IllegalArgumentException("Opsi tidak dikenal: " + arg);
+                }
+            }
+            Files.createDirectories(output);
+            DownloadMetrics.installShutdownExport();
+            DownloadDaemon daemon = new DownloadDaemon(new InetSocketAddress(host, port), output, concurrency,
+                    perHost);
+            daemon.start();
+            System.err.println("Server unduhan berjalan di http://" + host + ":" + daemon.port());
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        } catch (IOException ex) {
+            System.err.println("Gagal menjalankan server: " + ex.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Opsi " + option + " membutuhkan nilai.");
+        }
+        return args[index];
+    }
+
+    /**
+     * Menjalankan server dan mengirim ulang pekerjaan yang belum selesai dari
+     * sesi sebelumnya.
+     */
+    public void start() {
+        for (DownloadScheduler.JobSpec spec : scheduler.restorePending()) {
+            if (spec.kind() == DownloadScheduler.Kind.FILE) {
+                submitFile(spec.url(), spec.target(), spec.baseName(), spec.format(), spec.priority());
+            } else {
+                submitYtDlp(spec.url(), spec.target(), spec.baseName(), spec.format(), spec.priority());
+            }
+        }
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close();
+        }
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    private void handleJobs(HttpExchange exchange) {
+        handle(exchange, () -> {
+            String path = exchange.getRequestURI().getPath();
+            String rest = path.length() > "/jobs".length() ? path.substring("/jobs/".length()) : "";
+            String method = exchange.getRequestMethod().toUpperCase(Locale.ROOT);
+            if (rest.isEmpty()) {
+                if ("GET".equals(method)) {
+                    send(exchange, 200, "application/json", listJson());
+                } else if ("POST".equals(method)) {
+                    Job job = submit(parameters(exchange));
+                    exchange.getResponseHeaders().set("Location", "/jobs/" + job.id());
+                    send(exchange, 201, "application/json", job.toJson());
+                } else {
+                    throw new RequestException(405, "Metode tidak didukung.");
+                }
+                return;
+            }
+
+            String[] parts = rest.split("/", 2);
+            Job job = find(parts[0]);
+            String action = parts.length > 1 ? parts[1] : "";
+            switch (action) {
+                case "" -> {
+                    if ("DELETE".equals(method)) {
+                        job.ticket().cancel();
+                        send(exchange, 202, "application/json", job.toJson());
+                    } else {
+                        requireMethod(exchange, "GET");
+                        send(exchange, 200, "application/json", job.toJson());
+                    }
+                }
+                case "cancel" -> {
+                    requireMethod(exchange, "POST");
+                    job.ticket().cancel();
+                    send(exchange, 202, "application/json", job.toJson());
+                }
+                case "events" -> {
+                    requireMethod(exchange, "GET");
+                    streamEvents(exchange, job.id());
+                }
+                default -> throw new RequestException(404, "Endpoint tidak ditemukan.");
+            }
+        });
+    }
+
+    private Job submit(Map<String, String> params) {
+        String url = params.get("url");
+        if (url == null || url.isBlank()) {
+            throw new RequestException(400, "Parameter url wajib diisi.");
+        }
+        url = url.trim();
+        String scheme;
+        try {
+            scheme = URI.create(url).getScheme();
+        } catch (IllegalArgumentException ex) {
+            throw new RequestException(400, "URL tidak valid.");
+        }
+        if (scheme == null || !(scheme.equalsIgnoreCase("http") || scheme.equalsIgnoreCase("https"))) {
+            throw new RequestException(400, "Hanya URL http/https yang didukung.");
+        }
+
+        DownloadScheduler.Priority priority;
+        try {
+            priority = DownloadScheduler.Priority.valueOf(
+                    params.getOrDefault("priority", "normal").trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new RequestException(400, "Prioritas tidak dikenal: " + params.get("priority"));
+        }
+        String format = params.get("format");
+        format = format == null || format.isBlank() ? null : format.trim().toLowerCase(Locale.ROOT);
+        String name = params.get("name");
+        name = name == null || name.isBlank() ? null : name.trim();
+        if (name != null && (name.contains("/") || name.contains("\\") || name.equals("..") || name.equals("."))) {
+            throw new RequestException(400, "Nama file tidak boleh berisi path.");
+        }
+
+        if (YtDlpHelper.isYouTube(url)) {
+            return submitYtDlp(url, outputDir, name, "mp3".equals(format) ? "mp3" : "mp4", priority);
+        }
+        if (name == null) {
+            // getPath() sudah mendekode percent-encoding; dekode kedua membuka jalan ke %252F..%252F.
+            String urlPath = URI.create(url).getPath();
+            name = urlPath == null ? "" : urlPath.substring(urlPath.lastIndexOf('/') + 1);
+            if (name.isBlank() || name.contains("\\") || name.equals("..") || name.equals(".")) {
+                name = "download-" + System.currentTimeMillis();
+            }
+        }
+        if (format != null && name.lastIndexOf('.') <= 0) {
+            name = name + "." + format;
+        }
+        Path destination;
+        try {
+            destination = outputDir.resolve(name);
+        } catch (InvalidPathException ex) {
+            throw new RequestException(400, "Nama file tidak valid: " + name);
+        }
+        if (!destination.toAbsolutePath().normalize().startsWith(outputDir.toAbsolutePath().normalize())) {
+            throw new RequestException(400, "Nama file tidak boleh keluar dari direktori output.");
+        }
+        if (Files.exists(destination)) {
+            throw new RequestException(409, "File tujuan sudah ada: " + destination.getFileName());
+        }
+        return submitFile(url, destination, name, format, priority);
+    }
+
+    private Job submitFile(String url, Path destination, String name, String format,
+            DownloadScheduler.Priority priority) {
+        Job job = new Job(url, "file", destination);
+        job.attach(scheduler.submitFile(url, destination, name, format, priority, job.new FileObserver()));
+        return register(job);
+    }
+
+    private Job submitYtDlp(String url, Path outDir, String baseName, String format,
+            DownloadScheduler.Priority priority) {
+        Job job = new Job(url, "yt-dlp", outDir);
+        job.attach(scheduler.submitYtDlp(url, outDir, baseName, format, priority, job.new YtObserver()));
+        return register(job);
+    }
+
+    private Job register(Job job) {
+        synchronized (jobs) {
+            jobs.put(job.id(), job);
+            int finished = 0;
+            for (Job existing : jobs.values()) {
+                if (existing.isFinished()) {
+                    finished++;
+                }
+            }
+            // Pekerjaan selesai yang paling lama dibuang agar memori tidak terus bertambah.
+            Iterator<Job> iterator = jobs.values().iterator();
+            while (finished > FINISHED_JOBS_KEPT && iterator.hasNext()) {
+                if (iterator.next().isFinished()) {
+                    iterator.remove();
+                    finished--;
+                }
+            }
+        }
+        job.markRegistered();
+        publish("submitted", job);
+        return job;
+    }
+
+    private Job find(String id) {
+        synchronized (jobs) {
+            Job job = jobs.get(id);
+            if (job == null) {
+                throw new RequestException(404, "Pekerjaan tidak ditemukan: " + id);
+            }
+            return job;
+        }
+    }
+
+    private String listJson() {
+        List<Job> snapshot;
+        synchronized (jobs) {
+            snapshot = new ArrayList<>(jobs.values());
+        }
+        StringBuilder json = new StringBuilder("{\"queued\":").append(scheduler.queuedCount())
+                .append(",\"running\":").append(scheduler.runningCount()).append(",\"jobs\":[");
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(snapshot.get(i).toJson());
+        }
+        return json.append("]}").toString();
+    }
+
+    // Event dikirim ke antrean tiap pelanggan; klien lambat hanya kehilangan event progres.
+    private void publish(String type, Job job) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        String frame = "id: " + eventSequence.incrementAndGet() + "\nevent: " + type + "\ndata: "
+                + job.toJson() + "\n\n";
+        boolean droppable = "progress".equals(type);
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.jobId == null || subscriber.jobId.equals(job.id())) {
+                subscriber.offer(frame, droppable);
+            }
+        }
+    }
+
+    private void streamEvents(HttpExchange exchange, String jobId) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", "text/event-stream; charset=utf-8");
+        headers.set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+
+        Subscriber subscriber = new Subscriber(jobId);
+        subscribers.add(subscriber);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(": terhubung\n\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            while (!subscriber.closed) {
+                String frame = subscriber.queue.poll(HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+                // Komentar SSE kosong sebagai heartbeat sekaligus mendeteksi klien yang sudah putus.
+                out.write((frame != null ? frame : ": ping\n\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            subscribers.remove(subscriber);
+        }
+    }
+
+    private static final class Subscriber {
+        private final String jobId;
+        private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(SUBSCRIBER_BACKLOG);
+        private volatile boolean closed;
+
+        Subscriber(String jobId) {
+            this.jobId = jobId;
+        }
+
+        void offer(String frame, boolean droppable) {
+            if (queue.offer(frame) || droppable) {
+                return;
+            }
+            // Event status tidak boleh hilang; buang progres lama untuk memberi tempat.
+            queue.removeIf(queued -> queued.contains("\nevent: progress\n"));
+            if (!queue.offer(frame)) {
+                close();
+            }
+        }
+
+        void close() {
+            closed = true;
+            queue.offer(": tutup\n\n");
+        }
+    }
+
+    private final class Job {
+        private final String url;
+        private final String kind;
+        private final Path target;
+        private final long createdAt = System.currentTimeMillis();
+        private DownloadScheduler.Ticket ticket;
+        private DownloadScheduler.State state = DownloadScheduler.State.QUEUED;
+        private long downloaded;
+        private long total = -1;
+        private int percent = -1;
+        private double bytesPerSecond = -1;
+        private long etaSeconds = -1;
+        private long startNanos;
+        private String title;
+        private Path file;
+        private String error;
+        private String message;
+        private boolean registered;
+
+        Job(String url, String kind, Path target) {
+            this.url = url;
+            this.kind = kind;
+            this.target = target;
+        }
+
+        synchronized void attach(DownloadScheduler.Ticket ticket) {
+            this.ticket = ticket;
+        }
+
+        synchronized DownloadScheduler.Ticket ticket() {
+            return ticket;
+        }
+
+        synchronized String id() {
+            return ticket.spec().id();
+        }
+
+        synchronized boolean isFinished() {
+            return state != DownloadScheduler.State.QUEUED && state != DownloadScheduler.State.RUNNING;
+        }
+
+        synchronized String toJson() {
+            return "{\"id\":" + Json.quote(ticket.spec().id())
+                    + ",\"url\":" + Json.quote(url)
+                    + ",\"kind\":" + Json.quote(kind)
+                    + ",\"target\":" + Json.quote(target.toString())
+                    + ",\"state\":" + Json.quote(state.name())
+                    + ",\"priority\":" + Json.quote(ticket.spec().priority().name())
+                    + ",\"createdAt\":" + createdAt
+                    + ",\"downloaded\":" + downloaded
+                    + ",\"total\":" + total
+                    + ",\"percent\":" + percent
+                    + ",\"bytesPerSecond\":" + Math.round(Math.max(0, bytesPerSecond))
+                    + ",\"etaSeconds\":" + etaSeconds
+                    + ",\"title\":" + Json.quote(title)
+                    + ",\"file\":" + Json.quote(file != null ? file.toString() : null)
+                    + ",\"error\":" + Json.quote(error)
+                    + ",\"message\":" + Json.quote(message) + "}";
+        }
+
+        // Event sebelum pekerjaan terdaftar tidak dikirim; snapshot-nya ikut event "submitted".
+        private void update(String type, Runnable change) {
+            boolean visible;
+            synchronized (this) {
+                change.run();
+                visible = registered;
+            }
+            if (visible) {
+                publish(type, this);
+            }
+        }
+
+        synchronized void markRegistered() {
+            registered = true;
+        }
+
+        private final class FileObserver implements FileDownloader.DownloadObserver {
+            @Override
+            public void onStarted(long totalBytes) {
+                update("started", () -> {
+                    state = DownloadScheduler.State.RUNNING;
+                    total = totalBytes;
+                    startNanos = System.nanoTime();
+                });
+            }
+
+            @Override
+            public void onProgress(long downloadedBytes, long totalBytes) {
+                update("progress", () -> {
+                    downloaded = downloadedBytes;
+                    total = totalBytes;
+                    percent = totalBytes > 0 ? (int) (downloadedBytes * 100 / totalBytes) : -1;
+                    double seconds = (System.nanoTime() - startNanos) / 1e9;
+                    bytesPerSecond = seconds > 0 ? downloadedBytes / seconds : -1;
+                    etaSeconds = bytesPerSecond > 0 && totalBytes > 0
+                            ? (long) ((totalBytes - downloadedBytes) / bytesPerSecond) : -1;
+                });
+            }
+
+            @Override
+            public void onCompleted(Path completedFile) {
+                update("completed", () -> {
+                    state = DownloadScheduler.State.COMPLETED;
+                    file = completedFile;
+                    percent = 100;
+                });
+            }
+
+            @Override
+            public void onCancelled(Path partialFile) {
+                update("cancelled", () -> state = DownloadScheduler.State.CANCELLED);
+            }
+
+            @Override
+            public void onFailed(DownloadError downloadError, Exception exception) {
+                update("failed", () -> {
+                    state = DownloadScheduler.State.FAILED;
+                    error = downloadError.name();
+                    message = exception.getMessage();
+                });
+            }
+
+            @Override
+            public void onPaused(Path partialFile) {
+                update("paused", () -> state = DownloadScheduler.State.PAUSED);
+            }
+        }
+
+        private final class YtObserver implements YtDlpHelper.Observer {
+            @Override
+            public void onStarted() {
+                update("started", () -> state = DownloadScheduler.State.RUNNING);
+            }
+
+            @Override
+            public void onProgress(YtDlpHelper.Progress progress) {
+                update("progress", () -> {
+                    downloaded = progress.downloadedBytes();
+                    total = progress.totalBytes();
+                    percent = progress.percent();
+                    bytesPerSecond = progress.bytesPerSecond();
+                    etaSeconds = progress.etaSeconds();
+                });
+            }
+
+            @Override
+            public void onMessage(String line) {
+            }
+
+            @Override
+            public void onTitleExtracted(String extractedTitle) {
+                update("title", () -> title = extractedTitle);
+            }
+
+            @Override
+            public void onCompleted(Path producedFile) {
+                update("completed", () -> {
+                    state = DownloadScheduler.State.COMPLETED;
+                    file = producedFile;
+                    percent = 100;
+                });
+            }
+
+            @Override
+            public void onCancelled() {
+                update("cancelled", () -> state = DownloadScheduler.State.CANCELLED);
+            }
+
+            @Override
+            public void onFailed(String failureMessage) {
+                update("failed", () -> {
+                    state = DownloadScheduler.State.FAILED;
+                    error = "YT_DLP";
+                    message = failureMessage;
+                });
+            }
+        }
+    }
+
+    private interface Action {
+        void run() throws IOException;
+    }
+
+    private static final class RequestException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private void handle(HttpExchange exchange, Action action) {
+        try {
+            checkOrigin(exchange.getRequestHeaders());
+            if (!authorized(exchange.getRequestHeaders().getFirst("Authorization"))) {
+                throw new RequestException(401, "Token tidak valid.");
+            }
+            action.run();
+        } catch (RequestException ex) {
+            sendError(exchange, ex.status, ex.getMessage());
+        } catch (IOException | RuntimeException ex) {
+            sendError(exchange, 500, ex.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private boolean authorized(String authorization) {
+        if (token == null || token.isEmpty()) {
+            return true;
+        }
+        // Dibandingkan dalam waktu konstan agar token tidak bisa ditebak dari lama respons.
+        return authorization != null && MessageDigest.isEqual(
+                ("Bearer " + token).getBytes(StandardCharsets.UTF_8), authorization.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Browser mengirim Origin/Sec-Fetch-Site; klien non-browser (curl, skrip) biasanya tidak.
+    private void checkOrigin(Headers headers) {
+        String fetchSite = headers.getFirst("Sec-Fetch-Site");
+        if (fetchSite != null && !"same-origin".equals(fetchSite) && !"none".equals(fetchSite)) {
+            throw new RequestException(403, "Request lintas situs ditolak.");
+        }
+        String origin = headers.getFirst("Origin");
+        if (origin != null && !isLocalAuthority(originAuthority(origin))) {
+            throw new RequestException(403, "Origin tidak diizinkan: " + origin);
+        }
+        if (loopbackOnly && !isLocalAuthority(headers.getFirst("Host"))) {
+            throw new RequestException(403, "Host tidak diizinkan.");
+        }
+    }
+
+    private static String originAuthority(String origin) {
+        try {
+            URI uri = new URI(origin);
+            return "http".equalsIgnoreCase(uri.getScheme()) ? uri.getRawAuthority() : null;
+        } catch (URISyntaxException ex) {
+            return null;
+        }
+    }
+
+    private boolean isLocalAuthority(String authority) {
+        if (authority == null) {
+            return false;
+        }
+        String value = authority.toLowerCase(Locale.ROOT);
+        int colon = value.lastIndexOf(':');
+        if (colon < value.lastIndexOf(']')) {
+            colon = -1;
+        }
+        String host = colon < 0 ? value : value.substring(0, colon);
+        String port = colon < 0 ? "80" : value.substring(colon + 1);
+        return localHosts.contains(host) && port.equals(Integer.toString(port()));
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) {
+        if (!method.equalsIgnoreCase(exchange.getRequestMethod())) {
+            throw new RequestException(405, "Metode tidak didukung.");
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) {
+        try {
+            send(exchange, status, "application/json", "{\"error\":" + Json.quote(message) + "}");
+        } catch (IOException | RuntimeException ignored) {
+            // Respons sudah dimulai (misalnya stream SSE) atau klien sudah putus.
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType + (contentType.contains("charset")
+                ? "" : "; charset=utf-8"));
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> parameters(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseQuery(exchange.getRequestURI().getRawQuery(), params);
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (contentType == null || contentType.startsWith("application/x-www-form-urlencoded")) {
+            try (InputStream body = exchange.getRequestBody()) {
+                byte[] bytes = body.readNBytes(64 * 1024);
+                parseQuery(new String(bytes, StandardCharsets.UTF_8), params);
+            }
+        } else {
+            throw new RequestException(415, "Body harus application/x-www-form-urlencoded.");
+        }
+        return params;
+    }
+
+    private static void parseQuery(String query, Map<String, String> params) {
+        if (query == null || query.isBlank()) {
+            return;
+        }
+        for (String pair : query.strip().split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(key, value);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor untuk pekerjaan I/O yang memblokir (unduhan dan pembaca output
+ * proses). Pada JDK 21+ pekerjaan dijalankan di virtual thread; pada JDK
+ * lama kembali ke cached thread pool dengan daemon thread.
+ * <p>
+ * Konfigurasi lewat system property:
+ * <ul>
+ * <li>{@code downloader.virtualThreads} - {@code false} untuk memaksa platform thread</li>
+ * <li>{@code downloader.maxConcurrency} - batas tugas yang berjalan bersamaan
+ * per executor (default 64, {@code 0} berarti tanpa batas)</li>
+ * </ul>
+ */
+final class DownloadExecutors {
+
+    private static final int MAX_CONCURRENCY = Integer.getInteger("downloader.maxConcurrency", 64);
+    private static final boolean VIRTUAL_THREADS_ENABLED = Boolean.parseBoolean(
+            System.getProperty("downloader.virtualThreads", "true"));
+
+    private DownloadExecutors() {
+    }
+
+    /**
+     * Executor dengan batas {@code downloader.maxConcurrency}. Tugas di atas
+     * batas menunggu di antrean tanpa memegang thread.
+     */
+    static ExecutorService newBoundedExecutor(String name) {
+        ExecutorService delegate = newExecutor(name);
+        return MAX_CONCURRENCY > 0 ? new BoundedExecutor(delegate, MAX_CONCURRENCY) : delegate;
+    }
+
+    /**
+     * Executor tanpa batas, untuk sub-tugas yang ditunggu oleh tugas lain
+     * (misalnya segmen unduhan) agar tidak terjadi deadlock pada batas.
+     */
+    static ExecutorService newExecutor(String name) {
+        ThreadFactory virtualFactory = VIRTUAL_THREADS_ENABLED ? virtualThreadFactory(name) : null;
+        if (virtualFactory != null) {
+            ExecutorService perTask = newThreadPerTaskExecutor(virtualFactory);
+            if (perTask != null) {
+                return perTask;
+            }
+        }
+
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, name + "-" + counter.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    // Dipanggil lewat reflection supaya kode tetap bisa dikompilasi dengan JDK 17.
+    private static ThreadFactory virtualThreadFactory(String name) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newThreadPerTaskExecutor(ThreadFactory factory) {
+        try {
+            Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) method.invoke(null, factory);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            return null;
+        }
+    }
+
+    private static final class BoundedExecutor extends AbstractExecutorService {
+        private final ExecutorService delegate;
+        private final Semaphore permits;
+        private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+
+        BoundedExecutor(ExecutorService delegate, int maxConcurrency) {
+            this.delegate = delegate;
+            this.permits = new Semaphore(maxConcurrency);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (delegate.isShutdown()) {
+                throw new RejectedExecutionException("Executor sudah dihentikan.");
+            }
+            queue.add(command);
+            drain();
+        }
+
+        private void drain() {
+            while (!queue.isEmpty() && permits.tryAcquire()) {
+                Runnable next = queue.poll();
+                if (next == null) {
+                    permits.release();
+                    continue;
+                }
+                try {
+                    delegate.execute(() -> {
+                        try {
+                            next.run();
+                        } finally {
+                            permits.release();
+                            drain();
+                        }
+                    });
+                } catch (RejectedExecutionException ex) {
+                    permits.release();
+                    throw ex;
+                }
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            List<Runnable> pending = new ArrayList<>(delegate.shutdownNow());
+            Runnable queued;
+            while ((queued = queue.poll()) != null) {
+                pending.add(queued);
+            }
+            return pending;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated() && queue.isEmpty();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
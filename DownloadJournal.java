@@ -0,0 +1,140 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Catatan kecil di samping file {@code .part} yang menyimpan URL, validator
+ * server (ETag/Last-Modified) dan posisi tiap byte range, sehingga unduhan
+ * yang terhenti bisa dilanjutkan dengan {@code Range}/{@code If-Range}.
+ */
+final class DownloadJournal {
+
+    record Range(long start, long end, long position) {
+    }
+
+    private final String url;
+    private final String etag;
+    private final String lastModified;
+    private final long totalBytes;
+    private final boolean rangesSupported;
+    private final List<Range> ranges;
+
+    DownloadJournal(String url, String etag, String lastModified, long totalBytes, boolean rangesSupported,
+            List<Range> ranges) {
+        this.url = url;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.totalBytes = totalBytes;
+        this.rangesSupported = rangesSupported;
+        this.ranges = List.copyOf(ranges);
+    }
+
+    static Path journalFileFor(Path partFile) {
+        return partFile.resolveSibling(partFile.getFileName() + ".journal");
+    }
+
+    static DownloadJournal load(Path journalFile) {
+        if (!Files.isRegularFile(journalFile)) {
+            return null;
+        }
+
+        Properties props = new Properties();
+        try (InputStream input = Files.newInputStream(journalFile)) {
+            props.load(input);
+
+            int count = Integer.parseInt(props.getProperty("ranges", "0"));
+            List<Range> ranges = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String[] parts = props.getProperty("range." + i, "").split(",");
+                if (parts.length != 3) {
+                    return null;
+                }
+                ranges.add(new Range(Long.parseLong(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2])));
+            }
+
+            return new DownloadJournal(props.getProperty("url"), props.getProperty("etag"),
+                    props.getProperty("lastModified"), Long.parseLong(props.getProperty("totalBytes", "-1")),
+                    Boolean.parseBoolean(props.getProperty("rangesSupported")), ranges);
+        } catch (IOException | RuntimeException ex) {
+            return null;
+        }
+    }
+
+    void save(Path journalFile) throws IOException {
+        Properties props = new Properties();
+        props.setProperty("url", url);
+        if (etag != null) {
+            props.setProperty("etag", etag);
+        }
+        if (lastModified != null) {
+            props.setProperty("lastModified", lastModified);
+        }
+        props.setProperty("totalBytes", Long.toString(totalBytes));
+        props.setProperty("rangesSupported", Boolean.toString(rangesSupported));
+        props.setProperty("ranges", Integer.toString(ranges.size()));
+        for (int i = 0; i < ranges.size(); i++) {
+            Range range = ranges.get(i);
+            props.setProperty("range." + i, range.start() + "," + range.end() + "," + range.position());
+        }
+
+        Path temp = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+        try (OutputStream output = Files.newOutputStream(temp)) {
+            props.store(output, "FileDownloader resume journal");
+        }
+        try {
+            Files.move(temp, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temp, journalFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    DownloadJournal withRanges(List<Range> updated) {
+        return new DownloadJournal(url, etag, lastModified, totalBytes, rangesSupported, updated);
+    }
+
+    boolean matches(String otherUrl) {
+        return url != null && url.equals(otherUrl);
+    }
+
+    /**
+     * Nilai untuk header {@code If-Range}. ETag lemah tidak boleh dipakai di
+     * If-Range, sehingga Last-Modified dipakai sebagai gantinya.
+     */
+    String ifRangeValidator() {
+        if (etag != null && !etag.startsWith("W/")) {
+            return etag;
+        }
+        return lastModified;
+    }
+
+    String etag() {
+        return etag;
+    }
+
+    String lastModified() {
+        return lastModified;
+    }
+
+    boolean rangesSupported() {
+        return rangesSupported;
+    }
+
+    boolean isResumable() {
+        return rangesSupported && ifRangeValidator() != null;
+    }
+
+    long totalBytes() {
+        return totalBytes;
+    }
+
+    List<Range> ranges() {
+        return ranges;
+    }
+}
@@ -0,0 +1,297 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Metrik unduhan untuk seluruh proses: latensi koneksi dan byte pertama,
+ * throughput, unduhan aktif, kedalaman antrean, kegagalan per
+ * {@link DownloadError}, serta statistik {@link BufferPool}.
+ * Snapshot tersedia lewat {@link #toPrometheus()} dan {@link #toJson()};
+ * dengan {@code -Ddownloader.metricsFile=<path>} snapshot juga ditulis saat
+ * JVM berhenti (JSON bila nama file berakhiran {@code .json}).
+ */
+public final class DownloadMetrics {
+
+    static final String KIND_FILE = "file";
+    static final String KIND_YT_DLP = "yt-dlp";
+
+    private static final double[] LATENCY_BUCKETS = {
+            0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30 };
+    private static final double[] THROUGHPUT_BUCKETS = {
+            64 * 1024, 256 * 1024, 1 << 20, 4 << 20, 16 << 20, 64 << 20, 256 << 20, 1 << 30 };
+
+    private static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    private static final MetricsRegistry.Histogram CONNECT = REGISTRY.histogram("downloader_connect_seconds",
+            "Waktu dari request dikirim sampai header respons diterima.", LATENCY_BUCKETS);
+    private static final MetricsRegistry.Histogram FIRST_BYTE = REGISTRY.histogram("downloader_ttfb_seconds",
+            "Waktu dari unduhan dimulai sampai byte body pertama diterima.", LATENCY_BUCKETS);
+    private static final MetricsRegistry.Histogram THROUGHPUT = REGISTRY.histogram(
+            "downloader_throughput_bytes_per_second", "Rata-rata throughput per unduhan yang selesai.",
+            THROUGHPUT_BUCKETS);
+    private static final MetricsRegistry.Counter BYTES = REGISTRY.counter("downloader_bytes_total",
+            "Total byte body yang ditulis ke disk.");
+    private static final MetricsRegistry.Gauge QUEUE_DEPTH = REGISTRY.gauge("downloader_queue_depth",
+            "Jumlah unduhan yang menunggu di antrean scheduler.");
+    private static final MetricsRegistry.Gauge POOL_BYTES = REGISTRY.gauge("downloader_buffer_pool_bytes",
+            "Byte buffer direct yang sedang disimpan di pool.");
+    private static final MetricsRegistry.Counter POOL_HITS = REGISTRY.counter("downloader_buffer_pool_hits_total",
+            "Pengambilan buffer yang dilayani dari pool.");
+    private static final MetricsRegistry.Counter POOL_MISSES = REGISTRY.counter(
+            "downloader_buffer_pool_misses_total", "Pengambilan buffer yang harus mengalokasi baru.");
+
+    private DownloadMetrics() {
+    }
+
+    static void connectTime(long nanos) {
+        CONNECT.observe(nanos / 1e9);
+    }
+
+    static void timeToFirstByte(long nanos) {
+        FIRST_BYTE.observe(nanos / 1e9);
+    }
+
+    static void bytesWritten(long bytes) {
+        BYTES.add(bytes);
+    }
+
+    static void queueDepthChanged(int delta) {
+        QUEUE_DEPTH.add(delta);
+    }
+
+    static void retry(DownloadError error) {
+        REGISTRY.counter("downloader_retries_total", "Percobaan ulang per DownloadError.",
+                "error", error.name()).increment();
+    }
+
+    /**
+     * @param source {@code memory}, {@code disk} atau {@code miss}
+     */
+    static void metadataLookup(String source) {
+        REGISTRY.counter("downloader_metadata_lookups_total", "Pencarian metadata yt-dlp per sumber.",
+                "source", source).increment();
+    }
+
+    /**
+     * @param result {@code hit} (304, diambil dari cache) atau {@code changed} (server mengirim isi baru)
+     */
+    static void cacheLookup(String result) {
+        REGISTRY.counter("downloader_cache_lookups_total", "Validasi ulang cache unduhan per hasil.",
+                "result", result).increment();
+    }
+
+    static void ytDlpSession(boolean pooled) {
+        REGISTRY.counter("downloader_ytdlp_sessions_total", "Pekerjaan yt-dlp per cara eksekusi.",
+                "mode", pooled ? "pooled" : "process").increment();
+    }
+
+    private static MetricsRegistry.Gauge active(String kind) {
+        return REGISTRY.gauge("downloader_active_downloads", "Unduhan yang sedang berjalan.", "kind", kind);
+    }
+
+    private static void finished(String kind, String result) {
+        REGISTRY.counter("downloader_downloads_total", "Unduhan yang berakhir, per hasil.",
+                "kind", kind, "result", result).increment();
+    }
+
+    private static void failed(DownloadError error) {
+        REGISTRY.counter("downloader_failures_total", "Kegagalan unduhan per DownloadError.",
+                "error", error.name()).increment();
+    }
+
+    public static String toPrometheus() {
+        refreshBufferPool();
+        return REGISTRY.toPrometheus();
+    }
+
+    public static String toJson() {
+        refreshBufferPool();
+        return REGISTRY.toJson();
+    }
+
+    /**
+     * Menulis snapshot ke file; format JSON bila nama berakhiran {@code .json},
+     * selain itu format teks Prometheus.
+     */
+    public static void writeSnapshot(Path file) throws IOException {
+        boolean json = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json");
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.writeString(file, json ? toJson() : toPrometheus(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Mendaftarkan penulisan snapshot saat JVM berhenti bila
+     * {@code downloader.metricsFile} diisi.
+     */
+    public static void installShutdownExport() {
+        String target = System.getProperty("downloader.metricsFile");
+        if (target == null || target.isBlank()) {
+            return;
+        }
+        Path file = Paths.get(target);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                writeSnapshot(file);
+            } catch (IOException ex) {
+                System.err.println("Gagal menulis metrik ke " + file + ": " + ex.getMessage());
+            }
+        }, "metrics-export"));
+    }
+
+    // BufferPool menghitung sendiri; counter di registry disusulkan ke nilainya saat ekspor.
+    private static synchronized void refreshBufferPool() {
+        BufferPool.Stats stats = BufferPool.stats();
+        POOL_BYTES.set(stats.pooledBytes());
+        catchUp(POOL_HITS, stats.hits());
+        catchUp(POOL_MISSES, stats.misses());
+        for (Map.Entry<Integer, Long> entry : stats.acquiredBySize().entrySet()) {
+            catchUp(REGISTRY.counter("downloader_buffer_acquired_total", "Berapa kali tiap ukuran buffer dipilih.",
+                    "size", entry.getKey().toString()), entry.getValue());
+        }
+    }
+
+    private static void catchUp(MetricsRegistry.Counter counter, long total) {
+        long delta = total - counter.value();
+        if (delta > 0) {
+            counter.add(delta);
+        }
+    }
+
+    /**
+     * Membungkus observer {@link FileDownloader} agar hasil akhir, unduhan
+     * aktif dan throughput tercatat. Kejadian akhir hanya dihitung sekali.
+     */
+    static FileDownloader.DownloadObserver instrument(FileDownloader.DownloadObserver observer) {
+        return new FileDownloader.DownloadObserver() {
+            private final AtomicBoolean finished = new AtomicBoolean();
+            private volatile boolean started;
+            private volatile long startNanos;
+            private volatile long baseline = -1L;
+            private volatile long downloaded;
+
+            @Override
+            public void onStarted(long totalBytes) {
+                started = true;
+                startNanos = System.nanoTime();
+                active(KIND_FILE).increment();
+                observer.onStarted(totalBytes);
+            }
+
+            @Override
+            public void onProgress(long downloadedBytes, long totalBytes) {
+                if (baseline < 0) {
+                    baseline = downloadedBytes;
+                }
+                downloaded = downloadedBytes;
+                observer.onProgress(downloadedBytes, totalBytes);
+            }
+
+            @Override
+            public void onCompleted(Path file) {
+                if (end("completed")) {
+                    long elapsed = System.nanoTime() - startNanos;
+                    long bytes = downloaded - Math.max(0L, baseline);
+                    if (elapsed > 0 && bytes > 0) {
+                        THROUGHPUT.observe(bytes / (elapsed / (double) TimeUnit.SECONDS.toNanos(1)));
+                    }
+                }
+                observer.onCompleted(file);
+            }
+
+            @Override
+            public void onCancelled(Path partialFile) {
+                end("cancelled");
+                observer.onCancelled(partialFile);
+            }
+
+            @Override
+            public void onPaused(Path partialFile) {
+                end("paused");
+                observer.onPaused(partialFile);
+            }
+
+            @Override
+            public void onFailed(DownloadError error, Exception exception) {
+                if (end("failed")) {
+                    failed(error);
+                }
+                observer.onFailed(error, exception);
+            }
+
+            private boolean end(String result) {
+                if (!finished.compareAndSet(false, true)) {
+                    return false;
+                }
+                if (started) {
+                    active(KIND_FILE).decrement();
+                }
+                finished(KIND_FILE, result);
+                return true;
+            }
+        };
+    }
+
+    static YtDlpHelper.Observer instrument(YtDlpHelper.Observer observer) {
+        return new YtDlpHelper.Observer() {
+            private final AtomicBoolean finished = new AtomicBoolean();
+            private volatile boolean started;
+
+            @Override
+            public void onStarted() {
+                started = true;
+                active(KIND_YT_DLP).increment();
+                observer.onStarted();
+            }
+
+            @Override
+            public void onProgress(YtDlpHelper.Progress progress) {
+                observer.onProgress(progress);
+            }
+
+            @Override
+            public void onMessage(String line) {
+                observer.onMessage(line);
+            }
+
+            @Override
+            public void onTitleExtracted(String title) {
+                observer.onTitleExtracted(title);
+            }
+
+            @Override
+            public void onCompleted(Path producedFile) {
+                end("completed");
+                observer.onCompleted(producedFile);
+            }
+
+            @Override
+            public void onCancelled() {
+                end("cancelled");
+                observer.onCancelled();
+            }
+
+            @Override
+            public void onFailed(String message) {
+                end("failed");
+                observer.onFailed(message);
+            }
+
+            private void end(String result) {
+                if (finished.compareAndSet(false, true)) {
+                    if (started) {
+                        active(KIND_YT_DLP).decrement();
+                    }
+                    finished(KIND_YT_DLP, result);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,640 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Antrean unduhan dengan prioritas, batas unduhan bersamaan global, batas
+ * per host, dan giliran bergantian antar host pada prioritas yang sama.
+ * Menerima pekerjaan {@link FileDownloader}, {@link YtDlpHelper} dan
+ * {@link PlaylistDownloader}; satu playlist memakai satu slot dan membagi
+ * videonya sendiri ke beberapa proses yt-dlp.
+ * <p>
+ * Bila dibuat dengan {@code queueFile}, setiap pekerjaan yang belum selesai
+ * dicatat di log append-only sehingga bisa dipulihkan lewat
+ * {@link #restorePending()} setelah aplikasi dijalankan ulang. Pekerjaan yang
+ * dijeda tetap tercatat sampai dilanjutkan atau selesai.
+ */
+public final class DownloadScheduler {
+
+    public enum Priority {
+        HIGH,
+        NORMAL,
+        LOW
+    }
+
+    public enum Kind {
+        FILE,
+        YT_DLP,
+        PLAYLIST
+    }
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        CANCELLED,
+        PAUSED
+    }
+
+    /**
+     * Data pekerjaan yang disimpan ke antrean persisten. Untuk {@link Kind#FILE}
+     * {@code target} adalah file tujuan; untuk {@link Kind#YT_DLP} dan
+     * {@link Kind#PLAYLIST} adalah folder tujuan dan {@code baseName} boleh
+     * {@code null} (judul video dipakai).
+     */
+    public record JobSpec(String id, Kind kind, String url, Path target, String baseName, String format,
+            Priority priority) {
+    }
+
+    public interface Ticket {
+        JobSpec spec();
+
+        State state();
+
+        void cancel();
+
+        /** Menjeda unduhan file yang sedang berjalan; journal-nya disimpan untuk dilanjutkan. */
+        void pause();
+
+        /** Mengantrekan ulang pekerjaan yang dijeda; tidak berpengaruh pada state lain. */
+        void resume();
+    }
+
+    private static final AtomicLong ID_SEQUENCE = new AtomicLong();
+    private static final int LOG_COMPACTION_THRESHOLD = 1_000;
+
+    private final int maxConcurrent;
+    private final int maxPerHost;
+    private final Path queueFile;
+    private final Map<Priority, LinkedHashMap<String, ArrayDeque<Job>>> queues = new EnumMap<>(Priority.class);
+    private final Map<String, Integer> runningPerHost = new HashMap<>();
+    private final Map<String, Job> liveJobs = new LinkedHashMap<>();
+    private final Map<String, Job> pausedJobs = new LinkedHashMap<>();
+    private int running;
+    private int queued;
+    private BufferedWriter queueLog;
+    private int logRecords;
+
+    public DownloadScheduler(int maxConcurrent, int maxPerHost, Path queueFile) {
+        if (maxConcurrent < 1 || maxPerHost < 1) {
+            throw new IllegalArgumentException("limits must be at least 1");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.maxPerHost = maxPerHost;
+        this.queueFile = queueFile;
+        for (Priority priority : Priority.values()) {
+            queues.put(priority, new LinkedHashMap<>());
+        }
+    }
+
+    public Ticket submitFile(String url, Path destination, String displayName, String format, Priority priority,
+            FileDownloader.DownloadObserver observer) {
+        Objects.requireNonNull(observer, "observer");
+        JobSpec spec = new JobSpec(nextId(), Kind.FILE, url, destination, displayName, format, priority);
+        return enqueue(new Job(spec, observer, null, null));
+    }
+
+    public Ticket submitYtDlp(String url, Path outDir, String baseName, String format, Priority priority,
+            YtDlpHelper.Observer observer) {
+        Objects.requireNonNull(observer, "observer");
+        JobSpec spec = new JobSpec(nextId(), Kind.YT_DLP, url, outDir, baseName, format, priority);
+        return enqueue(new Job(spec, null, observer, null));
+    }
+
+    public Ticket submitPlaylist(String url, Path outDir, String format, Priority priority,
+            PlaylistDownloader.Observer observer) {
+        Objects.requireNonNull(observer, "observer");
+        JobSpec spec = new JobSpec(nextId(), Kind.PLAYLIST, url, outDir, null, format, priority);
+        return enqueue(new Job(spec, null, null, observer));
+    }
+
+    /**
+     * Membaca pekerjaan yang belum selesai dari sesi sebelumnya dan mengosongkan
+     * log. Pemanggil mengirim ulang setiap pekerjaan dengan observer-nya sendiri.
+     */
+    public synchronized List<JobSpec> restorePending() {
+        Map<String, JobSpec> fromLog = readQueueLog();
+        fromLog.keySet().removeAll(liveJobs.keySet());
+        fromLog.keySet().removeAll(pausedJobs.keySet());
+        compactLog();
+        return new ArrayList<>(fromLog.values());
+    }
+
+    public synchronized int queuedCount() {
+        return queued;
+    }
+
+    public synchronized int runningCount() {
+        return running;
+    }
+
+    private Ticket enqueue(Job job) {
+        synchronized (this) {
+            addToQueue(job);
+            appendToLog("ADD", job.spec);
+        }
+        dispatch();
+        return job;
+    }
+
+    // Record ADD pekerjaan yang dijeda masih ada di log, jadi tidak ditulis ulang.
+    private void requeue(Job job) {
+        synchronized (this) {
+            if (pausedJobs.remove(job.spec.id()) == null) {
+                return;
+            }
+            job.reset();
+            addToQueue(job);
+        }
+        dispatch();
+    }
+
+    private void addToQueue(Job job) {
+        liveJobs.put(job.spec.id(), job);
+        queues.get(job.spec.priority()).computeIfAbsent(job.host, key -> new ArrayDeque<>()).addLast(job);
+        queued++;
+        DownloadMetrics.queueDepthChanged(1);
+    }
+
+    private void dispatch() {
+        List<Job> toStart = new ArrayList<>();
+        synchronized (this) {
+            Job next;
+            while (running < maxConcurrent && (next = pollNext()) != null) {
+                next.state = State.RUNNING;
+                running++;
+                queued--;
+                DownloadMetrics.queueDepthChanged(-1);
+                runningPerHost.merge(next.host, 1, Integer::sum);
+                toStart.add(next);
+            }
+        }
+
+        for (Job job : toStart) {
+            job.start();
+        }
+    }
+
+    // Ambil pekerjaan berprioritas tertinggi; dalam satu prioritas host dilayani bergiliran.
+    private Job pollNext() {
+        for (LinkedHashMap<String, ArrayDeque<Job>> byHost : queues.values()) {
+            Iterator<Map.Entry<String, ArrayDeque<Job>>> iterator = byHost.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, ArrayDeque<Job>> entry = iterator.next();
+                if (runningPerHost.getOrDefault(entry.getKey(), 0) >= maxPerHost) {
+                    continue;
+                }
+                ArrayDeque<Job> hostQueue = entry.getValue();
+                Job job = hostQueue.pollFirst();
+                iterator.remove();
+                if (!hostQueue.isEmpty()) {
+                    // Pindahkan host ke akhir giliran.
+                    byHost.put(entry.getKey(), hostQueue);
+                }
+                return job;
+            }
+        }
+        return null;
+    }
+
+    private void finished(Job job, State finalState) {
+        synchronized (this) {
+            boolean wasRunning = job.state == State.RUNNING;
+            job.state = finalState;
+            liveJobs.remove(job.spec.id());
+            if (wasRunning) {
+                running--;
+                runningPerHost.computeIfPresent(job.host, (host, count) -> count > 1 ? count - 1 : null);
+            }
+            if (finalState == State.PAUSED) {
+                pausedJobs.put(job.spec.id(), job);
+            } else {
+                appendToLog("DONE", job.spec);
+            }
+            if (logRecords > LOG_COMPACTION_THRESHOLD && logRecords > 4 * (liveJobs.size() + pausedJobs.size())) {
+                compactLog();
+            }
+        }
+        dispatch();
+    }
+
+    private boolean discardPaused(Job job) {
+        synchronized (this) {
+            if (pausedJobs.remove(job.spec.id()) == null) {
+                return false;
+            }
+            job.state = State.CANCELLED;
+            appendToLog("DONE", job.spec);
+        }
+        return true;
+    }
+
+    private boolean removeQueued(Job job) {
+        synchronized (this) {
+            if (job.state != State.QUEUED) {
+                return false;
+            }
+            LinkedHashMap<String, ArrayDeque<Job>> byHost = queues.get(job.spec.priority());
+            ArrayDeque<Job> hostQueue = byHost.get(job.host);
+            if (hostQueue == null || !hostQueue.remove(job)) {
+                return false;
+            }
+            if (hostQueue.isEmpty()) {
+                byHost.remove(job.host);
+            }
+            queued--;
+            DownloadMetrics.queueDepthChanged(-1);
+        }
+        return true;
+    }
+
+    private static String nextId() {
+        return Long.toString(System.currentTimeMillis(), 36) + "-" + ID_SEQUENCE.incrementAndGet();
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : "";
+        } catch (IllegalArgumentException ex) {
+            return "";
+        }
+    }
+
+    private void appendToLog(String op, JobSpec spec) {
+        if (queueFile == null) {
+            return;
+        }
+        try {
+            if (queueLog == null) {
+                if (queueFile.getParent() != null) {
+                    Files.createDirectories(queueFile.getParent());
+                }
+                queueLog = Files.newBufferedWriter(queueFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND);
+            }
+            writeRecord(op, spec);
+            queueLog.flush();
+        } catch (IOException ex) {
+            System.err.println("Gagal menulis antrean unduhan: " + ex.getMessage());
+        }
+    }
+
+    private void writeRecord(String op, JobSpec spec) throws IOException {
+        if ("DONE".equals(op)) {
+            queueLog.write("DONE\t" + escape(spec.id()));
+        } else {
+            queueLog.write(String.join("\t", "ADD", escape(spec.id()), spec.kind().name(),
+                    spec.priority().name(), escape(spec.url()), escape(spec.target().toString()),
+                    escape(spec.baseName()), escape(spec.format())));
+        }
+        queueLog.newLine();
+        logRecords++;
+    }
+
+    private Map<String, JobSpec> readQueueLog() {
+        Map<String, JobSpec> pending = new LinkedHashMap<>();
+        if (queueFile == null || !Files.isRegularFile(queueFile)) {
+            return pending;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(queueFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length == 2 && "DONE".equals(fields[0])) {
+                    pending.remove(unescape(fields[1]));
+                } else if (fields.length == 8 && "ADD".equals(fields[0])) {
+                    try {
+                        JobSpec spec = new JobSpec(unescape(fields[1]), Kind.valueOf(fields[2]),
+                                unescape(fields[4]), Paths.get(unescape(fields[5])), unescape(fields[6]),
+                                unescape(fields[7]), Priority.valueOf(fields[3]));
+                        pending.put(spec.id(), spec);
+                    } catch (RuntimeException ignored) {
+                        // Baris rusak (misalnya terpotong saat crash) dilewati.
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            System.err.println("Gagal membaca antrean unduhan: " + ex.getMessage());
+        }
+        return pending;
+    }
+
+    // Tulis ulang log hanya dengan pekerjaan yang masih hidup atau dijeda.
+    private void compactLog() {
+        if (queueFile == null) {
+            return;
+        }
+        closeQueueLog();
+        Path temp = queueFile.resolveSibling(queueFile.getFileName() + ".tmp");
+        try {
+            if (queueFile.getParent() != null) {
+                Files.createDirectories(queueFile.getParent());
+            }
+            try {
+                queueLog = Files.newBufferedWriter(temp, StandardCharsets.UTF_8);
+                logRecords = 0;
+                for (Job job : liveJobs.values()) {
+                    writeRecord("ADD", job.spec);
+                }
+                for (Job job : pausedJobs.values()) {
+                    writeRecord("ADD", job.spec);
+                }
+            } finally {
+                closeQueueLog();
+            }
+            Files.move(temp, queueFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            System.err.println("Gagal memadatkan antrean unduhan: " + ex.getMessage());
+        }
+    }
+
+    private void closeQueueLog() {
+        if (queueLog != null) {
+            try {
+                queueLog.close();
+            } catch (IOException ignored) {
+            }
+            queueLog = null;
+        }
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String value) {
+        if (value.isEmpty()) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                sb.append(switch (next) {
+                    case 't' -> '\t';
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> next;
+                });
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private final class Job implements Ticket {
+        private final JobSpec spec;
+        private final String host;
+        private final FileDownloader.DownloadObserver fileObserver;
+        private final YtDlpHelper.Observer ytObserver;
+        private final PlaylistDownloader.Observer playlistObserver;
+        private final AtomicBoolean terminal = new AtomicBoolean(false);
+        private volatile State state = State.QUEUED;
+        private volatile boolean cancelRequested;
+        private volatile FileDownloader.DownloadHandle fileHandle;
+        private volatile YtDlpHelper.Handle ytHandle;
+
+        Job(JobSpec spec, FileDownloader.DownloadObserver fileObserver, YtDlpHelper.Observer ytObserver,
+                PlaylistDownloader.Observer playlistObserver) {
+            this.spec = spec;
+            this.host = hostOf(spec.url());
+            this.fileObserver = fileObserver;
+            this.ytObserver = ytObserver;
+            this.playlistObserver = playlistObserver;
+        }
+
+        @Override
+        public JobSpec spec() {
+            return spec;
+        }
+
+        @Override
+        public State state() {
+            return state;
+        }
+
+        @Override
+        public void cancel() {
+            cancelRequested = true;
+            if (removeQueued(this)) {
+                finish(State.CANCELLED, this::notifyCancelled);
+                return;
+            }
+            if (discardPaused(this)) {
+                notifyCancelled();
+                return;
+            }
+
+            FileDownloader.DownloadHandle file = fileHandle;
+            if (file != null) {
+                file.cancel();
+            }
+            YtDlpHelper.Handle yt = ytHandle;
+            if (yt != null) {
+                yt.cancel();
+            }
+        }
+
+        @Override
+        public void pause() {
+            FileDownloader.DownloadHandle file = fileHandle;
+            if (file != null) {
+                file.pause();
+            }
+        }
+
+        @Override
+        public void resume() {
+            if (state == State.PAUSED) {
+                requeue(this);
+            }
+        }
+
+        void reset() {
+            terminal.set(false);
+            cancelRequested = false;
+            fileHandle = null;
+            ytHandle = null;
+            state = State.QUEUED;
+        }
+
+        void start() {
+            try {
+                if (spec.kind() == Kind.FILE) {
+                    fileHandle = FileDownloader.download(spec.url(), spec.target(), new FileObserver());
+                } else if (spec.kind() == Kind.PLAYLIST) {
+                    ytHandle = PlaylistDownloader.download(spec.url(), spec.target(), spec.format(),
+                            new PlaylistObserver());
+                } else if ("mp3".equalsIgnoreCase(spec.format())) {
+                    ytHandle = YtDlpHelper.downloadMp3(spec.url(), spec.target(), spec.baseName(), new YtObserver());
+                } else {
+                    ytHandle = YtDlpHelper.downloadMp4(spec.url(), spec.target(), spec.baseName(), new YtObserver());
+                }
+            } catch (RuntimeException ex) {
+                finish(State.FAILED, () -> {
+                    if (fileObserver != null) {
+                        fileObserver.onFailed(DownloadError.GENERAL_FAILURE, ex);
+                    } else if (ytObserver != null) {
+                        ytObserver.onFailed("Gagal memulai unduhan: " + ex.getMessage());
+                    } else {
+                        playlistObserver.onFailed("Gagal memulai playlist: " + ex.getMessage());
+                    }
+                });
+                return;
+            }
+
+            // Pembatalan yang datang saat handle belum tersedia diteruskan sekarang.
+            if (cancelRequested) {
+                cancel();
+            }
+        }
+
+        private void notifyCancelled() {
+            if (fileObserver != null) {
+                fileObserver.onCancelled(spec.target());
+            } else if (ytObserver != null) {
+                ytObserver.onCancelled();
+            } else {
+                playlistObserver.onCancelled();
+            }
+        }
+
+        // Observer diberi tahu lebih dulu supaya kabar selesai mendahului mulainya pekerjaan berikutnya.
+        private void finish(State finalState, Runnable notification) {
+            if (terminal.compareAndSet(false, true)) {
+                try {
+                    notification.run();
+                } finally {
+                    finished(this, finalState);
+                }
+            }
+        }
+
+        private final class FileObserver implements FileDownloader.DownloadObserver {
+            @Override
+            public void onStarted(long totalBytes) {
+                fileObserver.onStarted(totalBytes);
+            }
+
+            @Override
+            public void onProgress(long downloadedBytes, long totalBytes) {
+                fileObserver.onProgress(downloadedBytes, totalBytes);
+            }
+
+            @Override
+            public void onCompleted(Path file) {
+                finish(State.COMPLETED, () -> fileObserver.onCompleted(file));
+            }
+
+            @Override
+            public void onCancelled(Path partialFile) {
+                finish(State.CANCELLED, () -> fileObserver.onCancelled(partialFile));
+            }
+
+            @Override
+            public void onFailed(DownloadError error, Exception exception) {
+                finish(State.FAILED, () -> fileObserver.onFailed(error, exception));
+            }
+
+            @Override
+            public void onPaused(Path partialFile) {
+                finish(State.PAUSED, () -> fileObserver.onPaused(partialFile));
+            }
+        }
+
+        private final class YtObserver implements YtDlpHelper.Observer {
+            @Override
+            public void onStarted() {
+                ytObserver.onStarted();
+            }
+
+            @Override
+            public void onProgress(YtDlpHelper.Progress progress) {
+                ytObserver.onProgress(progress);
+            }
+
+            @Override
+            public void onMessage(String line) {
+                ytObserver.onMessage(line);
+            }
+
+            @Override
+            public void onTitleExtracted(String title) {
+                ytObserver.onTitleExtracted(title);
+            }
+
+            @Override
+            public void onCompleted(Path producedFile) {
+                finish(State.COMPLETED, () -> ytObserver.onCompleted(producedFile));
+            }
+
+            @Override
+            public void onCancelled() {
+                finish(State.CANCELLED, ytObserver::onCancelled);
+            }
+
+            @Override
+            public void onFailed(String message) {
+                finish(State.FAILED, () -> ytObserver.onFailed(message));
+            }
+        }
+
+        private final class PlaylistObserver implements PlaylistDownloader.Observer {
+            @Override
+            public void onExpanded(List<PlaylistDownloader.Entry> entries) {
+                playlistObserver.onExpanded(entries);
+            }
+
+            @Override
+            public void onProgress(int finishedEntries, int totalEntries, int percent) {
+                playlistObserver.onProgress(finishedEntries, totalEntries, percent);
+            }
+
+            @Override
+            public void onEntryFinished(PlaylistDownloader.EntryResult result) {
+                playlistObserver.onEntryFinished(result);
+            }
+
+            @Override
+            public void onCompleted(List<PlaylistDownloader.EntryResult> results) {
+                finish(State.COMPLETED, () -> playlistObserver.onCompleted(results));
+            }
+
+            @Override
+            public void onCancelled() {
+                finish(State.CANCELLED, playlistObserver::onCancelled);
+            }
+
+            @Override
+            public void onFailed(String message) {
+                finish(State.FAILED, () -> playlistObserver.onFailed(message));
+            }
+        }
+    }
+}
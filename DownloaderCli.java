@@ -0,0 +1,472 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Mode baris perintah tanpa Swing untuk unduhan batch (container, cron,
+ * server tanpa X11). Membaca daftar URL dari file (satu per baris, boleh
+ * diikuti nama file; baris kosong dan {@code #} diabaikan), menjalankannya
+ * lewat {@link DownloadScheduler}, lalu menulis event JSON per baris ke
+ * stdout. URL playlist/channel YouTube diunduh per video lewat
+ * {@link PlaylistDownloader} dengan event {@code entry} untuk tiap video.
+ * Pesan untuk manusia ditulis ke stderr.
+ * <p>
+ * Kode keluar: {@code 0} semua berhasil, {@code 1} ada yang gagal atau
+ * dibatalkan, {@code 2} argumen tidak valid.
+ */
+public final class DownloaderCli {
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Penggunaan: java Main [opsi] <file-daftar-url | ->",
+            "  -o, --output DIR        folder tujuan (default: downloads)",
+            "  -f, --format FMT        mp4/mp3 untuk yt-dlp, ekstensi file untuk URL lain",
+            "  -j, --concurrency N     unduhan bersamaan (default: 4)",
+            "      --per-host N        unduhan bersamaan per host (default: 2)",
+            "      --profile NAMA      profil yt-dlp: default, high-throughput, low-memory",
+            "      --no-progress       tidak menulis event progress",
+            "  -h, --help              tampilkan bantuan ini");
+
+    private static final PrintStream OUT = new PrintStream(System.out, true, StandardCharsets.UTF_8);
+
+    private DownloaderCli() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    static int run(String[] args) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+        if (options == null) {
+            System.err.println(USAGE);
+            return 0;
+        }
+
+        List<Request> requests;
+        try {
+            requests = readRequests(options.listFile);
+            Files.createDirectories(options.outputDir);
+        } catch (IOException ex) {
+            System.err.println("Gagal membaca daftar URL: " + ex.getMessage());
+            return 2;
+        }
+        if (options.profile != null) {
+            System.setProperty("downloader.ytDlpProfile", options.profile);
+        }
+
+        DownloadMetrics.installShutdownExport();
+        return new Batch(options, requests).execute();
+    }
+
+    private record Request(int index, String url, String name) {
+    }
+
+    private static List<Request> readRequests(String listFile) throws IOException {
+        List<Request> requests = new ArrayList<>();
+        try (BufferedReader reader = "-".equals(listFile)
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(listFile), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\\s+", 2);
+                requests.add(new Request(requests.size() + 1, parts[0], parts.length > 1 ? parts[1] : null));
+            }
+        }
+        return requests;
+    }
+
+    private static final class Options {
+        String listFile;
+        Path outputDir = Paths.get("downloads");
+        String format;
+        int concurrency = 4;
+        int perHost = 2;
+        String profile;
+        boolean progress = true;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "-h", "--help" -> {
+                        return null;
+                    }
+                    case "-o", "--output" -> options.outputDir = toPath(value(args, ++i, arg));
+                    case "-f", "--format" -> options.format = value(args, ++i, arg).toLowerCase(Locale.ROOT);
+                    case "-j", "--concurrency" -> options.concurrency = positive(value(args, ++i, arg), arg);
+                    case "--per-host" -> options.perHost = positive(value(args, ++i, arg), arg);
+                    case "--profile" -> {
+                        options.profile = value(args, ++i, arg);
+                        YtDlpOptions.profile(options.profile);
+                    }
+                    case "--no-progress" -> options.progress = false;
+                    default -> {
+                        if (arg.startsWith("-") && !"-".equals(arg)) {
+                            throw new IllegalArgumentException("Opsi tidak dikenal: " + arg);
+                        }
+                        if (options.listFile != null) {
+                            throw new IllegalArgumentException("Hanya satu file daftar URL yang diterima.");
+                        }
+                        options.listFile = arg;
+                    }
+                }
+            }
+            if (options.listFile == null) {
+                throw new IllegalArgumentException("File daftar URL belum diisi.");
+            }
+            return options;
+        }
+
+        private static String value(String[] args, int index, String option) {
+            if (index >= args.length) {
+                throw new IllegalArgumentException("Opsi " + option + " membutuhkan nilai.");
+            }
+            return args[index];
+        }
+
+        private static int positive(String value, String option) {
+            try {
+                int parsed = Integer.parseInt(value);
+                if (parsed >= 1) {
+                    return parsed;
+                }
+            } catch (NumberFormatException ignored) {
+            }
+            throw new IllegalArgumentException("Nilai " + option + " harus bilangan bulat >= 1: " + value);
+        }
+
+        private static Path toPath(String value) {
+            try {
+                return Paths.get(value);
+            } catch (InvalidPathException ex) {
+                throw new IllegalArgumentException("Folder tujuan tidak valid: " + value);
+            }
+        }
+    }
+
+    private static final class Batch {
+        private final Options options;
+        private final List<Request> requests;
+        private final DownloadScheduler scheduler;
+        private final CountDownLatch remaining;
+        private final AtomicInteger completed = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicInteger cancelled = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private final List<DownloadScheduler.Ticket> tickets = new ArrayList<>();
+
+        Batch(Options options, List<Request> requests) {
+            this.options = options;
+            this.requests = requests;
+            this.scheduler = new DownloadScheduler(options.concurrency, Math.min(options.perHost,
+                    options.concurrency), null);
+            this.remaining = new CountDownLatch(requests.size());
+        }
+
+        int execute() {
+            long start = System.nanoTime();
+            Thread shutdownHook = new Thread(this::cancelAll, "cli-cancel");
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+            for (Request request : requests) {
+                submit(request);
+            }
+            try {
+                remaining.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                cancelAll();
+            }
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException ignored) {
+                // JVM sudah dalam proses shutdown.
+            }
+
+            emit("{\"event\":\"summary\",\"total\":" + requests.size()
+                    + ",\"completed\":" + completed.get()
+                    + ",\"skipped\":" + skipped.get()
+                    + ",\"failed\":" + failed.get()
+                    + ",\"cancelled\":" + cancelled.get()
+                    + ",\"elapsedMs\":" + (System.nanoTime() - start) / 1_000_000 + "}");
+            return failed.get() == 0 && cancelled.get() == 0 ? 0 : 1;
+        }
+
+        private void submit(Request request) {
+            if (PlaylistDownloader.isPlaylist(request.url())) {
+                String format = "mp3".equals(options.format) ? "mp3" : "mp4";
+                emit(event("queued", request) + ",\"kind\":\"playlist\",\"target\":"
+                        + Json.quote(options.outputDir.toString()) + "}");
+                track(scheduler.submitPlaylist(request.url(), options.outputDir, format,
+                        DownloadScheduler.Priority.NORMAL, new PlaylistObserver(request)));
+                return;
+            }
+            boolean ytDlp = YtDlpHelper.isYouTube(request.url());
+            if (ytDlp) {
+                String format = "mp3".equals(options.format) ? "mp3" : "mp4";
+                emit(event("queued", request) + ",\"kind\":\"yt-dlp\",\"target\":"
+                        + Json.quote(options.outputDir.toString()) + "}");
+                track(scheduler.submitYtDlp(request.url(), options.outputDir, request.name(), format,
+                        DownloadScheduler.Priority.NORMAL, new YtObserver(request)));
+                return;
+            }
+
+            Path destination;
+            try {
+                destination = options.outputDir.resolve(fileName(request));
+            } catch (InvalidPathException ex) {
+                finished(request, failed, event("failed", request)
+                        + ",\"error\":\"GENERAL_FAILURE\",\"message\":"
+                        + Json.quote("Nama file tidak valid: " + ex.getInput()) + "}");
+                return;
+            }
+            if (!destination.toAbsolutePath().normalize()
+                    .startsWith(options.outputDir.toAbsolutePath().normalize())) {
+                finished(request, failed, event("failed", request)
+                        + ",\"error\":\"GENERAL_FAILURE\",\"message\":"
+                        + Json.quote("Nama file keluar dari direktori output: " + destination) + "}");
+                return;
+            }
+            if (Files.exists(destination)) {
+                finished(request, skipped, event("skipped", request) + ",\"file\":"
+                        + Json.quote(destination.toString()) + "}");
+                return;
+            }
+            emit(event("queued", request) + ",\"kind\":\"file\",\"target\":"
+                    + Json.quote(destination.toString()) + "}");
+            track(scheduler.submitFile(request.url(), destination, request.name(), options.format,
+                    DownloadScheduler.Priority.NORMAL, new FileObserver(request)));
+        }
+
+        private synchronized void track(DownloadScheduler.Ticket ticket) {
+            tickets.add(ticket);
+        }
+
+        private void cancelAll() {
+            List<DownloadScheduler.Ticket> snapshot;
+            synchronized (this) {
+                snapshot = new ArrayList<>(tickets);
+            }
+            snapshot.forEach(DownloadScheduler.Ticket::cancel);
+        }
+
+        // Nama dari daftar URL, atau segmen terakhir path URL; ekstensi dari --format bila belum ada.
+        private String fileName(Request request) {
+            String name = request.name();
+            if (name == null) {
+                try {
+                    // getPath() sudah mendekode percent-encoding; jangan didekode lagi.
+                    String path = URI.create(request.url()).getPath();
+                    if (path != null) {
+                        name = path.substring(path.lastIndexOf('/') + 1);
+                    }
+                } catch (IllegalArgumentException ignored) {
+                }
+                if (name == null || name.isBlank() || name.contains("\\") || name.equals("..")
+                        || name.equals(".")) {
+                    name = "download-" + request.index();
+                }
+            }
+            if (options.format != null && !options.format.isBlank() && name.lastIndexOf('.') <= 0) {
+                name = name + "." + options.format;
+            }
+            return name;
+        }
+
+        private void finished(Request request, AtomicInteger counter, String json) {
+            counter.incrementAndGet();
+            emit(json);
+            remaining.countDown();
+        }
+
+        private void progress(String json) {
+            if (options.progress) {
+                emit(json);
+            }
+        }
+
+        private final class FileObserver implements FileDownloader.DownloadObserver {
+            private final Request request;
+            private volatile long startNanos;
+
+            FileObserver(Request request) {
+                this.request = request;
+            }
+
+            @Override
+            public void onStarted(long totalBytes) {
+                startNanos = System.nanoTime();
+                emit(event("started", request) + ",\"total\":" + totalBytes + "}");
+            }
+
+            @Override
+            public void onProgress(long downloadedBytes, long totalBytes) {
+                double seconds = (System.nanoTime() - startNanos) / 1e9;
+                progress(event("progress", request)
+                        + ",\"downloaded\":" + downloadedBytes
+                        + ",\"total\":" + totalBytes
+                        + ",\"percent\":" + (totalBytes > 0 ? downloadedBytes * 100 / totalBytes : -1)
+                        + ",\"bytesPerSecond\":" + (seconds > 0 ? Math.round(downloadedBytes / seconds) : 0) + "}");
+            }
+
+            @Override
+            public void onCompleted(Path file) {
+                finished(request, completed, event("completed", request) + ",\"file\":"
+                        + Json.quote(file.toString()) + "}");
+            }
+
+            @Override
+            public void onCancelled(Path partialFile) {
+                finished(request, cancelled, event("cancelled", request) + "}");
+            }
+
+            @Override
+            public void onFailed(DownloadError error, Exception exception) {
+                finished(request, failed, event("failed", request) + ",\"error\":" + Json.quote(error.name())
+                        + ",\"message\":" + Json.quote(exception.getMessage()) + "}");
+            }
+        }
+
+        private final class YtObserver implements YtDlpHelper.Observer {
+            private final Request request;
+
+            YtObserver(Request request) {
+                this.request = request;
+            }
+
+            @Override
+            public void onStarted() {
+                emit(event("started", request) + ",\"total\":-1}");
+            }
+
+            @Override
+            public void onProgress(YtDlpHelper.Progress progress) {
+                progress(event("progress", request)
+                        + ",\"downloaded\":" + progress.downloadedBytes()
+                        + ",\"total\":" + progress.totalBytes()
+                        + ",\"percent\":" + progress.percent()
+                        + ",\"bytesPerSecond\":" + Math.round(Math.max(0, progress.bytesPerSecond()))
+                        + ",\"etaSeconds\":" + progress.etaSeconds() + "}");
+            }
+
+            @Override
+            public void onMessage(String line) {
+            }
+
+            @Override
+            public void onTitleExtracted(String title) {
+                emit(event("title", request) + ",\"title\":" + Json.quote(title) + "}");
+            }
+
+            @Override
+            public void onCompleted(Path producedFile) {
+                finished(request, completed, event("completed", request) + ",\"file\":"
+                        + Json.quote(producedFile != null ? producedFile.toString() : null) + "}");
+            }
+
+            @Override
+            public void onCancelled() {
+                finished(request, cancelled, event("cancelled", request) + "}");
+            }
+
+            @Override
+            public void onFailed(String message) {
+                finished(request, failed, event("failed", request)
+                        + ",\"error\":\"YT_DLP\",\"message\":" + Json.quote(message) + "}");
+            }
+        }
+
+        private final class PlaylistObserver implements PlaylistDownloader.Observer {
+            private final Request request;
+
+            PlaylistObserver(Request request) {
+                this.request = request;
+            }
+
+            @Override
+            public void onExpanded(List<PlaylistDownloader.Entry> entries) {
+                emit(event("started", request) + ",\"entries\":" + entries.size() + "}");
+            }
+
+            @Override
+            public void onProgress(int finishedEntries, int totalEntries, int percent) {
+                progress(event("progress", request)
+                        + ",\"finishedEntries\":" + finishedEntries
+                        + ",\"totalEntries\":" + totalEntries
+                        + ",\"percent\":" + percent + "}");
+            }
+
+            @Override
+            public void onEntryFinished(PlaylistDownloader.EntryResult result) {
+                PlaylistDownloader.Entry entry = result.entry();
+                emit(event("entry", request)
+                        + ",\"entry\":" + entry.index()
+                        + ",\"entryUrl\":" + Json.quote(entry.url())
+                        + ",\"title\":" + Json.quote(entry.title())
+                        + (result.succeeded()
+                                ? ",\"status\":\"completed\",\"file\":" + Json.quote(
+                                        result.producedFile() != null ? result.producedFile().toString() : null)
+                                : ",\"status\":\"failed\",\"message\":" + Json.quote(result.error()))
+                        + "}");
+            }
+
+            @Override
+            public void onCompleted(List<PlaylistDownloader.EntryResult> results) {
+                long failures = results.stream().filter(result -> !result.succeeded()).count();
+                if (failures == 0) {
+                    finished(request, completed, event("completed", request) + ",\"entries\":" + results.size() + "}");
+                } else {
+                    finished(request, failed, event("failed", request) + ",\"error\":\"YT_DLP\",\"message\":"
+                            + Json.quote(failures + " dari " + results.size() + " video gagal diunduh.")
+                            + ",\"entries\":" + results.size() + "}");
+                }
+            }
+
+            @Override
+            public void onCancelled() {
+                finished(request, cancelled, event("cancelled", request) + "}");
+            }
+
+            @Override
+            public void onFailed(String message) {
+                finished(request, failed, event("failed", request)
+                        + ",\"error\":\"YT_DLP\",\"message\":" + Json.quote(message) + "}");
+            }
+        }
+    }
+
+    // Awal objek event tanpa kurung tutup; pemanggil menambahkan field lain.
+    private static String event(String type, Request request) {
+        return "{\"event\":\"" + type + "\",\"index\":" + request.index() + ",\"url\":" + Json.quote(request.url());
+    }
+
+    private static void emit(String json) {
+        synchronized (OUT) {
+            OUT.println(json);
+        }
+    }
+}
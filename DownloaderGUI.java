@@ -2,8 +2,10 @@
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.LineBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.TableModelEvent;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
@@ -14,10 +16,15 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.InvalidPathException;
-import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
 
 public class DownloaderGUI extends JFrame {
 
@@ -38,8 +45,11 @@ public class DownloaderGUI extends JFrame {
     private static final Font LABEL_FONT = new Font("Segoe UI", Font.BOLD, 14);
     private static final Font BASE_FONT = new Font("Segoe UI", Font.PLAIN, 14);
     private static final DateTimeFormatter HISTORY_FORMATTER = DateTimeFormatter.ofPattern("dd MMM yyyy HH:mm");
-    private YtDlpHelper.Handle currentYtHandle = null;
-    private boolean usingYtDlp = false;
+    private static final Path QUEUE_FILE = Paths.get("data", "queue.log");
+    private static final int MAX_CONCURRENT = Math.max(1, Integer.getInteger("downloader.maxConcurrent", 3));
+    private static final int MAX_PER_HOST = Math.max(1, Integer.getInteger("downloader.maxPerHost", 2));
+    private static final Path HISTORY_DIR = Paths.get("data");
+    private static final ExecutorService HISTORY_EXECUTOR = DownloadExecutors.newBoundedExecutor("history");
 
     static {
         try {
@@ -54,7 +64,7 @@ public class DownloaderGUI extends JFrame {
     private JTextField nameField;
     private JComboBox<String> formatBox;
     private JButton downloadButton;
-    private DefaultTableModel historyTableModel;
+    private HistoryTableModel historyTableModel;
     private JTable historyTable;
     private JProgressBar progressBar;
     private JLabel progressLabel;
@@ -63,33 +73,28 @@ public class DownloaderGUI extends JFrame {
     private JButton openFileButton;
     private JButton openFolderButton;
     private JPanel progressPanel;
-    private FileDownloader.DownloadHandle currentDownload;
-    private long lastTotalBytes = -1L;
-    private String currentDownloadName;
-    private String currentDownloadFormat;
-    private Path currentDestination;
-
-    // Adapter class untuk YtDlpHelper.Handle
-    private static class YtDlpDownloadHandle implements FileDownloader.DownloadHandle {
-        private final YtDlpHelper.Handle ytHandle;
-
-        public YtDlpDownloadHandle(YtDlpHelper.Handle ytHandle) {
-            this.ytHandle = ytHandle;
-        }
-
-        @Override
-        public void cancel() {
-            ytHandle.cancel();
-        }
-
-        @Override
-        public boolean isDone() {
-            return ytHandle.isDone();
-        }
-
-        @Override
-        public boolean isCompletedSuccessfully() {
-            return ytHandle.isDone(); // YtDlpHelper doesn't track success separately
+    private final DownloadScheduler scheduler = new DownloadScheduler(MAX_CONCURRENT,
+            Math.min(MAX_PER_HOST, MAX_CONCURRENT), QUEUE_FILE);
+    // Panel progres menampilkan satu unduhan; sisanya tetap berjalan dan menggantikannya saat selesai.
+    private ActiveDownload activeDownload;
+    private final Set<ActiveDownload> runningDownloads = new LinkedHashSet<>();
+
+    // State satu unduhan; unduhan yang masih di antrean punya instance sendiri.
+    private static final class ActiveDownload {
+        private final String url;
+        private final String format;
+        private final Path destination;
+        private final Path directory;
+        private String name;
+        private long lastTotalBytes = -1L;
+        private DownloadScheduler.Ticket ticket;
+
+        ActiveDownload(String url, String name, String format, Path destination, Path directory) {
+            this.url = url;
+            this.name = name;
+            this.format = format;
+            this.destination = destination;
+            this.directory = directory;
         }
     }
 
@@ -159,9 +164,16 @@ public class DownloaderGUI extends JFrame {
         styleHistoryActionButton(openFolderButton);
         configureProgressComponents();
 
-        historyTableModel = createHistoryTableModel();
+        historyTableModel = new HistoryTableModel(openHistoryStore(), HISTORY_EXECUTOR, HISTORY_FORMATTER);
         historyTable = createHistoryTable(historyTableModel);
-        seedHistoryPreview();
+        historyTableModel.addTableModelListener(event -> {
+            if (event.getType() == TableModelEvent.INSERT && event.getLastRow() == historyTableModel.getRowCount() - 1) {
+                int lastRow = event.getLastRow();
+                historyTable.getSelectionModel().setSelectionInterval(lastRow, lastRow);
+                historyTable.scrollRectToVisible(historyTable.getCellRect(lastRow, 0, true));
+                updateHistoryActionState();
+            }
+        });
         historyTable.getSelectionModel().addListSelectionListener(event -> {
             if (!event.getValueIsAdjusting()) {
                 updateHistoryActionState();
@@ -217,6 +229,7 @@ public class DownloaderGUI extends JFrame {
         });
 
         updateHistoryActionState();
+        restorePendingDownloads();
     }
 
     public JTextField getLinkField() {
@@ -535,6 +548,32 @@ public class DownloaderGUI extends JFrame {
         titleLabel.setForeground(TEXT_PRIMARY);
         titleLabel.setBorder(new EmptyBorder(0, 4, 0, 4));
 
+        JTextField searchField = new JTextField();
+        styleTextField(searchField, "Cari riwayat");
+        Timer searchDebounce = new Timer(250, event -> historyTableModel.setFilter(searchField.getText()));
+        searchDebounce.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchDebounce.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchDebounce.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                searchDebounce.restart();
+            }
+        });
+
+        JPanel headerPanel = new JPanel(new BorderLayout(0, 8));
+        headerPanel.setOpaque(false);
+        headerPanel.add(titleLabel, BorderLayout.NORTH);
+        headerPanel.add(searchField, BorderLayout.SOUTH);
+
         JScrollPane scrollPane = new JScrollPane(historyTable);
         scrollPane.setBorder(BorderFactory.createEmptyBorder());
         scrollPane.getViewport().setOpaque(false);
@@ -555,23 +594,14 @@ public class DownloaderGUI extends JFrame {
         actionPanel.add(openFileButton);
         footerWrapper.add(actionPanel, BorderLayout.SOUTH);
 
-        historyPanel.add(titleLabel, BorderLayout.NORTH);
+        historyPanel.add(headerPanel, BorderLayout.NORTH);
         historyPanel.add(scrollPane, BorderLayout.CENTER);
         historyPanel.add(footerWrapper, BorderLayout.SOUTH);
 
         return historyPanel;
     }
 
-    private DefaultTableModel createHistoryTableModel() {
-        return new DefaultTableModel(new Object[] { "Judul", "Format", "Tujuan", "Waktu", "Status" }, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
-    }
-
-    private JTable createHistoryTable(DefaultTableModel model) {
+    private JTable createHistoryTable(HistoryTableModel model) {
         JTable table = new JTable(model);
         table.setOpaque(false);
         table.setFillsViewportHeight(true);
@@ -591,6 +621,17 @@ public class DownloaderGUI extends JFrame {
         header.setForeground(TEXT_PRIMARY);
         header.setBackground(new Color(240, 242, 247));
         header.setBorder(new LineBorder(new Color(222, 226, 233), 1, false));
+        header.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = table.convertColumnIndexToModel(table.columnAtPoint(e.getPoint()));
+                model.toggleSort(column);
+                for (int i = 0; i < table.getColumnCount(); i++) {
+                    table.getColumnModel().getColumn(i).setHeaderValue(model.getColumnName(i));
+                }
+                header.repaint();
+            }
+        });
 
         DefaultTableCellRenderer leftRenderer = new DefaultTableCellRenderer();
         leftRenderer.setHorizontalAlignment(SwingConstants.CENTER);
@@ -627,11 +668,6 @@ public class DownloaderGUI extends JFrame {
     }
 
     private void startDownload() {
-        if (currentDownload != null && !currentDownload.isDone()) {
-            showStatus("Masih ada unduhan yang berjalan.", TEXT_SECONDARY);
-            return;
-        }
-
         String url = linkField.getText().trim();
         String directoryText = pathField.getText().trim();
         String fileName = nameField.getText().trim();
@@ -676,141 +712,15 @@ public class DownloaderGUI extends JFrame {
                 showStatus("Format PDF tidak didukung untuk YouTube. Pilih mp4 atau mp3.", STATUS_ERROR);
                 return;
             }
+            if (format != null && (format.equalsIgnoreCase("mp4") || format.equalsIgnoreCase("mp3"))
+                    && PlaylistDownloader.isPlaylist(url)) {
+                // Video playlist memakai judul masing-masing; nama file diabaikan.
+                enqueuePlaylistDownload(url, directory, format.toLowerCase(Locale.ROOT));
+                return;
+            }
             if (format != null && (format.equalsIgnoreCase("mp4") || format.equalsIgnoreCase("mp3"))) {
-
-                usingYtDlp = true;
-
-                setInputsEnabled(false);
-                progressPanel.setVisible(true);
-                progressBar.setVisible(true);
-                progressLabel.setVisible(true);
-                progressBar.setIndeterminate(true);
-                progressBar.setString(null);
-                progressLabel.setText("Menjalankan yt-dlp...");
-                showStatus("Mengunduh via yt-dlp...", TEXT_SECONDARY);
-                cancelButton.setEnabled(true);
-
-                YtDlpHelper.Observer ytObs = new YtDlpHelper.Observer() {
-                    @Override
-                    public void onStarted() {
-                        SwingUtilities.invokeLater(() -> {
-                            if (fileName == null || fileName.trim().isEmpty()) {
-                                progressLabel.setText("Mengekstrak judul video...");
-                                showStatus("Mengekstrak judul video...", TEXT_SECONDARY);
-                            } else {
-                                showStatus("Menghubungkan ke server (yt-dlp)...", TEXT_SECONDARY);
-                            }
-                        });
-                    }
-
-                    @Override
-                    public void onTitleExtracted(String title) {
-                        SwingUtilities.invokeLater(() -> {
-                            currentDownloadName = title;
-                            nameField.setText(title); // Update UI to show extracted title
-                            progressLabel.setText("Judul diekstrak: " + title);
-                            showStatus("Memulai unduhan: " + title, TEXT_SECONDARY);
-                        });
-                    }
-
-                    @Override
-                    public void onProgress(int percent, String rawLine) {
-                        SwingUtilities.invokeLater(() -> {
-                            progressPanel.setVisible(true);
-                            if (percent >= 0) {
-                                progressBar.setIndeterminate(false);
-                                progressBar.setValue(percent);
-                                progressBar.setString(percent + "%");
-                            } else {
-                                progressBar.setIndeterminate(true);
-                                progressBar.setString(null);
-                            }
-                            if (rawLine != null && !rawLine.isBlank()) {
-
-                                progressLabel.setText(rawLine);
-                            }
-                        });
-                    }
-
-                    @Override
-                    public void onCompleted(Path producedFile) {
-                        SwingUtilities.invokeLater(() -> {
-                            usingYtDlp = false;
-                            currentYtHandle = null;
-                            setInputsEnabled(true);
-                            cancelButton.setEnabled(false);
-
-                            progressBar.setIndeterminate(false);
-                            progressBar.setValue(100);
-                            progressBar.setString("100%");
-                            progressLabel.setText("Selesai");
-
-                            showStatus(
-                                    "Unduhan selesai: "
-                                            + (producedFile != null ? producedFile.getFileName() : fileName),
-                                    STATUS_SUCCESS);
-
-                            String completedAt = HISTORY_FORMATTER.format(LocalDateTime.now());
-                            String dest = (producedFile != null ? producedFile.toString()
-                                    : directory.toString());
-                            addHistoryEntry(fileName, format, dest, completedAt, "Berhasil");
-
-                            resetDownloadState();
-                        });
-                    }
-
-                    @Override
-                    public void onCancelled() {
-                        SwingUtilities.invokeLater(() -> {
-                            usingYtDlp = false;
-                            currentYtHandle = null;
-                            setInputsEnabled(true);
-                            cancelButton.setEnabled(false);
-
-                            progressBar.setIndeterminate(false);
-                            progressBar.setValue(0);
-                            progressBar.setString(null);
-                            progressLabel.setText("Unduhan dibatalkan.");
-
-                            showStatus("Unduhan dibatalkan.", TEXT_SECONDARY);
-
-                            String completedAt = HISTORY_FORMATTER.format(LocalDateTime.now());
-                            addHistoryEntry(fileName, format, directory.toString(), completedAt, "Dibatalkan");
-
-                            resetDownloadState();
-                        });
-                    }
-
-                    @Override
-                    public void onFailed(String message) {
-                        SwingUtilities.invokeLater(() -> {
-                            usingYtDlp = false;
-                            currentYtHandle = null;
-                            setInputsEnabled(true);
-                            cancelButton.setEnabled(false);
-
-                            progressBar.setIndeterminate(false);
-                            progressBar.setValue(0);
-                            progressBar.setString(null);
-                            progressLabel.setText("Unduhan dihentikan.");
-
-                            showStatus(message != null ? message : "Gagal mengunduh via yt-dlp.", STATUS_ERROR);
-
-                            String completedAt = HISTORY_FORMATTER.format(LocalDateTime.now());
-                            addHistoryEntry(fileName, format, directory.toString(), completedAt, "Gagal");
-
-                            resetDownloadState();
-                        });
-                    }
-                };
-
-                String baseNameForDownload = (fileName != null && !fileName.trim().isEmpty()) ? fileName : null;
-
-                if (format.equalsIgnoreCase("mp4")) {
-                    currentYtHandle = YtDlpHelper.downloadMp4(url, directory, baseNameForDownload, ytObs);
-                } else {
-                    currentYtHandle = YtDlpHelper.downloadMp3(url, directory, baseNameForDownload, ytObs);
-                }
+                String baseNameForDownload = !fileName.isEmpty() ? fileName : null;
+                enqueueYtDlpDownload(url, directory, baseNameForDownload, format.toLowerCase(Locale.ROOT));
                 return;
             }
         }
@@ -838,46 +748,307 @@ public class DownloaderGUI extends JFrame {
             return;
         }
 
-        currentDownloadName = fileName;
-        currentDownloadFormat = format != null ? format : "";
-        currentDestination = destination;
-        lastTotalBytes = -1L;
+        enqueueFileDownload(url, destination, fileName, format != null ? format : "");
+    }
+
+    private void enqueueYtDlpDownload(String url, Path directory, String baseName, String format) {
+        ActiveDownload job = new ActiveDownload(url, baseName, format, null, directory);
+
+        YtDlpHelper.Observer ytObs = new YtDlpHelper.Observer() {
+            @Override
+            public void onStarted() {
+                if (!activate(job)) {
+                    return;
+                }
+                progressBar.setIndeterminate(true);
+                progressBar.setString(null);
+                progressLabel.setText("Menjalankan yt-dlp...");
+                if (baseName == null) {
+                    progressLabel.setText("Mengekstrak judul video...");
+                    showStatus("Mengekstrak judul video...", TEXT_SECONDARY);
+                } else {
+                    showStatus("Menghubungkan ke server (yt-dlp)...", TEXT_SECONDARY);
+                }
+            }
+
+            @Override
+            public void onTitleExtracted(String title) {
+                job.name = title;
+                if (job != activeDownload) {
+                    return;
+                }
+                nameField.setText(title); // Update UI to show extracted title
+                progressLabel.setText("Judul diekstrak: " + title);
+                showStatus("Memulai unduhan: " + title, TEXT_SECONDARY);
+            }
+
+            @Override
+            public void onProgress(YtDlpHelper.Progress progress) {
+                if (job != activeDownload) {
+                    return;
+                }
+                progressPanel.setVisible(true);
+                int percent = progress.percent();
+                if (percent >= 0) {
+                    progressBar.setIndeterminate(false);
+                    progressBar.setValue(percent);
+                    progressBar.setString(percent + "%");
+                } else {
+                    progressBar.setIndeterminate(true);
+                    progressBar.setString(null);
+                }
+                progressLabel.setText(describeProgress(progress));
+            }
 
-        prepareUiForDownload();
+            @Override
+            public void onMessage(String line) {
+                if (job != activeDownload) {
+                    return;
+                }
+                progressLabel.setText(line);
+            }
+
+            @Override
+            public void onCompleted(Path producedFile) {
+                String dest = (producedFile != null ? producedFile.toString() : directory.toString());
+                recordHistory(job, dest, HistoryStore.Status.COMPLETED, null);
+
+                if (!deactivate(job)) {
+                    return;
+                }
+                progressBar.setIndeterminate(false);
+                progressBar.setValue(100);
+                progressBar.setString("100%");
+                progressLabel.setText("Selesai");
+
+                showStatus(
+                        "Unduhan selesai: "
+                                + (producedFile != null ? producedFile.getFileName() : job.name),
+                        STATUS_SUCCESS);
+            }
+
+            @Override
+            public void onCancelled() {
+                recordHistory(job, directory.toString(), HistoryStore.Status.CANCELLED, null);
+
+                if (!deactivate(job)) {
+                    return;
+                }
+                progressBar.setIndeterminate(false);
+                progressBar.setValue(0);
+                progressBar.setString(null);
+                progressLabel.setText("Unduhan dibatalkan.");
+
+                showStatus("Unduhan dibatalkan.", TEXT_SECONDARY);
+            }
+
+            @Override
+            public void onFailed(String message) {
+                recordHistory(job, directory.toString(), HistoryStore.Status.FAILED, null);
+
+                if (!deactivate(job)) {
+                    return;
+                }
+                progressBar.setIndeterminate(false);
+                progressBar.setValue(0);
+                progressBar.setString(null);
+                progressLabel.setText("Unduhan dihentikan.");
+
+                showStatus(message != null ? message : "Gagal mengunduh via yt-dlp.", STATUS_ERROR);
+            }
+        };
+
+        job.ticket = scheduler.submitYtDlp(url, directory, baseName, format, DownloadScheduler.Priority.NORMAL,
+                ProgressDispatcher.onEventDispatchThread(ytObs));
+        announceSubmission(job);
+    }
+
+    private void enqueueFileDownload(String url, Path destination, String fileName, String format) {
+        ActiveDownload job = new ActiveDownload(url, fileName, format, destination, destination.getParent());
 
         // Use regular FileDownloader for non-YouTube URLs
+        // Callback di bawah berjalan di EDT lewat ProgressDispatcher.
         FileDownloader.DownloadObserver observer = new FileDownloader.DownloadObserver() {
             @Override
             public void onStarted(long totalBytes) {
-                SwingUtilities.invokeLater(() -> handleDownloadStarted(totalBytes));
+                handleDownloadStarted(job, totalBytes);
             }
 
             @Override
             public void onProgress(long downloadedBytes, long totalBytes) {
-                SwingUtilities.invokeLater(() -> updateDownloadProgress(downloadedBytes, totalBytes));
+                updateDownloadProgress(job, downloadedBytes, totalBytes);
             }
 
             @Override
             public void onCompleted(Path file) {
-                SwingUtilities.invokeLater(() -> handleDownloadCompleted(file));
+                handleDownloadCompleted(job, file);
             }
 
             @Override
             public void onCancelled(Path partialFile) {
-                SwingUtilities.invokeLater(() -> handleDownloadCancelled(partialFile));
+                handleDownloadCancelled(job, partialFile);
             }
 
             @Override
             public void onFailed(DownloadError error, Exception exception) {
-                SwingUtilities.invokeLater(() -> handleDownloadFailed(error));
+                handleDownloadFailed(job, error);
             }
         };
 
-        currentDownload = FileDownloader.download(url, destination, observer);
+        job.ticket = scheduler.submitFile(url, destination, fileName, format, DownloadScheduler.Priority.NORMAL,
+                ProgressDispatcher.onEventDispatchThread(observer));
+        announceSubmission(job);
+    }
+
+    private void enqueuePlaylistDownload(String url, Path directory, String format) {
+        ActiveDownload job = new ActiveDownload(url, "Playlist", format, null, directory);
+
+        PlaylistDownloader.Observer observer = new PlaylistDownloader.Observer() {
+            @Override
+            public void onExpanded(List<PlaylistDownloader.Entry> entries) {
+                if (!activate(job)) {
+                    return;
+                }
+                progressBar.setIndeterminate(false);
+                progressBar.setValue(0);
+                progressBar.setString("0%");
+                progressLabel.setText("0 / " + entries.size() + " video selesai");
+                showStatus("Mengunduh playlist (" + entries.size() + " video)...", TEXT_SECONDARY);
+            }
+
+            @Override
+            public void onProgress(int finishedEntries, int totalEntries, int percent) {
+                if (job != activeDownload) {
+                    return;
+                }
+                progressPanel.setVisible(true);
+                progressBar.setIndeterminate(false);
+                progressBar.setValue(percent);
+                progressBar.setString(percent + "%");
+                progressLabel.setText(finishedEntries + " / " + totalEntries + " video selesai");
+            }
+
+            @Override
+            public void onEntryFinished(PlaylistDownloader.EntryResult result) {
+                PlaylistDownloader.Entry entry = result.entry();
+                Path produced = result.producedFile();
+                historyTableModel.add(new HistoryStore.Entry(System.currentTimeMillis(),
+                        result.succeeded() ? HistoryStore.Status.COMPLETED : HistoryStore.Status.FAILED,
+                        entry.url(), entry.title() != null ? entry.title() : entry.url(), format,
+                        (produced != null ? produced : directory).toString(), result.error()));
+            }
+
+            @Override
+            public void onCompleted(List<PlaylistDownloader.EntryResult> results) {
+                long failures = results.stream().filter(result -> !result.succeeded()).count();
+                if (!deactivate(job)) {
+                    return;
+                }
+                progressBar.setIndeterminate(false);
+                progressBar.setValue(100);
+                progressBar.setString("100%");
+                progressLabel.setText(results.size() + " / " + results.size() + " video selesai");
+                if (failures == 0) {
+                    showStatus("Playlist selesai: " + results.size() + " video.", STATUS_SUCCESS);
+                } else {
+                    showStatus(failures + " dari " + results.size() + " video playlist gagal diunduh.", STATUS_ERROR);
+                }
+            }
+
+            @Override
+            public void onCancelled() {
+                recordHistory(job, directory.toString(), HistoryStore.Status.CANCELLED, null);
+
+                if (!deactivate(job)) {
+                    return;
+                }
+                progressBar.setIndeterminate(false);
+                progressBar.setValue(0);
+                progressBar.setString(null);
+                progressLabel.setText("Unduhan dibatalkan.");
+
+                showStatus("Unduhan playlist dibatalkan.", TEXT_SECONDARY);
+            }
+
+            @Override
+            public void onFailed(String message) {
+                recordHistory(job, directory.toString(), HistoryStore.Status.FAILED, message);
+
+                if (!deactivate(job)) {
+                    return;
+                }
+                progressBar.setIndeterminate(false);
+                progressBar.setValue(0);
+                progressBar.setString(null);
+                progressLabel.setText("Unduhan dihentikan.");
+
+                showStatus(message != null ? message : "Gagal membaca playlist.", STATUS_ERROR);
+            }
+        };
+
+        job.ticket = scheduler.submitPlaylist(url, directory, format, DownloadScheduler.Priority.NORMAL,
+                ProgressDispatcher.onEventDispatchThread(observer));
+        announceSubmission(job);
+    }
+
+    private void announceSubmission(ActiveDownload job) {
+        if (job.ticket.state() == DownloadScheduler.State.RUNNING && activeDownload == null) {
+            activate(job);
+            prepareUiForDownload();
+        } else if (job.ticket.state() == DownloadScheduler.State.QUEUED) {
+            showStatus("Ditambahkan ke antrean (" + scheduler.queuedCount() + " menunggu).", TEXT_SECONDARY);
+        }
+    }
+
+    private void restorePendingDownloads() {
+        for (DownloadScheduler.JobSpec spec : scheduler.restorePending()) {
+            if (spec.kind() == DownloadScheduler.Kind.PLAYLIST) {
+                enqueuePlaylistDownload(spec.url(), spec.target(), spec.format() != null ? spec.format() : "mp4");
+            } else if (spec.kind() == DownloadScheduler.Kind.YT_DLP) {
+                enqueueYtDlpDownload(spec.url(), spec.target(), spec.baseName(), spec.format());
+            } else {
+                String name = spec.baseName() != null ? spec.baseName() : spec.target().getFileName().toString();
+                enqueueFileDownload(spec.url(), spec.target(), name, spec.format() != null ? spec.format() : "");
+            }
+        }
+    }
+
+    /**
+     * Mencatat {@code job} sebagai berjalan dan menampilkannya bila panel progres
+     * masih kosong. Mengembalikan {@code true} bila {@code job} yang ditampilkan.
+     */
+    private boolean activate(ActiveDownload job) {
+        runningDownloads.add(job);
+        if (activeDownload != null && activeDownload != job) {
+            return false;
+        }
+        activeDownload = job;
+        cancelButton.setEnabled(true);
+        progressPanel.setVisible(true);
+        progressBar.setVisible(true);
+        progressLabel.setVisible(true);
+        return true;
+    }
+
+    /**
+     * Melepas unduhan yang selesai. Mengembalikan {@code false} bila {@code job}
+     * bukan unduhan yang ditampilkan (misalnya dibatalkan saat masih di antrean);
+     * bila ya, panel progres berpindah ke unduhan lain yang masih berjalan.
+     */
+    private boolean deactivate(ActiveDownload job) {
+        runningDownloads.remove(job);
+        if (job != activeDownload) {
+            return false;
+        }
+        activeDownload = null;
+        cancelButton.setEnabled(false);
+        if (!runningDownloads.isEmpty()) {
+            activate(runningDownloads.iterator().next());
+        }
+        return true;
     }
 
     private void prepareUiForDownload() {
-        setInputsEnabled(false);
         progressPanel.setVisible(true);
         progressBar.setVisible(true);
         progressLabel.setVisible(true);
@@ -890,25 +1061,20 @@ public class DownloaderGUI extends JFrame {
     }
 
     private void cancelActiveDownload() {
-        if (usingYtDlp && currentYtHandle != null && !currentYtHandle.isDone()) {
+        ActiveDownload job = activeDownload;
+        if (job != null && job.ticket != null) {
             cancelButton.setEnabled(false);
-            showStatus("Mencoba membatalkan unduhan (yt-dlp)...", TEXT_SECONDARY);
-            currentYtHandle.cancel();
-            return;
-        }
-
-        if (currentDownload != null && !currentDownload.isDone()) {
-            cancelButton.setEnabled(false);
-            showStatus("Membatalkan unduhan...", TEXT_SECONDARY);
-            currentDownload.cancel();
+            showStatus(job.destination == null ? "Mencoba membatalkan unduhan (yt-dlp)..." : "Membatalkan unduhan...",
+                    TEXT_SECONDARY);
+            job.ticket.cancel();
         }
     }
 
-    private void handleDownloadStarted(long totalBytes) {
-        lastTotalBytes = totalBytes;
-        progressPanel.setVisible(true);
-        progressBar.setVisible(true);
-        progressLabel.setVisible(true);
+    private void handleDownloadStarted(ActiveDownload job, long totalBytes) {
+        job.lastTotalBytes = totalBytes;
+        if (!activate(job)) {
+            return;
+        }
 
         if (totalBytes > 0) {
             progressBar.setIndeterminate(false);
@@ -924,7 +1090,10 @@ public class DownloaderGUI extends JFrame {
         showStatus("Mengunduh...", TEXT_SECONDARY);
     }
 
-    private void updateDownloadProgress(long downloaded, long total) {
+    private void updateDownloadProgress(ActiveDownload job, long downloaded, long total) {
+        if (job != activeDownload) {
+            return;
+        }
         progressPanel.setVisible(true);
         progressBar.setVisible(true);
         progressLabel.setVisible(true);
@@ -942,12 +1111,14 @@ public class DownloaderGUI extends JFrame {
         }
     }
 
-    private void handleDownloadCompleted(Path file) {
-        setInputsEnabled(true);
-        cancelButton.setEnabled(false);
-        currentDownload = null;
+    private void handleDownloadCompleted(ActiveDownload job, Path file) {
+        recordHistory(job, file.toString(), HistoryStore.Status.COMPLETED, null);
 
-        long fileSize = lastTotalBytes;
+        if (!deactivate(job)) {
+            return;
+        }
+
+        long fileSize = job.lastTotalBytes;
         try {
             if (Files.exists(file)) {
                 fileSize = Files.size(file);
@@ -967,19 +1138,14 @@ public class DownloaderGUI extends JFrame {
         }
 
         showStatus("Unduhan selesai: " + file.getFileName(), STATUS_SUCCESS);
-
-        if (currentDownloadName != null && currentDestination != null) {
-            String completedAt = HISTORY_FORMATTER.format(LocalDateTime.now());
-            addHistoryEntry(currentDownloadName, currentDownloadFormat, file.toString(), completedAt, "Berhasil");
-        }
-
-        resetDownloadState();
     }
 
-    private void handleDownloadFailed(DownloadError error) {
-        setInputsEnabled(true);
-        cancelButton.setEnabled(false);
-        currentDownload = null;
+    private void handleDownloadFailed(ActiveDownload job, DownloadError error) {
+        recordHistory(job, job.destination.toString(), HistoryStore.Status.FAILED, error.toUserMessage());
+
+        if (!deactivate(job)) {
+            return;
+        }
 
         progressBar.setIndeterminate(false);
         progressBar.setValue(0);
@@ -988,20 +1154,15 @@ public class DownloaderGUI extends JFrame {
         progressLabel.setText("Unduhan dihentikan.");
 
         showStatus(error.toUserMessage(), STATUS_ERROR);
-
-        if (currentDownloadName != null && currentDestination != null) {
-            String completedAt = HISTORY_FORMATTER.format(LocalDateTime.now());
-            addHistoryEntry(currentDownloadName, currentDownloadFormat, currentDestination.toString(), completedAt,
-                    error.toUserMessage());
-        }
-
-        resetDownloadState();
     }
 
-    private void handleDownloadCancelled(Path partialFile) {
-        setInputsEnabled(true);
-        cancelButton.setEnabled(false);
-        currentDownload = null;
+    private void handleDownloadCancelled(ActiveDownload job, Path partialFile) {
+        Path displayPath = partialFile != null ? partialFile : job.destination;
+        recordHistory(job, displayPath.toString(), HistoryStore.Status.CANCELLED, null);
+
+        if (!deactivate(job)) {
+            return;
+        }
 
         progressBar.setIndeterminate(false);
         progressBar.setValue(0);
@@ -1010,23 +1171,6 @@ public class DownloaderGUI extends JFrame {
         progressLabel.setText("Unduhan dibatalkan.");
 
         showStatus("Unduhan dibatalkan.", TEXT_SECONDARY);
-
-        Path displayPath = partialFile != null ? partialFile : currentDestination;
-        if (currentDownloadName != null && displayPath != null) {
-            String completedAt = HISTORY_FORMATTER.format(LocalDateTime.now());
-            addHistoryEntry(currentDownloadName, currentDownloadFormat, displayPath.toString(), completedAt,
-                    "Dibatalkan");
-        }
-
-        resetDownloadState();
-    }
-
-    private void setInputsEnabled(boolean enabled) {
-        linkField.setEnabled(enabled);
-        pathField.setEnabled(enabled);
-        nameField.setEnabled(enabled);
-        formatBox.setEnabled(enabled);
-        downloadButton.setEnabled(enabled);
     }
 
     private void showStatus(String message, Color color) {
@@ -1035,15 +1179,11 @@ public class DownloaderGUI extends JFrame {
         statusLabel.setVisible(true);
     }
 
-    private void resetDownloadState() {
-        currentDestination = null;
-        currentDownloadName = null;
-        currentDownloadFormat = null;
-        lastTotalBytes = -1L;
+    private void openSelectedFile() {
+        resolveSelectedPath(this::openFile);
     }
 
-    private void openSelectedFile() {
-        Path target = resolveSelectedPath();
+    private void openFile(Path target) {
         if (target == null) {
             showHistoryMessage("Silakan pilih riwayat unduhan yang valid.");
             return;
@@ -1071,7 +1211,10 @@ public class DownloaderGUI extends JFrame {
     }
 
     private void openSelectedFolder() {
-        Path target = resolveSelectedPath();
+        resolveSelectedPath(this::openFolder);
+    }
+
+    private void openFolder(Path target) {
         if (target == null) {
             showHistoryMessage("Silakan pilih riwayat unduhan yang valid.");
             return;
@@ -1098,23 +1241,22 @@ public class DownloaderGUI extends JFrame {
         }
     }
 
-    private Path resolveSelectedPath() {
+    /**
+     * Menjalankan {@code action} di EDT dengan path entri riwayat yang dipilih,
+     * atau {@code null}; entri yang halamannya belum dimuat dibaca di background.
+     */
+    private void resolveSelectedPath(Consumer<Path> action) {
         int selectedRow = historyTable.getSelectedRow();
         if (selectedRow < 0) {
-            return null;
-        }
-
-        Object titleValue = historyTableModel.getValueAt(selectedRow, 0);
-        if (titleValue instanceof String title && "Belum ada riwayat".equals(title)) {
-            return null;
-        }
-
-        Object destinationValue = historyTableModel.getValueAt(selectedRow, 2);
-        if (!(destinationValue instanceof String destination)) {
-            return null;
+            action.accept(null);
+            return;
         }
+        historyTableModel.entryAt(selectedRow, entry -> action.accept(toPath(entry)));
+    }
 
-        if (destination.isBlank() || "-".equals(destination)) {
+    private static Path toPath(HistoryStore.Entry entry) {
+        String destination = entry != null ? entry.destination() : null;
+        if (destination == null || destination.isBlank() || "-".equals(destination)) {
             return null;
         }
 
@@ -1132,7 +1274,17 @@ public class DownloaderGUI extends JFrame {
             return;
         }
 
-        Path target = resolveSelectedPath();
+        int selectedRow = historyTable.getSelectedRow();
+        openFileButton.setEnabled(false);
+        openFolderButton.setEnabled(false);
+        resolveSelectedPath(target -> {
+            if (historyTable.getSelectedRow() == selectedRow) {
+                applyHistoryActionState(target);
+            }
+        });
+    }
+
+    private void applyHistoryActionState(Path target) {
         boolean fileEnabled = false;
         boolean folderEnabled = false;
 
@@ -1155,6 +1307,25 @@ public class DownloaderGUI extends JFrame {
         JOptionPane.showMessageDialog(this, message, "Riwayat Unduhan", JOptionPane.INFORMATION_MESSAGE);
     }
 
+    private String describeProgress(YtDlpHelper.Progress progress) {
+        StringBuilder text = new StringBuilder(formatBytes(progress.downloadedBytes()));
+        if (progress.totalBytes() > 0) {
+            text.append(" / ").append(progress.totalEstimated() ? "~" : "").append(formatBytes(progress.totalBytes()));
+        }
+        if (progress.bytesPerSecond() > 0) {
+            text.append(" - ").append(formatBytes((long) progress.bytesPerSecond())).append("/s");
+        }
+        if (progress.etaSeconds() >= 0) {
+            long eta = progress.etaSeconds();
+            text.append(" - ETA ").append(String.format(Locale.ROOT, "%d:%02d", eta / 60, eta % 60));
+        }
+        if (progress.fragmentCount() > 0) {
+            text.append(" - fragmen ").append(progress.fragmentIndex()).append('/')
+                    .append(progress.fragmentCount());
+        }
+        return text.toString();
+    }
+
     private String formatBytes(long bytes) {
         if (bytes < 0) {
             return "Tidak diketahui";
@@ -1174,22 +1345,25 @@ public class DownloaderGUI extends JFrame {
         return String.format(Locale.getDefault(), "%.2f %s", value, units[unitIndex]);
     }
 
-    private void seedHistoryPreview() {
-        if (historyTableModel.getRowCount() == 0) {
-            historyTableModel.addRow(new Object[] { "Belum ada riwayat", "-", "-", "-", "-" });
-        }
+    // Riwayat dibuka di background; bila folder data tidak bisa dipakai riwayat sesi ini disimpan di folder sementara.
+    private static CompletableFuture<HistoryStore> openHistoryStore() {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return HistoryStore.open(HISTORY_DIR);
+            } catch (IOException ex) {
+                System.err.println("Gagal membuka riwayat unduhan: " + ex.getMessage());
+            }
+            try {
+                return HistoryStore.open(Files.createTempDirectory("downloader-history"));
+            } catch (IOException ex) {
+                System.err.println("Gagal membuka riwayat sementara: " + ex.getMessage());
+                return null;
+            }
+        }, HISTORY_EXECUTOR);
     }
 
-    public void addHistoryEntry(String title, String format, String destination, String completedAt, String status) {
-        if (historyTableModel.getRowCount() == 1 && "Belum ada riwayat".equals(historyTableModel.getValueAt(0, 0))) {
-            historyTableModel.setRowCount(0);
-        }
-        historyTableModel.addRow(new Object[] { title, format, destination, completedAt, status });
-        int lastRow = historyTableModel.getRowCount() - 1;
-        if (lastRow >= 0) {
-            historyTable.getSelectionModel().setSelectionInterval(lastRow, lastRow);
-            historyTable.scrollRectToVisible(historyTable.getCellRect(lastRow, 0, true));
-            updateHistoryActionState();
-        }
+    private void recordHistory(ActiveDownload job, String destination, HistoryStore.Status status, String message) {
+        historyTableModel.add(new HistoryStore.Entry(System.currentTimeMillis(), status, job.url, job.name,
+                job.format, destination, message));
     }
 }
@@ -1,56 +1,142 @@
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.InterruptedIOException;
 import java.net.ConnectException;
 import java.net.HttpURLConnection;
 import java.net.SocketException;
-import java.net.URL;
-import java.net.URI;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
 import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.AccessDeniedException;
 import java.nio.file.FileSystemException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public final class FileDownloader {
 
-    private static final int BUFFER_SIZE = 32 * 1024; // 32 KB
+    private static final long MIN_SEGMENT_SIZE = 1024 * 1024; // 1 MB
+    private static final int DEFAULT_CONNECTIONS = Math.max(1, Integer.getInteger("downloader.connections", 4));
+    private static final long JOURNAL_SAVE_INTERVAL_MS = 1_000;
 
-    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
-        private int counter = 0;
+    private static final ExecutorService EXECUTOR = DownloadExecutors.newBoundedExecutor("file-downloader");
+    private static final ExecutorService SEGMENT_EXECUTOR = DownloadExecutors.newExecutor("file-downloader-segment");
 
-        @Override
-        public Thread newThread(Runnable r) {
-            Thread thread = new Thread(r, "file-downloader-" + counter++);
-            thread.setDaemon(true);
-            return thread;
-        }
-    });
+    private static final DownloadCache CACHE = DownloadCache.fromSystemProperties();
+
+    private static volatile HttpTransport transport = HttpTransport.fromSystemProperty();
+    private static volatile RetryPolicy retryPolicy = RetryPolicy.fromSystemProperties();
 
     private FileDownloader() {
 
     }
 
     public static DownloadHandle download(String url, Path destination, DownloadObserver observer) {
+        return download(url, destination, observer, DEFAULT_CONNECTIONS);
+    }
+
+    /**
+     * Mengunduh dengan hingga {@code connections} koneksi paralel. Bila server
+     * tidak mendukung {@code Accept-Ranges: bytes} atau ukuran file tidak
+     * diketahui, unduhan otomatis kembali ke satu stream.
+     * <p>
+     * Data ditulis ke {@code <destination>.part} dan baru dipindahkan ke
+     * {@code destination} setelah selesai. Bila file {@code .part} beserta
+     * journal-nya masih ada dari unduhan sebelumnya untuk URL yang sama,
+     * unduhan dilanjutkan dari offset terakhir yang tersimpan.
+     * <p>
+     * Bila {@link DownloadCache} diaktifkan, file yang pernah diunduh dan masih
+     * ada di cache divalidasi ulang dengan permintaan kondisional; bila server menjawab
+     * {@code 304} isinya diambil dari cache tanpa diunduh ulang.
+     * <p>
+     * URL manifest HLS ({@code .m3u8}) atau DASH ({@code .mpd}) diunduh
+     * per segmen oleh {@link StreamDownloader} lalu digabung menjadi satu file.
+     */
+    public static DownloadHandle download(String url, Path destination, DownloadObserver observer, int connections) {
         Objects.requireNonNull(url, "url");
         Objects.requireNonNull(destination, "destination");
         Objects.requireNonNull(observer, "observer");
+        if (connections < 1) {
+            throw new IllegalArgumentException("connections must be at least 1");
+        }
 
-        DownloadTask task = new DownloadTask(url, destination, observer);
+        DownloadObserver wrapped = DownloadMetrics.instrument(ProgressDispatcher.sampled(observer));
+        if (StreamManifest.isManifestUrl(url)) {
+            StreamDownloader stream = new StreamDownloader(url, destination, wrapped, connections, transport,
+                    retryPolicy);
+            stream.attachFuture(EXECUTOR.submit(stream));
+            return stream;
+        }
+
+        DownloadTask task = new DownloadTask(url, destination, wrapped, connections);
         Future<?> future = EXECUTOR.submit(task);
         task.attachFuture(future);
         return task;
     }
 
+    /**
+     * Mengganti transport HTTP untuk unduhan berikutnya. Unduhan yang sedang
+     * berjalan tetap memakai transport lamanya.
+     */
+    public static void setTransport(HttpTransport newTransport) {
+        transport = Objects.requireNonNull(newTransport, "transport");
+    }
+
+    static DownloadError classifyError(IOException ex) {
+        if (ex instanceof FileSystemException fse) {
+            String reason = fse.getReason();
+            if (reason != null) {
+                String lowerReason = reason.toLowerCase();
+                if (lowerReason.contains("space") || lowerReason.contains("disk")) {
+                    return DownloadError.INSUFFICIENT_STORAGE;
+                }
+                if (lowerReason.contains("denied")) {
+                    return DownloadError.PERMISSION_DENIED;
+                }
+            }
+        }
+
+        String message = ex.getMessage();
+        if (message != null) {
+            String lowerMessage = message.toLowerCase();
+            if (lowerMessage.contains("space") || lowerMessage.contains("disk")) {
+                return DownloadError.INSUFFICIENT_STORAGE;
+            }
+            if (lowerMessage.contains("denied") || lowerMessage.contains("permission")) {
+                return DownloadError.PERMISSION_DENIED;
+            }
+            if (lowerMessage.contains("refused") || lowerMessage.contains("reset")
+                    || lowerMessage.contains("timed out")) {
+                return DownloadError.NETWORK_INTERRUPTED;
+            }
+        }
+
+        if (ex instanceof ConnectException || ex instanceof SocketException || ex instanceof EOFException
+                || ex instanceof SocketTimeoutException) {
+            return DownloadError.NETWORK_INTERRUPTED;
+        }
+
+        return DownloadError.GENERAL_FAILURE;
+    }
+
     public interface DownloadObserver {
         void onStarted(long totalBytes);
 
@@ -61,107 +147,178 @@ public final class FileDownloader {
         void onCancelled(Path partialFile);
 
         void onFailed(DownloadError error, Exception exception);
+
+        default void onPaused(Path partialFile) {
+            onCancelled(partialFile);
+        }
     }
 
     public interface DownloadHandle {
         void cancel();
 
+        /**
+         * Menghentikan unduhan tanpa menghapus data parsial, sehingga pemanggilan
+         * {@link FileDownloader#download} berikutnya ke tujuan yang sama dapat
+         * melanjutkannya.
+         */
+        void pause();
+
         boolean isDone();
 
         boolean isCompletedSuccessfully();
     }
 
+    private static final class Segment {
+        final long start;
+        final long end;
+        volatile long position;
+
+        Segment(long start, long end) {
+            this.start = start;
+            this.end = end;
+            this.position = start;
+        }
+
+        boolean isBounded() {
+            return end >= 0;
+        }
+
+        long remaining() {
+            return end - position + 1;
+        }
+    }
+
     private static final class DownloadTask implements Runnable, DownloadHandle {
 
         private final String url;
         private final Path destination;
+        private final Path partFile;
+        private final Path journalFile;
         private final DownloadObserver observer;
+        private final int connections;
         private final AtomicBoolean cancelled = new AtomicBoolean(false);
+        private final AtomicBoolean started = new AtomicBoolean(false);
+        private final HttpTransport transport = FileDownloader.transport;
+        private final RetryPolicy retryPolicy = FileDownloader.retryPolicy;
+        private final Set<HttpTransport.Response> activeResponses = ConcurrentHashMap.newKeySet();
+        private final List<Future<?>> segmentFutures = new ArrayList<>();
+        private final Object progressLock = new Object();
 
         private volatile boolean done;
         private volatile boolean succeeded;
+        private volatile boolean paused;
         private Future<?> future;
-        private volatile HttpURLConnection activeConnection;
-        private volatile InputStream currentInput;
-        private volatile OutputStream currentOutput;
-
-        DownloadTask(String url, Path destination, DownloadObserver observer) {
+        private volatile FileChannel currentChannel;
+        private volatile DownloadJournal journal;
+        private volatile List<Segment> segments = List.of();
+        private boolean resourceChanged;
+        private long downloaded;
+        private long totalBytes = -1L;
+        private long lastJournalSave;
+        private long startNanos;
+        private boolean firstByteSeen;
+        private boolean fromCache;
+        private boolean cacheable;
+
+        DownloadTask(String url, Path destination, DownloadObserver observer, int connections) {
             this.url = url;
             this.destination = destination;
+            this.partFile = destination.resolveSibling(destination.getFileName() + ".part");
+            this.journalFile = DownloadJournal.journalFileFor(partFile);
             this.observer = observer;
+            this.connections = connections;
         }
 
         @Override
         public void run() {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
             boolean notifiedStart = false;
+            startNanos = System.nanoTime();
             try {
                 if (destination.getParent() != null) {
                     Files.createDirectories(destination.getParent());
                 }
 
-                URL targetUrl = URI.create(url).toURL();
-                HttpURLConnection connection = (HttpURLConnection) targetUrl.openConnection();
-                this.activeConnection = connection;
-                connection.setInstanceFollowRedirects(true);
-                connection.setConnectTimeout(15_000);
-                connection.setReadTimeout(30_000);
-                connection.connect();
-
-                int statusCode = connection.getResponseCode();
-                if (statusCode >= 400) {
-                    throw new IOException("Server returned HTTP " + statusCode);
+                HttpTransport.Response probe = null;
+                boolean resuming = false;
+                for (int attempt = 1; probe == null; attempt++) {
+                    try {
+                        probe = resumeFromJournal();
+                        resuming = probe != null;
+                        if (!resuming) {
+                            probe = openProbe();
+                        }
+                    } catch (IOException ex) {
+                        awaitRetry(attempt, ex);
+                    }
                 }
 
-                long totalBytes = connection.getContentLengthLong();
                 observer.onStarted(totalBytes);
                 notifiedStart = true;
 
-                InputStream rawInput = connection.getInputStream();
-                BufferedInputStream input = new BufferedInputStream(rawInput);
-                this.currentInput = input;
-                BufferedOutputStream output = new BufferedOutputStream(Files.newOutputStream(destination,
-                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING));
-                this.currentOutput = output;
+                if (fromCache) {
+                    observer.onProgress(totalBytes, totalBytes);
+                    moveIntoPlace();
+                    succeeded = true;
+                    observer.onCompleted(destination);
+                    return;
+                }
 
-                byte[] buffer = new byte[BUFFER_SIZE];
-                long downloaded = 0;
-                int read;
+                FileChannel channel = resuming
+                        ? FileChannel.open(partFile, StandardOpenOption.WRITE)
+                        : FileChannel.open(partFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                StandardOpenOption.TRUNCATE_EXISTING);
+                this.currentChannel = channel;
+
+                if (resuming) {
+                    reportProgress(0);
+                } else if (segments.size() > 1) {
+                    // Alokasikan ukuran akhir lebih dulu supaya setiap segmen bisa menulis di offset-nya.
+                    channel.write(ByteBuffer.allocate(1), totalBytes - 1);
+                }
+                saveJournal();
 
-                while ((read = input.read(buffer)) != -1) {
-                    if (cancelled.get() || Thread.currentThread().isInterrupted()) {
-                        observer.onCancelled(destination);
-                        cleanupPartialFile();
-                        return;
+                List<Segment> pending = new ArrayList<>();
+                for (Segment segment : segments) {
+                    if (!segment.isBounded() || segment.remaining() > 0) {
+                        pending.add(segment);
                     }
+                }
 
-                    output.write(buffer, 0, read);
-                    downloaded += read;
-                    observer.onProgress(downloaded, totalBytes);
+                if (pending.size() == 1) {
+                    fetchSegment(pending.get(0), probe);
+                } else if (!pending.isEmpty()) {
+                    fetchSegmentsConcurrently(pending, probe);
                 }
 
                 if (cancelled.get() || Thread.currentThread().isInterrupted()) {
-                    observer.onCancelled(destination);
-                    cleanupPartialFile();
+                    handleStopped();
                     return;
                 }
 
-                output.flush();
+                channel.close();
+                moveIntoPlace();
+                DownloadJournal completed = journal;
+                if (cacheable && completed != null) {
+                    CACHE.storeAsync(url, completed.etag(), completed.lastModified(), destination);
+                }
 
                 succeeded = true;
                 observer.onCompleted(destination);
             } catch (AccessDeniedException ex) {
                 observer.onFailed(DownloadError.PERMISSION_DENIED, ex);
                 cleanupPartialFile();
-            } catch (ClosedByInterruptException ex) {
-                observer.onCancelled(destination);
-                cleanupPartialFile();
+            } catch (ClosedByInterruptException | InterruptedException ex) {
+                handleStopped();
             } catch (IOException ex) {
                 if (cancelled.get()) {
-                    observer.onCancelled(destination);
-                    cleanupPartialFile();
+                    handleStopped();
                 } else {
-                    observer.onFailed(classifyError(ex), ex);
-                    cleanupPartialFile();
+                    DownloadError error = classifyError(ex);
+                    retainOrCleanup(error);
+                    observer.onFailed(error, ex);
                 }
             } catch (SecurityException ex) {
                 observer.onFailed(DownloadError.PERMISSION_DENIED, ex);
@@ -176,13 +333,410 @@ public final class FileDownloader {
             }
         }
 
+        /**
+         * Mencoba melanjutkan dari journal yang tersimpan. Mengembalikan koneksi
+         * yang sudah menerima {@code 206} untuk segmen pertama yang belum selesai,
+         * atau {@code null} bila unduhan harus dimulai dari awal.
+         */
+        private HttpTransport.Response resumeFromJournal() throws IOException {
+            DownloadJournal saved = DownloadJournal.load(journalFile);
+            if (saved == null || !saved.matches(url) || !saved.isResumable() || !Files.isRegularFile(partFile)) {
+                Files.deleteIfExists(journalFile);
+                return null;
+            }
+
+            List<Segment> restored = new ArrayList<>();
+            long alreadyDownloaded = 0;
+            Segment first = null;
+            for (DownloadJournal.Range range : saved.ranges()) {
+                Segment segment = new Segment(range.start(), range.end());
+                segment.position = range.position();
+                restored.add(segment);
+                alreadyDownloaded += range.position() - range.start();
+                if (first == null && (!segment.isBounded() || segment.remaining() > 0)) {
+                    first = segment;
+                }
+            }
+            if (first == null) {
+                return null;
+            }
+
+            journal = saved;
+            segments = restored;
+            HttpTransport.Response response = openResponse(first);
+            int statusCode = response.statusCode();
+            if (statusCode == HttpURLConnection.HTTP_PARTIAL) {
+                totalBytes = saved.totalBytes();
+                downloaded = alreadyDownloaded;
+                cacheable = isCacheable(response);
+                return response;
+            }
+
+            // 200 berarti If-Range tidak cocok (file di server berubah); 416 berarti journal tidak valid.
+            activeResponses.remove(response);
+            response.close();
+            journal = null;
+            segments = List.of();
+            Files.deleteIfExists(journalFile);
+            if (statusCode >= 400 && statusCode != 416) {
+                throw HttpStatusException.from(response);
+            }
+            return null;
+        }
+
+        private HttpTransport.Response openProbe() throws IOException {
+            DownloadCache.Entry cached = CACHE.lookup(url);
+            HttpTransport.Response probe = openResponse(null,
+                    cached != null ? cached.conditionalHeaders() : Map.of());
+            int statusCode = probe.statusCode();
+            if (cached != null && statusCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                activeResponses.remove(probe);
+                probe.close();
+                try {
+                    CACHE.materialize(cached, partFile);
+                } catch (IOException ex) {
+                    // Blob terbuang di antara lookup dan materialize; unduh ulang tanpa header kondisional.
+                    CACHE.invalidate(url);
+                    return openProbe();
+                }
+                DownloadMetrics.cacheLookup("hit");
+                fromCache = true;
+                totalBytes = cached.size();
+                segments = List.of();
+                journal = null;
+                return probe;
+            }
+            if (cached != null) {
+                DownloadMetrics.cacheLookup("changed");
+            }
+            if (statusCode >= 400) {
+                activeResponses.remove(probe);
+                probe.close();
+                throw HttpStatusException.from(probe);
+            }
+            totalBytes = probe.contentLength();
+            boolean rangesSupported = statusCode == HttpURLConnection.HTTP_OK
+                    && "bytes".equalsIgnoreCase(probe.header("Accept-Ranges"));
+            segments = planSegments(rangesSupported);
+            journal = new DownloadJournal(url, probe.header("ETag"), probe.header("Last-Modified"),
+                    totalBytes, rangesSupported, List.of());
+            cacheable = isCacheable(probe);
+            return probe;
+        }
+
+        private static boolean isCacheable(HttpTransport.Response response) {
+            String cacheControl = response.header("Cache-Control");
+            return cacheControl == null || !cacheControl.toLowerCase(Locale.ROOT).contains("no-store");
+        }
+
+        private List<Segment> planSegments(boolean rangesSupported) {
+            List<Segment> planned = new ArrayList<>();
+            long count = totalBytes > 0 ? Math.min(connections, totalBytes / MIN_SEGMENT_SIZE) : 1;
+
+            if (!rangesSupported || count < 2) {
+                planned.add(new Segment(0, totalBytes > 0 ? totalBytes - 1 : -1L));
+                return planned;
+            }
+
+            long segmentSize = totalBytes / count;
+            for (int i = 0; i < count; i++) {
+                long start = i * segmentSize;
+                long end = i == count - 1 ? totalBytes - 1 : start + segmentSize - 1;
+                planned.add(new Segment(start, end));
+            }
+            return planned;
+        }
+
+        private void fetchSegmentsConcurrently(List<Segment> pending, HttpTransport.Response probe)
+                throws IOException, InterruptedException {
+            CompletionService<Void> completion = new ExecutorCompletionService<>(SEGMENT_EXECUTOR);
+            synchronized (segmentFutures) {
+                for (int i = 0; i < pending.size(); i++) {
+                    Segment segment = pending.get(i);
+                    // Segmen pertama memakai ulang stream dari koneksi probe.
+                    HttpTransport.Response initial = i == 0 ? probe : null;
+                    segmentFutures.add(completion.submit(() -> {
+                        fetchSegment(segment, initial);
+                        return null;
+                    }));
+                }
+            }
+
+            try {
+                for (int i = 0; i < pending.size(); i++) {
+                    completion.take().get();
+                }
+            } catch (ExecutionException ex) {
+                cancelSegments();
+                Throwable cause = ex.getCause();
+                if (cause instanceof IOException ioException) {
+                    throw ioException;
+                }
+                if (cause instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IOException(cause);
+            } catch (CancellationException ex) {
+                // Segmen dibatalkan lewat cancel()/pause(); status akhir ditentukan oleh run().
+                cancelSegments();
+            } catch (InterruptedException ex) {
+                cancelSegments();
+                throw ex;
+            }
+        }
+
+        /**
+         * Mengunduh satu segmen. Kegagalan sementara diulang dari posisi
+         * terakhir yang sudah ditulis; hitungan percobaan direset bila
+         * percobaan sebelumnya sempat menerima data. Server tanpa dukungan
+         * Range diulang dari awal.
+         */
+        private void fetchSegment(Segment segment, HttpTransport.Response initial) throws IOException {
+            HttpTransport.Response response = initial;
+            int attempt = 1;
+            while (true) {
+                long before = segment.position;
+                try {
+                    fetchSegmentOnce(segment, response);
+                    return;
+                } catch (IOException ex) {
+                    if (resourceChanged) {
+                        throw ex;
+                    }
+                    if (segment.position > before && rangesSupported()) {
+                        attempt = 1;
+                    }
+                    awaitRetry(attempt++, ex);
+                    response = rangesSupported() ? null : restartSegment(segment);
+                }
+            }
+        }
+
+        private boolean rangesSupported() {
+            DownloadJournal current = journal;
+            return current != null && current.rangesSupported();
+        }
+
+        private HttpTransport.Response restartSegment(Segment segment) throws IOException {
+            synchronized (progressLock) {
+                downloaded -= segment.position - segment.start;
+            }
+            segment.position = segment.start;
+            currentChannel.truncate(segment.start);
+
+            HttpTransport.Response response = openResponse(null);
+            if (response.statusCode() != HttpURLConnection.HTTP_OK) {
+                activeResponses.remove(response);
+                response.close();
+                throw HttpStatusException.from(response);
+            }
+            return response;
+        }
+
+        /**
+         * Menunggu sebelum percobaan ulang, atau melempar ulang {@code ex} bila
+         * kesalahannya tidak boleh diulang atau unduhan sudah dihentikan.
+         */
+        private void awaitRetry(int attempt, IOException ex) throws IOException {
+            if (cancelled.get()) {
+                throw ex;
+            }
+            DownloadError error = classifyError(ex);
+            if (!retryPolicy.shouldRetry(attempt, error, ex)) {
+                throw ex;
+            }
+            DownloadMetrics.retry(error);
+            try {
+                Thread.sleep(retryPolicy.delayMillis(attempt, ex));
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Percobaan ulang dibatalkan.");
+            }
+            if (cancelled.get()) {
+                throw ex;
+            }
+        }
+
+        private void fetchSegmentOnce(Segment segment, HttpTransport.Response response) throws IOException {
+            if (response == null) {
+                response = openResponse(segment);
+                int statusCode = response.statusCode();
+                if (statusCode == HttpURLConnection.HTTP_OK && journal != null
+                        && journal.ifRangeValidator() != null) {
+                    resourceChanged = true;
+                    activeResponses.remove(response);
+                    response.close();
+                    throw new IOException("File di server berubah selama unduhan.");
+                }
+                if (statusCode != HttpURLConnection.HTTP_PARTIAL) {
+                    activeResponses.remove(response);
+                    response.close();
+                    throw HttpStatusException.from(response);
+                }
+            }
+
+            try (ReadableByteChannel body = response.bodyChannel()) {
+                if (cancelled.get() || Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                long length = segment.isBounded() ? segment.remaining() : -1L;
+                ChannelCopier.copy(body, currentChannel, segment.position, length, (position, bytes) -> {
+                    segment.position = position;
+                    reportProgress(bytes);
+                    return !cancelled.get() && !Thread.currentThread().isInterrupted();
+                });
+            } finally {
+                activeResponses.remove(response);
+                response.close();
+            }
+        }
+
+        private HttpTransport.Response openResponse(Segment segment) throws IOException {
+            return openResponse(segment, Map.of());
+        }
+
+        private HttpTransport.Response openResponse(Segment segment, Map<String, String> extraHeaders)
+                throws IOException {
+            if (cancelled.get()) {
+                throw new IOException("Unduhan dibatalkan.");
+            }
+
+            Map<String, String> headers = new LinkedHashMap<>(extraHeaders);
+            if (segment != null) {
+                headers.put("Range", "bytes=" + segment.position + "-" + (segment.isBounded() ? segment.end : ""));
+                DownloadJournal current = journal;
+                String validator = current != null ? current.ifRangeValidator() : null;
+                if (validator != null) {
+                    headers.put("If-Range", validator);
+                }
+            }
+
+            long requestStart = System.nanoTime();
+            HttpTransport.Response response = transport.open(url, headers);
+            DownloadMetrics.connectTime(System.nanoTime() - requestStart);
+            activeResponses.add(response);
+            if (cancelled.get()) {
+                activeResponses.remove(response);
+                response.close();
+                throw new IOException("Unduhan dibatalkan.");
+            }
+            return response;
+        }
+
+        private void reportProgress(int bytes) {
+            synchronized (progressLock) {
+                downloaded += bytes;
+                if (bytes > 0) {
+                    DownloadMetrics.bytesWritten(bytes);
+                    if (!firstByteSeen) {
+                        firstByteSeen = true;
+                        DownloadMetrics.timeToFirstByte(System.nanoTime() - startNanos);
+                    }
+                }
+                observer.onProgress(downloaded, totalBytes);
+
+                long now = System.currentTimeMillis();
+                if (now - lastJournalSave >= JOURNAL_SAVE_INTERVAL_MS) {
+                    lastJournalSave = now;
+                    try {
+                        saveJournal();
+                    } catch (IOException ignored) {
+                        // Journal hanya optimisasi; kegagalan menulisnya tidak menghentikan unduhan.
+                    }
+                }
+            }
+        }
+
+        private void saveJournal() throws IOException {
+            DownloadJournal current = journal;
+            if (current == null || !current.isResumable()) {
+                return;
+            }
+
+            List<DownloadJournal.Range> ranges = new ArrayList<>();
+            for (Segment segment : segments) {
+                ranges.add(new DownloadJournal.Range(segment.start, segment.end, segment.position));
+            }
+            current.withRanges(ranges).save(journalFile);
+        }
+
+        private void handleStopped() {
+            // Bersihkan status interrupt agar penulisan journal tidak ikut dibatalkan.
+            Thread.interrupted();
+            if (paused && journal != null && journal.isResumable()) {
+                try {
+                    saveJournal();
+                    observer.onPaused(partFile);
+                    return;
+                } catch (IOException ignored) {
+                    // Tanpa journal data parsial tidak bisa dilanjutkan, jadi perlakukan sebagai batal.
+                }
+            }
+            observer.onCancelled(destination);
+            cleanupPartialFile();
+        }
+
+        private void retainOrCleanup(DownloadError error) {
+            boolean transientError = error == DownloadError.NETWORK_INTERRUPTED
+                    || error == DownloadError.GENERAL_FAILURE;
+            if (transientError && !resourceChanged && journal != null && journal.isResumable()) {
+                try {
+                    saveJournal();
+                    return;
+                } catch (IOException ignored) {
+                }
+            }
+            cleanupPartialFile();
+        }
+
+        private void moveIntoPlace() throws IOException {
+            try {
+                Files.move(partFile, destination, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException ex) {
+                Files.move(partFile, destination, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.deleteIfExists(journalFile);
+        }
+
+        private void cancelSegments() {
+            synchronized (segmentFutures) {
+                for (Future<?> segmentFuture : segmentFutures) {
+                    segmentFuture.cancel(true);
+                }
+            }
+            disconnectAll();
+        }
+
         @Override
         public void cancel() {
+            paused = false;
+            stop();
+        }
+
+        @Override
+        public void pause() {
+            paused = true;
+            stop();
+        }
+
+        private void stop() {
             if (cancelled.compareAndSet(false, true)) {
+                cancelSegments();
                 closeResources();
                 if (future != null) {
                     future.cancel(true);
                 }
+                // Masih di antrean executor: run() tidak akan jalan, jadi kabar akhir dikirim dari sini.
+                if (started.compareAndSet(false, true)) {
+                    done = true;
+                    if (paused && Files.isRegularFile(journalFile)) {
+                        observer.onPaused(partFile);
+                    } else {
+                        observer.onCancelled(destination);
+                        cleanupPartialFile();
+                    }
+                }
             }
         }
 
@@ -202,72 +756,31 @@ public final class FileDownloader {
 
         private void cleanupPartialFile() {
             try {
-                Files.deleteIfExists(destination);
+                Files.deleteIfExists(partFile);
+                Files.deleteIfExists(journalFile);
             } catch (IOException ignored) {
 
             }
         }
 
         private void closeResources() {
-            OutputStream output = currentOutput;
-            currentOutput = null;
-            if (output != null) {
-                try {
-                    output.close();
-                } catch (IOException ignored) {
-                }
-            }
+            disconnectAll();
 
-            InputStream input = currentInput;
-            currentInput = null;
-            if (input != null) {
+            FileChannel channel = currentChannel;
+            currentChannel = null;
+            if (channel != null) {
                 try {
-                    input.close();
+                    channel.close();
                 } catch (IOException ignored) {
                 }
             }
-
-            HttpURLConnection connection = activeConnection;
-            activeConnection = null;
-            if (connection != null) {
-                connection.disconnect();
-            }
         }
 
-        private DownloadError classifyError(IOException ex) {
-            if (ex instanceof FileSystemException fse) {
-                String reason = fse.getReason();
-                if (reason != null) {
-                    String lowerReason = reason.toLowerCase();
-                    if (lowerReason.contains("space") || lowerReason.contains("disk")) {
-                        return DownloadError.INSUFFICIENT_STORAGE;
-                    }
-                    if (lowerReason.contains("denied")) {
-                        return DownloadError.PERMISSION_DENIED;
-                    }
-                }
+        private void disconnectAll() {
+            for (HttpTransport.Response response : activeResponses) {
+                activeResponses.remove(response);
+                response.close();
             }
-
-            String message = ex.getMessage();
-            if (message != null) {
-                String lowerMessage = message.toLowerCase();
-                if (lowerMessage.contains("space") || lowerMessage.contains("disk")) {
-                    return DownloadError.INSUFFICIENT_STORAGE;
-                }
-                if (lowerMessage.contains("denied") || lowerMessage.contains("permission")) {
-                    return DownloadError.PERMISSION_DENIED;
-                }
-                if (lowerMessage.contains("refused") || lowerMessage.contains("reset")
-                        || lowerMessage.contains("timed out")) {
-                    return DownloadError.NETWORK_INTERRUPTED;
-                }
-            }
-
-            if (ex instanceof ConnectException || ex instanceof SocketException) {
-                return DownloadError.NETWORK_INTERRUPTED;
-            }
-
-            return DownloadError.GENERAL_FAILURE;
         }
     }
 }
@@ -0,0 +1,539 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Riwayat unduhan persisten. Setiap entri ditambahkan ke log teks
+ * append-only ({@code history.log}, satu baris per entri) dan ke index biner
+ * berukuran tetap ({@code history.idx}: offset, panjang, waktu selesai,
+ * status dan hash URL).
+ * <p>
+ * Saat dibuka hanya index yang dibaca ke array primitif; isi log dibaca per
+ * baris saat dibutuhkan, dengan cache kecil untuk entri yang baru diakses.
+ * Dari index dibangun rantai per URL dan per status sehingga pencarian
+ * berdasarkan URL, status dan rentang waktu tidak memindai log. Waktu
+ * selesai dijaga tidak menurun agar rentang waktu bisa dicari biner.
+ * <p>
+ * Bila jumlah entri melewati {@code downloader.historyMaxEntries} (default
+ * 100000) ditambah seperempatnya, log dan index ditulis ulang hanya dengan
+ * entri terbaru. Baris log yang belum masuk index (misalnya setelah crash)
+ * diindex ulang saat dibuka.
+ */
+final class HistoryStore implements Closeable {
+
+    enum Status {
+        COMPLETED,
+        CANCELLED,
+        FAILED
+    }
+
+    /**
+     * @param message teks status untuk ditampilkan (misalnya pesan kesalahan), boleh {@code null}
+     */
+    record Entry(long completedAt, Status status, String url, String title, String format, String destination,
+            String message) {
+    }
+
+    private static final int INDEX_RECORD_BYTES = 8 + 4 + 8 + 1 + 8;
+    private static final int DEFAULT_MAX_ENTRIES = Integer.getInteger("downloader.historyMaxEntries", 100_000);
+    private static final int CACHE_ENTRIES = 1_024;
+    private static final int TAIL_CHUNK_BYTES = 1 << 20;
+    private static final Status[] STATUSES = Status.values();
+
+    private final Path logFile;
+    private final Path indexFile;
+    private final int maxEntries;
+    private FileChannel log;
+    private FileChannel index;
+
+    // Kolom index; baris ke-i adalah entri ke-i dari yang terlama.
+    private int count;
+    private long[] offsets = new long[0];
+    private int[] lengths = new int[0];
+    private long[] times = new long[0];
+    private byte[] statuses = new byte[0];
+    private long[] urlHashes = new long[0];
+    private int[] previousSameUrl = new int[0];
+    private int[] previousSameStatus = new int[0];
+    private final Map<Long, Integer> latestByUrl = new HashMap<>();
+    private final int[] latestByStatus = new int[STATUSES.length];
+    private long logEnd;
+
+    private final Map<Integer, Entry> cache = new LinkedHashMap<>(64, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+            return size() > CACHE_ENTRIES;
+        }
+    };
+
+    private HistoryStore(Path directory, int maxEntries) {
+        this.logFile = directory.resolve("history.log");
+        this.indexFile = directory.resolve("history.idx");
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    static HistoryStore open(Path directory) throws IOException {
+        return open(directory, DEFAULT_MAX_ENTRIES);
+    }
+
+    static HistoryStore open(Path directory, int maxEntries) throws IOException {
+        Files.createDirectories(directory);
+        HistoryStore store = new HistoryStore(directory, maxEntries);
+        store.openFiles();
+        return store;
+    }
+
+    private void openFiles() throws IOException {
+        log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        loadIndex();
+        recoverTail();
+    }
+
+    private void loadIndex() throws IOException {
+        count = 0;
+        Arrays.fill(latestByStatus, -1);
+        latestByUrl.clear();
+        cache.clear();
+        logEnd = 0;
+
+        long logSize = log.size();
+        int records = (int) (index.size() / INDEX_RECORD_BYTES);
+        ensureCapacity(records);
+        ByteBuffer buffer = ByteBuffer.allocate(INDEX_RECORD_BYTES * 1_024);
+        long position = 0;
+        while (count < records) {
+            buffer.clear();
+            int wanted = Math.min(buffer.capacity(), (records - count) * INDEX_RECORD_BYTES);
+            buffer.limit(wanted);
+            while (buffer.hasRemaining()) {
+                if (index.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("Index riwayat terpotong.");
+                }
+            }
+            position += wanted;
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                long offset = buffer.getLong();
+                int length = buffer.getInt();
+                long time = buffer.getLong();
+                byte status = buffer.get();
+                long urlHash = buffer.getLong();
+                // Entri yang menunjuk ke luar log (log terpotong) dan semua setelahnya dibuang.
+                if (offset < logEnd || length <= 0 || offset + length > logSize
+                        || status < 0 || status >= STATUSES.length) {
+                    index.truncate((long) count * INDEX_RECORD_BYTES);
+                    return;
+                }
+                addRow(offset, length, time, status, urlHash);
+            }
+        }
+        index.truncate((long) count * INDEX_RECORD_BYTES);
+    }
+
+    // Mengindex baris log yang ditulis setelah entri index terakhir; baris terakhir yang tidak lengkap dibuang.
+    // Log dibaca per potongan, jadi ekor yang panjang tidak perlu muat dalam satu array.
+    private void recoverTail() throws IOException {
+        long logSize = log.size();
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(TAIL_CHUNK_BYTES, Math.max(0, logSize - logEnd)));
+        while (logEnd + buffer.position() < logSize) {
+            if (!buffer.hasRemaining()) {
+                // Satu baris lebih panjang dari buffer.
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
+            }
+            int scanFrom = buffer.position();
+            if (log.read(buffer, logEnd + scanFrom) < 0) {
+                break;
+            }
+            byte[] bytes = buffer.array();
+            int lineStart = 0;
+            for (int i = scanFrom; i < buffer.position(); i++) {
+                if (bytes[i] != '\n') {
+                    continue;
+                }
+                String line = new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8);
+                Entry entry = parse(line);
+                int length = i + 1 - lineStart;
+                if (entry != null) {
+                    long time = count > 0 ? Math.max(entry.completedAt(), times[count - 1]) : entry.completedAt();
+                    writeIndexRecord(logEnd, length, time, (byte) entry.status().ordinal(), hash(entry.url()));
+                    addRow(logEnd, length, time, (byte) entry.status().ordinal(), hash(entry.url()));
+                } else {
+                    // Baris rusak dilewati tanpa masuk index.
+                    logEnd += length;
+                }
+                lineStart = i + 1;
+            }
+            buffer.flip().position(lineStart);
+            buffer.compact();
+        }
+        if (log.size() > logEnd) {
+            log.truncate(logEnd);
+        }
+    }
+
+    /**
+     * Menambahkan entri baru. Waktu selesai yang lebih kecil dari entri
+     * terakhir dinaikkan ke waktu entri terakhir.
+     */
+    synchronized Entry append(Entry entry) throws IOException {
+        ensureOpen();
+        long time = count > 0 ? Math.max(entry.completedAt(), times[count - 1]) : entry.completedAt();
+        Entry stored = time == entry.completedAt() ? entry
+                : new Entry(time, entry.status(), entry.url(), entry.title(), entry.format(), entry.destination(),
+                        entry.message());
+
+        byte[] line = format(stored).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(line);
+        long offset = logEnd;
+        while (buffer.hasRemaining()) {
+            log.write(buffer, offset + buffer.position());
+        }
+        long urlHash = hash(stored.url());
+        byte status = (byte) stored.status().ordinal();
+        writeIndexRecord(offset, line.length, time, status, urlHash);
+        addRow(offset, line.length, time, status, urlHash);
+        cache.put(count - 1, stored);
+
+        if (count > maxEntries + maxEntries / 4) {
+            compact();
+        }
+        return stored;
+    }
+
+    synchronized int size() {
+        return count;
+    }
+
+    /**
+     * @param row posisi entri, {@code 0} untuk yang terlama
+     */
+    synchronized Entry get(int row) throws IOException {
+        if (row < 0 || row >= count) {
+            throw new IndexOutOfBoundsException("Baris riwayat " + row + " dari " + count);
+        }
+        Entry entry = cache.get(row);
+        if (entry == null) {
+            entry = read(row);
+            cache.put(row, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Entri {@code [from, to)} dibaca dengan satu operasi baca dari log.
+     */
+    synchronized List<Entry> read(int from, int to) throws IOException {
+        if (from < 0 || to > count || from > to) {
+            throw new IndexOutOfBoundsException("Rentang riwayat " + from + ".." + to + " dari " + count);
+        }
+        List<Entry> result = new ArrayList<>(to - from);
+        if (from == to) {
+            return result;
+        }
+        long start = offsets[from];
+        ByteBuffer buffer = ByteBuffer.allocate((int) (offsets[to - 1] + lengths[to - 1] - start));
+        while (buffer.hasRemaining()) {
+            if (log.read(buffer, start + buffer.position()) < 0) {
+                throw new IOException("Log riwayat terpotong.");
+            }
+        }
+        byte[] bytes = buffer.array();
+        for (int row = from; row < to; row++) {
+            Entry entry = cache.get(row);
+            if (entry == null) {
+                int position = (int) (offsets[row] - start);
+                entry = parse(new String(bytes, position, lengths[row] - 1, StandardCharsets.UTF_8));
+                if (entry == null) {
+                    throw new IOException("Baris riwayat rusak pada offset " + offsets[row]);
+                }
+            }
+            result.add(entry);
+        }
+        return result;
+    }
+
+    /**
+     * Waktu selesai dari kolom index, tanpa membaca log.
+     */
+    synchronized long completedAt(int row) {
+        if (row < 0 || row >= count) {
+            throw new IndexOutOfBoundsException("Baris riwayat " + row + " dari " + count);
+        }
+        return times[row];
+    }
+
+    /**
+     * Status dari kolom index, tanpa membaca log.
+     */
+    synchronized Status status(int row) {
+        if (row < 0 || row >= count) {
+            throw new IndexOutOfBoundsException("Baris riwayat " + row + " dari " + count);
+        }
+        return STATUSES[statuses[row]];
+    }
+
+    /**
+     * Entri terbaru, paling baru lebih dulu.
+     */
+    synchronized List<Entry> recent(int limit) throws IOException {
+        List<Entry> result = new ArrayList<>(Math.min(Math.max(0, limit), count));
+        for (int row = count - 1; row >= 0 && result.size() < limit; row--) {
+            result.add(get(row));
+        }
+        return result;
+    }
+
+    /**
+     * Semua entri untuk URL ini, paling baru lebih dulu.
+     */
+    synchronized List<Entry> findByUrl(String url) throws IOException {
+        List<Entry> result = new ArrayList<>();
+        Integer latest = latestByUrl.get(hash(url));
+        for (int row = latest != null ? latest : -1; row >= 0; row = previousSameUrl[row]) {
+            Entry entry = get(row);
+            if (entry.url() != null && entry.url().equals(url)) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Entri dengan status tertentu, paling baru lebih dulu.
+     */
+    synchronized List<Entry> findByStatus(Status status, int limit) throws IOException {
+        List<Entry> result = new ArrayList<>();
+        for (int row = latestByStatus[status.ordinal()]; row >= 0 && result.size() < limit;
+                row = previousSameStatus[row]) {
+            result.add(get(row));
+        }
+        return result;
+    }
+
+    /**
+     * Entri yang selesai dalam {@code [fromMillis, toMillis)}, paling baru lebih dulu.
+     */
+    synchronized List<Entry> findBetween(long fromMillis, long toMillis, int limit) throws IOException {
+        List<Entry> result = new ArrayList<>();
+        int first = lowerBound(fromMillis);
+        for (int row = lowerBound(toMillis) - 1; row >= first && result.size() < limit; row--) {
+            result.add(get(row));
+        }
+        return result;
+    }
+
+    private int lowerBound(long time) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Menulis ulang log dan index hanya dengan {@code historyMaxEntries} entri
+     * terbaru. File baru ditulis di samping lalu dipindahkan menggantikan yang lama.
+     */
+    synchronized void compact() throws IOException {
+        ensureOpen();
+        int keepFrom = Math.max(0, count - maxEntries);
+        long start = keepFrom < count ? offsets[keepFrom] : logEnd;
+        Path tempLog = logFile.resolveSibling(logFile.getFileName() + ".tmp");
+        Path tempIndex = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (FileChannel target = FileChannel.open(tempLog, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long transferred = 0;
+            while (transferred < logEnd - start) {
+                transferred += log.transferTo(start + transferred, logEnd - start - transferred, target);
+            }
+        }
+        writeCompactedIndex(tempIndex, keepFrom, start);
+        log.close();
+        index.close();
+        // Index lama dihapus sebelum log diganti: bila proses mati sebelum index baru dipindahkan,
+        // openFiles() membangun index dari log alih-alih memakai index yang menunjuk ke log lain.
+        Files.deleteIfExists(indexFile);
+        move(tempLog, logFile);
+        move(tempIndex, indexFile);
+        openFiles();
+    }
+
+    // Index untuk log hasil kompaksi disusun dari kolom di memori dengan offset digeser ke awal log baru.
+    private void writeCompactedIndex(Path target, int keepFrom, long start) throws IOException {
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(INDEX_RECORD_BYTES * 1_024);
+            for (int row = keepFrom; row < count; row++) {
+                buffer.putLong(offsets[row] - start).putInt(lengths[row]).putLong(times[row]).put(statuses[row])
+                        .putLong(urlHashes[row]);
+                if (!buffer.hasRemaining() || row == count - 1) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    buffer.clear();
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (log != null) {
+            log.close();
+            index.close();
+            log = null;
+            index = null;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (log == null) {
+            throw new IOException("Riwayat sudah ditutup.");
+        }
+    }
+
+    private Entry read(int row) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(lengths[row]);
+        while (buffer.hasRemaining()) {
+            if (log.read(buffer, offsets[row] + buffer.position()) < 0) {
+                throw new IOException("Log riwayat terpotong.");
+            }
+        }
+        String line = new String(buffer.array(), 0, buffer.limit() - 1, StandardCharsets.UTF_8);
+        Entry entry = parse(line);
+        if (entry == null) {
+            throw new IOException("Baris riwayat rusak pada offset " + offsets[row]);
+        }
+        return entry;
+    }
+
+    private void writeIndexRecord(long offset, int length, long time, byte status, long urlHash) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(INDEX_RECORD_BYTES);
+        record.putLong(offset).putInt(length).putLong(time).put(status).putLong(urlHash).flip();
+        long position = (long) count * INDEX_RECORD_BYTES;
+        while (record.hasRemaining()) {
+            index.write(record, position + record.position());
+        }
+    }
+
+    private void addRow(long offset, int length, long time, byte status, long urlHash) {
+        ensureCapacity(count + 1);
+        int row = count++;
+        offsets[row] = offset;
+        lengths[row] = length;
+        times[row] = time;
+        statuses[row] = status;
+        urlHashes[row] = urlHash;
+        Integer previous = latestByUrl.put(urlHash, row);
+        previousSameUrl[row] = previous != null ? previous : -1;
+        previousSameStatus[row] = latestByStatus[status];
+        latestByStatus[status] = row;
+        logEnd = offset + length;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= offsets.length) {
+            return;
+        }
+        int capacity = Math.max(needed, Math.max(16, offsets.length + (offsets.length >> 1)));
+        offsets = Arrays.copyOf(offsets, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        times = Arrays.copyOf(times, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        urlHashes = Arrays.copyOf(urlHashes, capacity);
+        previousSameUrl = Arrays.copyOf(previousSameUrl, capacity);
+        previousSameStatus = Arrays.copyOf(previousSameStatus, capacity);
+    }
+
+    private static String format(Entry entry) {
+        return String.join("\t", Long.toString(entry.completedAt()), entry.status().name(), escape(entry.url()),
+                escape(entry.title()), escape(entry.format()), escape(entry.destination()),
+                escape(entry.message())) + "\n";
+    }
+
+    private static Entry parse(String line) {
+        String[] fields = line.split("\t", -1);
+        if (fields.length != 7) {
+            return null;
+        }
+        try {
+            return new Entry(Long.parseLong(fields[0]), Status.valueOf(fields[1]), unescape(fields[2]),
+                    unescape(fields[3]), unescape(fields[4]), unescape(fields[5]), unescape(fields[6]));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    // FNV-1a 64-bit; tabrakan hash diperiksa ulang dengan membandingkan URL aslinya.
+    private static long hash(String url) {
+        long hash = 0xcbf29ce484222325L;
+        if (url != null) {
+            for (int i = 0; i < url.length(); i++) {
+                hash ^= url.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String value) {
+        if (value.isEmpty()) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                sb.append(switch (next) {
+                    case 't' -> '\t';
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> next;
+                });
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,490 @@
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Model tabel riwayat di atas {@link HistoryStore}. Baris tidak disalin ke
+ * memori: isi baris dibaca per halaman dari log di background dan disimpan
+ * di cache halaman LRU; selama halaman dimuat sel menampilkan teks sementara.
+ * <p>
+ * Entri baru dari {@link #add(HistoryStore.Entry)} langsung terlihat dari
+ * memori sambil ditulis berurutan ke store. Beberapa entri yang selesai
+ * berdekatan digabung menjadi satu {@code fireTableRowsInserted}.
+ * Pengurutan dan filter dihitung di background lalu dipasang sebagai
+ * pemetaan baris tampilan ke baris model.
+ * <p>
+ * Semua method publik dipanggil dari EDT.
+ */
+final class HistoryTableModel extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int COLUMN_TITLE = 0;
+    static final int COLUMN_FORMAT = 1;
+    static final int COLUMN_DESTINATION = 2;
+    static final int COLUMN_TIME = 3;
+    static final int COLUMN_STATUS = 4;
+
+    private static final String[] COLUMNS = { "Judul", "Format", "Tujuan", "Waktu", "Status" };
+    private static final String LOADING = "Memuat...";
+    private static final int PAGE_SIZE = 128;
+    private static final int CACHED_PAGES = 64;
+    private static final int SCAN_CHUNK = 4_096;
+    private static final int BATCH_DELAY_MS = 100;
+
+    private final transient ExecutorService executor;
+    private final transient DateTimeFormatter timeFormatter;
+    private final transient Timer batchTimer;
+    private transient HistoryStore store;
+    private transient volatile HistoryStore writeTarget;
+    private transient CompletableFuture<?> writes;
+
+    // Baris model: [0, persisted) ada di store, sisanya masih di unsaved menunggu ditulis.
+    private int persisted;
+    private final transient List<HistoryStore.Entry> unsaved = new ArrayList<>();
+    private int published;
+    private int dataVersion;
+
+    private final transient Map<Integer, HistoryStore.Entry[]> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, HistoryStore.Entry[]> eldest) {
+            return size() > CACHED_PAGES;
+        }
+    };
+    private final transient Set<Integer> loadingPages = new HashSet<>();
+    private final transient Map<Integer, List<Runnable>> pageWaiters = new HashMap<>();
+
+    // Pemetaan baris tampilan ke baris model; null berarti urutan asli tanpa filter.
+    private int[] view;
+    private int sortColumn = -1;
+    private boolean ascending = true;
+    private String filter = "";
+    private int viewGeneration;
+
+    HistoryTableModel(CompletableFuture<HistoryStore> storeFuture, ExecutorService executor,
+            DateTimeFormatter timeFormatter) {
+        this.executor = executor;
+        this.timeFormatter = timeFormatter;
+        this.batchTimer = new Timer(BATCH_DELAY_MS, event -> publishPending());
+        batchTimer.setRepeats(false);
+        // Langkah pertama rantai tulis: ukuran store dicatat sebelum entri baru ditulis.
+        this.writes = storeFuture.handle((opened, error) -> {
+            if (opened == null) {
+                return null;
+            }
+            writeTarget = opened;
+            int size = opened.size();
+            SwingUtilities.invokeLater(() -> attach(opened, size));
+            return null;
+        });
+    }
+
+    private void attach(HistoryStore opened, int size) {
+        store = opened;
+        persisted = size;
+        published = persisted + unsaved.size();
+        batchTimer.stop();
+        dataVersion++;
+        pages.clear();
+        if (view != null) {
+            refreshView();
+        }
+        fireTableDataChanged();
+    }
+
+    @Override
+    public int getRowCount() {
+        return view != null ? view.length : published;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        if (column == sortColumn) {
+            return COLUMNS[column] + (ascending ? " \u25B2" : " \u25BC");
+        }
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return String.class;
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        HistoryStore.Entry entry = cachedEntry(modelRow(row));
+        if (entry == null) {
+            return column == COLUMN_TITLE ? LOADING : "";
+        }
+        return columnText(entry, column);
+    }
+
+    /**
+     * Menjalankan {@code action} di EDT dengan entri pada baris tampilan
+     * {@code row}, atau {@code null}. Bila halamannya belum dimuat, action
+     * menunggu pemuat halaman di background.
+     */
+    void entryAt(int row, Consumer<HistoryStore.Entry> action) {
+        if (row < 0 || row >= getRowCount()) {
+            action.accept(null);
+            return;
+        }
+        int modelRow = modelRow(row);
+        HistoryStore.Entry entry = cachedEntry(modelRow);
+        if (entry != null || store == null || modelRow >= persisted) {
+            action.accept(entry);
+            return;
+        }
+        int version = dataVersion;
+        pageWaiters.computeIfAbsent(modelRow / PAGE_SIZE, page -> new ArrayList<>())
+                .add(() -> action.accept(version == dataVersion ? cachedEntry(modelRow) : null));
+    }
+
+    /**
+     * Menambahkan entri baru. Baris terlihat setelah jeda singkat bersama
+     * entri lain yang selesai berdekatan.
+     */
+    void add(HistoryStore.Entry entry) {
+        unsaved.add(entry);
+        // Kegagalan tulis sebelumnya tidak boleh memutus rantai untuk entri berikutnya.
+        writes = writes.handle((ignored, error) -> null).thenRunAsync(() -> write(entry), executor);
+        if (!batchTimer.isRunning()) {
+            batchTimer.start();
+        }
+    }
+
+    private void write(HistoryStore.Entry entry) {
+        HistoryStore target = writeTarget;
+        if (target == null) {
+            SwingUtilities.invokeLater(() -> written(entry, -1));
+            return;
+        }
+        int size;
+        try {
+            target.append(entry);
+            size = target.size();
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("Gagal menyimpan riwayat unduhan: " + ex.getMessage());
+            size = -1;
+        }
+        int sizeAfter = size;
+        SwingUtilities.invokeLater(() -> written(entry, sizeAfter));
+    }
+
+    private void written(HistoryStore.Entry entry, int sizeAfter) {
+        unsaved.remove(entry);
+        if (sizeAfter == persisted + 1) {
+            // Baris yang sama kini dibaca dari store; jumlah baris tidak berubah.
+            HistoryStore.Entry[] page = pages.get(persisted / PAGE_SIZE);
+            if (page != null && page.length == persisted % PAGE_SIZE) {
+                page = Arrays.copyOf(page, page.length + 1);
+                page[page.length - 1] = entry;
+                pages.put(persisted / PAGE_SIZE, page);
+            }
+            persisted = sizeAfter;
+            return;
+        }
+        // Kompaksi store atau gagal tulis: nomor baris berubah, muat ulang semuanya.
+        if (sizeAfter >= 0) {
+            persisted = sizeAfter;
+        }
+        published = persisted + unsaved.size();
+        batchTimer.stop();
+        dataVersion++;
+        pages.clear();
+        if (view != null) {
+            view = new int[0];
+            refreshView();
+        }
+        fireTableDataChanged();
+    }
+
+    private void publishPending() {
+        int total = persisted + unsaved.size();
+        if (total <= published) {
+            return;
+        }
+        int first = published;
+        published = total;
+        if (view == null) {
+            fireTableRowsInserted(first, total - 1);
+            return;
+        }
+        if (sortColumn >= 0 && !(sortColumn == COLUMN_TIME && ascending)) {
+            refreshView();
+            return;
+        }
+        // Urutan asli dengan filter: baris baru cukup dicek lalu ditambahkan di akhir.
+        int[] added = new int[total - first];
+        int matches = 0;
+        for (int row = first; row < total; row++) {
+            HistoryStore.Entry entry = cachedEntry(row);
+            if (entry == null) {
+                refreshView();
+                return;
+            }
+            if (matches(entry, filter)) {
+                added[matches++] = row;
+            }
+        }
+        if (matches > 0) {
+            int oldLength = view.length;
+            view = Arrays.copyOf(view, oldLength + matches);
+            System.arraycopy(added, 0, view, oldLength, matches);
+            fireTableRowsInserted(oldLength, view.length - 1);
+        }
+    }
+
+    /**
+     * Klik header: urut naik, urut turun, lalu kembali ke urutan asli.
+     */
+    void toggleSort(int column) {
+        if (column < 0 || column >= COLUMNS.length) {
+            return;
+        }
+        if (sortColumn != column) {
+            sortColumn = column;
+            ascending = true;
+        } else if (ascending) {
+            ascending = false;
+        } else {
+            sortColumn = -1;
+            ascending = true;
+        }
+        refreshView();
+    }
+
+    void setFilter(String text) {
+        String normalized = text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+        if (normalized.equals(filter)) {
+            return;
+        }
+        filter = normalized;
+        refreshView();
+    }
+
+    private void refreshView() {
+        int generation = ++viewGeneration;
+        boolean natural = sortColumn < 0 || (sortColumn == COLUMN_TIME && ascending);
+        if (natural && filter.isEmpty()) {
+            if (view != null) {
+                view = null;
+                fireTableDataChanged();
+            }
+            return;
+        }
+
+        HistoryStore source = store;
+        int storedRows = Math.min(persisted, published);
+        List<HistoryStore.Entry> memoryRows = new ArrayList<>(unsaved.subList(0, published - storedRows));
+        int column = sortColumn;
+        boolean up = ascending;
+        String query = filter;
+        CompletableFuture.supplyAsync(() -> computeView(source, storedRows, memoryRows, column, up, query), executor)
+                .whenComplete((computed, error) -> SwingUtilities.invokeLater(() -> {
+                    if (generation != viewGeneration) {
+                        return;
+                    }
+                    if (error != null) {
+                        System.err.println("Gagal mengurutkan riwayat: " + error.getMessage());
+                        return;
+                    }
+                    view = computed;
+                    fireTableDataChanged();
+                    if (storedRows + memoryRows.size() < published) {
+                        refreshView();
+                    }
+                }));
+    }
+
+    // Berjalan di background; hanya membaca log bila filter atau kolom urut membutuhkan isi baris.
+    private int[] computeView(HistoryStore source, int storedRows, List<HistoryStore.Entry> memoryRows, int column,
+            boolean up, String query) {
+        int total = storedRows + memoryRows.size();
+        boolean needsEntries = !query.isEmpty() || (column >= 0 && column != COLUMN_TIME);
+        String[] keys = column >= 0 && column != COLUMN_TIME ? new String[total] : null;
+        int[] rows = new int[total];
+        int size = 0;
+        try {
+            for (int from = 0; from < total; from += SCAN_CHUNK) {
+                int to = Math.min(total, from + SCAN_CHUNK);
+                List<HistoryStore.Entry> chunk = null;
+                if (needsEntries) {
+                    chunk = new ArrayList<>(to - from);
+                    if (from < storedRows) {
+                        chunk.addAll(source.read(from, Math.min(to, storedRows)));
+                    }
+                    for (int row = Math.max(from, storedRows); row < to; row++) {
+                        chunk.add(memoryRows.get(row - storedRows));
+                    }
+                }
+                for (int row = from; row < to; row++) {
+                    HistoryStore.Entry entry = chunk != null ? chunk.get(row - from) : null;
+                    if (entry != null && !matches(entry, query)) {
+                        continue;
+                    }
+                    if (keys != null) {
+                        keys[row] = columnText(entry, column).toLowerCase(Locale.ROOT);
+                    }
+                    rows[size++] = row;
+                }
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex.getMessage(), ex);
+        }
+
+        int[] result = Arrays.copyOf(rows, size);
+        if (column < 0) {
+            return result;
+        }
+        if (column == COLUMN_TIME) {
+            // Baris model sudah urut waktu; urut turun cukup dibalik.
+            if (!up) {
+                for (int i = 0, j = result.length - 1; i < j; i++, j--) {
+                    int swap = result[i];
+                    result[i] = result[j];
+                    result[j] = swap;
+                }
+            }
+            return result;
+        }
+        Integer[] boxed = new Integer[result.length];
+        for (int i = 0; i < result.length; i++) {
+            boxed[i] = result[i];
+        }
+        Comparator<Integer> byKey = Comparator.comparing(row -> keys[row]);
+        Arrays.sort(boxed, up ? byKey.thenComparing(Comparator.naturalOrder())
+                : byKey.reversed().thenComparing(Comparator.reverseOrder()));
+        for (int i = 0; i < boxed.length; i++) {
+            result[i] = boxed[i];
+        }
+        return result;
+    }
+
+    private int modelRow(int row) {
+        return view != null ? view[row] : row;
+    }
+
+    private HistoryStore.Entry cachedEntry(int modelRow) {
+        if (modelRow >= persisted) {
+            int index = modelRow - persisted;
+            return index < unsaved.size() ? unsaved.get(index) : null;
+        }
+        int page = modelRow / PAGE_SIZE;
+        HistoryStore.Entry[] entries = pages.get(page);
+        if (entries == null) {
+            requestPage(page);
+            return null;
+        }
+        int index = modelRow - page * PAGE_SIZE;
+        if (index >= entries.length) {
+            // Halaman dibaca sebelum baris ini tersimpan; muat ulang sampai batas store sekarang.
+            requestPage(page);
+            return null;
+        }
+        return entries[index];
+    }
+
+    private void requestPage(int page) {
+        HistoryStore source = store;
+        if (source == null || !loadingPages.add(page)) {
+            return;
+        }
+        int version = dataVersion;
+        int from = page * PAGE_SIZE;
+        int to = Math.min(persisted, from + PAGE_SIZE);
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return source.read(from, to).toArray(new HistoryStore.Entry[0]);
+            } catch (IOException | RuntimeException ex) {
+                System.err.println("Gagal membaca riwayat: " + ex.getMessage());
+                return null;
+            }
+        }, executor).thenAccept(entries -> SwingUtilities.invokeLater(() -> {
+            loadingPages.remove(page);
+            List<Runnable> waiters = pageWaiters.remove(page);
+            if (version == dataVersion && entries != null) {
+                pageLoaded(page, entries, from, to);
+            }
+            if (waiters != null) {
+                waiters.forEach(Runnable::run);
+            }
+        }));
+    }
+
+    private void pageLoaded(int page, HistoryStore.Entry[] entries, int from, int to) {
+        pages.put(page, entries);
+        if (view == null) {
+            int last = Math.min(to, published) - 1;
+            if (last >= from) {
+                fireTableRowsUpdated(from, last);
+            }
+        } else if (view.length > 0) {
+            fireTableRowsUpdated(0, view.length - 1);
+        }
+    }
+
+    private String columnText(HistoryStore.Entry entry, int column) {
+        return switch (column) {
+            case COLUMN_TITLE -> nullToDash(entry.title());
+            case COLUMN_FORMAT -> nullToDash(entry.format());
+            case COLUMN_DESTINATION -> nullToDash(entry.destination());
+            case COLUMN_TIME -> timeFormatter.format(
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.completedAt()), ZoneId.systemDefault()));
+            case COLUMN_STATUS -> statusText(entry);
+            default -> "";
+        };
+    }
+
+    static String statusText(HistoryStore.Entry entry) {
+        return switch (entry.status()) {
+            case COMPLETED -> "Berhasil";
+            case CANCELLED -> "Dibatalkan";
+            case FAILED -> entry.message() != null ? entry.message() : "Gagal";
+        };
+    }
+
+    private static boolean matches(HistoryStore.Entry entry, String query) {
+        return query.isEmpty() || contains(entry.title(), query) || contains(entry.destination(), query)
+                || contains(entry.format(), query) || contains(entry.url(), query)
+                || contains(statusText(entry), query);
+    }
+
+    private static boolean contains(String value, String query) {
+        return value != null && value.toLowerCase(Locale.ROOT).contains(query);
+    }
+
+    private static String nullToDash(String value) {
+        return value == null || value.isEmpty() ? "-" : value;
+    }
+}
@@ -0,0 +1,106 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+
+/**
+ * Transport berbasis satu {@link HttpClient} yang dipakai bersama oleh semua
+ * unduhan, sehingga koneksi TCP/TLS ke host yang sama dipakai ulang dan
+ * beberapa range ke server HTTP/2 dimultipleks dalam satu koneksi.
+ */
+public final class HttpClientTransport implements HttpTransport {
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(15);
+    private static final Duration RESPONSE_TIMEOUT = Duration.ofSeconds(30);
+    private static final long READ_TIMEOUT_MS = 30_000;
+
+    private final HttpClient client;
+
+    public HttpClientTransport() {
+        this(HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(CONNECT_TIMEOUT)
+                .build());
+    }
+
+    public HttpClientTransport(HttpClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public Response open(String url, Map<String, String> headers) throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .timeout(RESPONSE_TIMEOUT)
+                .GET();
+        headers.forEach(builder::header);
+
+        CompletableFuture<HttpResponse<Flow.Publisher<List<ByteBuffer>>>> pending = client.sendAsync(
+                builder.build(), HttpResponse.BodyHandlers.ofPublisher());
+        try {
+            return new HttpClientResponse(pending.get());
+        } catch (InterruptedException ex) {
+            pending.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Permintaan HTTP dibatalkan.");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static final class HttpClientResponse implements Response {
+        private final HttpResponse<Flow.Publisher<List<ByteBuffer>>> response;
+        private final PublisherBodyChannel channel = new PublisherBodyChannel(READ_TIMEOUT_MS);
+
+        HttpClientResponse(HttpResponse<Flow.Publisher<List<ByteBuffer>>> response) {
+            this.response = response;
+            response.body().subscribe(channel);
+        }
+
+        @Override
+        public int statusCode() {
+            return response.statusCode();
+        }
+
+        @Override
+        public long contentLength() {
+            return response.headers().firstValueAsLong("Content-Length").orElse(-1L);
+        }
+
+        @Override
+        public String header(String name) {
+            return response.headers().firstValue(name).orElse(null);
+        }
+
+        @Override
+        public InputStream body() {
+            return Channels.newInputStream(channel);
+        }
+
+        @Override
+        public ReadableByteChannel bodyChannel() {
+            return channel;
+        }
+
+        @Override
+        public void close() {
+            channel.close();
+        }
+    }
+}
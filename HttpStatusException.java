@@ -0,0 +1,57 @@
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Respons HTTP dengan status yang tidak diharapkan. Menyimpan kode status
+ * dan nilai {@code Retry-After} (bila ada) untuk {@link RetryPolicy}.
+ */
+final class HttpStatusException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+    private final long retryAfterMillis;
+
+    HttpStatusException(int statusCode, long retryAfterMillis) {
+        super("Server returned HTTP " + statusCode);
+        this.statusCode = statusCode;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    static HttpStatusException from(HttpTransport.Response response) {
+        return new HttpStatusException(response.statusCode(), parseRetryAfter(response.header("Retry-After")));
+    }
+
+    int statusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return jeda dari header {@code Retry-After} dalam milidetik, atau
+     *         {@code -1} bila header tidak ada atau tidak valid
+     */
+    long retryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    // Retry-After bisa berupa jumlah detik atau HTTP-date (RFC 9110).
+    static long parseRetryAfter(String value) {
+        if (value == null || value.isBlank()) {
+            return -1L;
+        }
+        String trimmed = value.trim();
+        try {
+            return Math.max(0L, Long.parseLong(trimmed) * 1000L);
+        } catch (NumberFormatException ignored) {
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0L, Duration.between(ZonedDateTime.now(at.getZone()), at).toMillis());
+        } catch (DateTimeParseException ex) {
+            return -1L;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Lapisan transport HTTP yang dipakai {@link FileDownloader}. Implementasi
+ * bawaan adalah {@link HttpClientTransport} (satu {@code HttpClient} bersama
+ * dengan connection reuse dan HTTP/2); {@link UrlConnectionTransport} tetap
+ * tersedia lewat {@code -Ddownloader.transport=urlconnection}.
+ */
+public interface HttpTransport {
+
+    /**
+     * Mengirim GET dan menunggu sampai header respons diterima.
+     */
+    Response open(String url, Map<String, String> headers) throws IOException;
+
+    interface Response extends Closeable {
+        int statusCode();
+
+        long contentLength();
+
+        String header(String name);
+
+        InputStream body() throws IOException;
+
+        /**
+         * Body sebagai channel untuk {@link ChannelCopier}. Implementasi yang
+         * punya akses ke buffer transport sebaiknya meng-override ini agar
+         * tidak ada salinan ke {@code byte[]}.
+         */
+        default ReadableByteChannel bodyChannel() throws IOException {
+            return Channels.newChannel(body());
+        }
+
+        /**
+         * Menutup koneksi, termasuk saat body belum selesai dibaca.
+         */
+        @Override
+        void close();
+    }
+
+    static HttpTransport fromSystemProperty() {
+        String name = System.getProperty("downloader.transport", "httpclient").toLowerCase(Locale.ROOT);
+        return switch (name) {
+            case "urlconnection" -> new UrlConnectionTransport();
+            default -> new HttpClientTransport();
+        };
+    }
+}
@@ -1,5 +1,15 @@
 public class Main {
     public static void main(String[] args) {
+        // Dengan argumen aplikasi berjalan sebagai CLI atau server tanpa memuat Swing.
+        if (args.length > 0 && "--serve".equals(args[0])) {
+            DownloadDaemon.main(args);
+            return;
+        }
+        if (args.length > 0) {
+            DownloaderCli.main(args);
+            return;
+        }
+        DownloadMetrics.installShutdownExport();
         javax.swing.SwingUtilities.invokeLater(() -> {
             DownloaderGUI downloaderGUI = new DownloaderGUI();
             downloaderGUI.setVisible(true);
@@ -0,0 +1,260 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry counter, gauge dan histogram sederhana tanpa dependensi.
+ * Snapshot dapat diekspor sebagai teks format Prometheus atau JSON.
+ * <p>
+ * Label diberikan berpasangan: {@code counter("x", "...", "error", "GENERAL_FAILURE")}.
+ * Pemanggilan berulang dengan nama dan label yang sama mengembalikan instance
+ * yang sama.
+ */
+final class MetricsRegistry {
+
+    enum Type {
+        COUNTER, GAUGE, HISTOGRAM
+    }
+
+    static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        void increment() {
+            value.increment();
+        }
+
+        void add(long amount) {
+            value.add(amount);
+        }
+
+        long value() {
+            return value.sum();
+        }
+    }
+
+    static final class Gauge {
+        private final AtomicLong value = new AtomicLong();
+
+        void increment() {
+            value.incrementAndGet();
+        }
+
+        void decrement() {
+            value.decrementAndGet();
+        }
+
+        void add(long delta) {
+            value.addAndGet(delta);
+        }
+
+        void set(long newValue) {
+            value.set(newValue);
+        }
+
+        long value() {
+            return value.get();
+        }
+    }
+
+    static final class Histogram {
+        private final double[] bounds;
+        private final LongAdder[] buckets;
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+
+        Histogram(double[] bounds) {
+            this.bounds = bounds.clone();
+            Arrays.sort(this.bounds);
+            this.buckets = new LongAdder[this.bounds.length];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void observe(double value) {
+            for (int i = 0; i < bounds.length; i++) {
+                if (value <= bounds[i]) {
+                    buckets[i].increment();
+                    break;
+                }
+            }
+            count.increment();
+            sum.add(value);
+        }
+
+        long count() {
+            return count.sum();
+        }
+
+        double sum() {
+            return sum.sum();
+        }
+    }
+
+    private static final class Family {
+        final String name;
+        final String help;
+        final Type type;
+        final Map<String, Object> series = new LinkedHashMap<>();
+        final Map<String, String[]> labels = new LinkedHashMap<>();
+
+        Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    Counter counter(String name, String help, String... labels) {
+        return (Counter) series(name, help, Type.COUNTER, labels, null);
+    }
+
+    Gauge gauge(String name, String help, String... labels) {
+        return (Gauge) series(name, help, Type.GAUGE, labels, null);
+    }
+
+    Histogram histogram(String name, String help, double[] bounds, String... labels) {
+        return (Histogram) series(name, help, Type.HISTOGRAM, labels, bounds);
+    }
+
+    private synchronized Object series(String name, String help, Type type, String[] labels, double[] bounds) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Label harus berpasangan: " + Arrays.toString(labels));
+        }
+        Family family = families.computeIfAbsent(name, key -> new Family(name, help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metrik " + name + " sudah terdaftar sebagai " + family.type);
+        }
+
+        String key = String.join("\u0000", labels);
+        Object existing = family.series.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        Object created = switch (type) {
+            case COUNTER -> new Counter();
+            case GAUGE -> new Gauge();
+            case HISTOGRAM -> new Histogram(bounds);
+        };
+        family.series.put(key, created);
+        family.labels.put(key, labels.clone());
+        return created;
+    }
+
+    synchronized String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+        for (Family family : families.values()) {
+            out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ')
+                    .append(family.type.name().toLowerCase(Locale.ROOT)).append('\n');
+
+            for (Map.Entry<String, Object> entry : family.series.entrySet()) {
+                String[] labels = family.labels.get(entry.getKey());
+                Object metric = entry.getValue();
+                if (metric instanceof Counter counter) {
+                    sample(out, family.name, labels, null, counter.value());
+                } else if (metric instanceof Gauge gauge) {
+                    sample(out, family.name, labels, null, gauge.value());
+                } else if (metric instanceof Histogram histogram) {
+                    long cumulative = 0;
+                    for (int i = 0; i < histogram.bounds.length; i++) {
+                        cumulative += histogram.buckets[i].sum();
+                        sample(out, family.name + "_bucket", labels, prometheusNumber(histogram.bounds[i]),
+                                cumulative);
+                    }
+                    sample(out, family.name + "_bucket", labels, "+Inf", histogram.count());
+                    sample(out, family.name + "_sum", labels, null, histogram.sum());
+                    sample(out, family.name + "_count", labels, null, histogram.count());
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    private static void sample(StringBuilder out, String name, String[] labels, String le, double value) {
+        out.append(name);
+        List<String> pairs = new ArrayList<>();
+        for (int i = 0; i < labels.length; i += 2) {
+            pairs.add(labels[i] + "=\"" + escapeLabel(labels[i + 1]) + "\"");
+        }
+        if (le != null) {
+            pairs.add("le=\"" + le + "\"");
+        }
+        if (!pairs.isEmpty()) {
+            out.append('{').append(String.join(",", pairs)).append('}');
+        }
+        out.append(' ').append(prometheusNumber(value)).append('\n');
+    }
+
+    private static String prometheusNumber(double value) {
+        String number = Json.number(value);
+        return "null".equals(number) ? "NaN" : number;
+    }
+
+    private static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    synchronized String toJson() {
+        StringBuilder out = new StringBuilder("{");
+        boolean firstFamily = true;
+        for (Family family : families.values()) {
+            if (!firstFamily) {
+                out.append(',');
+            }
+            firstFamily = false;
+            out.append(Json.quote(family.name)).append(":{\"type\":")
+                    .append(Json.quote(family.type.name().toLowerCase(Locale.ROOT)))
+                    .append(",\"help\":").append(Json.quote(family.help)).append(",\"series\":[");
+
+            boolean firstSeries = true;
+            for (Map.Entry<String, Object> entry : family.series.entrySet()) {
+                if (!firstSeries) {
+                    out.append(',');
+                }
+                firstSeries = false;
+
+                String[] labels = family.labels.get(entry.getKey());
+                out.append("{\"labels\":{");
+                for (int i = 0; i < labels.length; i += 2) {
+                    if (i > 0) {
+                        out.append(',');
+                    }
+                    out.append(Json.quote(labels[i])).append(':').append(Json.quote(labels[i + 1]));
+                }
+                out.append('}');
+
+                Object metric = entry.getValue();
+                if (metric instanceof Counter counter) {
+                    out.append(",\"value\":").append(counter.value());
+                } else if (metric instanceof Gauge gauge) {
+                    out.append(",\"value\":").append(gauge.value());
+                } else if (metric instanceof Histogram histogram) {
+                    out.append(",\"count\":").append(histogram.count())
+                            .append(",\"sum\":").append(Json.number(histogram.sum()))
+                            .append(",\"buckets\":{");
+                    long cumulative = 0;
+                    for (int i = 0; i < histogram.bounds.length; i++) {
+                        cumulative += histogram.buckets[i].sum();
+                        if (i > 0) {
+                            out.append(',');
+                        }
+                        out.append(Json.quote(Json.number(histogram.bounds[i]))).append(':').append(cumulative);
+                    }
+                    out.append('}');
+                }
+                out.append('}');
+            }
+            out.append("]}");
+        }
+        return out.append('}').toString();
+    }
+}
@@ -0,0 +1,293 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Unduhan playlist/channel lewat yt-dlp. Daftar video diambil sekali dengan
+ * {@code --flat-playlist}, lalu tiap video dijalankan sebagai pekerjaan
+ * {@link YtDlpHelper} sendiri dengan jumlah pekerjaan bersamaan terbatas
+ * ({@code downloader.playlistConcurrency}, default 4). Progres digabung
+ * dari semua video dan hasil tiap video dilaporkan terpisah.
+ */
+public final class PlaylistDownloader {
+
+    public record Entry(int index, String id, String url, String title) {
+    }
+
+    /**
+     * Hasil satu video; {@code error} bernilai {@code null} bila berhasil.
+     */
+    public record EntryResult(Entry entry, Path producedFile, String error) {
+        public boolean succeeded() {
+            return error == null;
+        }
+    }
+
+    public interface Observer {
+        void onExpanded(List<Entry> entries);
+
+        /**
+         * @param percent rata-rata progres semua video (video yang gagal dihitung selesai)
+         */
+        void onProgress(int finishedEntries, int totalEntries, int percent);
+
+        void onEntryFinished(EntryResult result);
+
+        void onCompleted(List<EntryResult> results);
+
+        void onCancelled();
+
+        void onFailed(String message);
+    }
+
+    private static final int DEFAULT_CONCURRENCY = Integer.getInteger("downloader.playlistConcurrency", 4);
+    private static final ExecutorService EXPANDERS = DownloadExecutors.newBoundedExecutor("playlist-expand");
+
+    private PlaylistDownloader() {
+    }
+
+    public static YtDlpHelper.Handle download(String url, Path outDir, String format, Observer observer) {
+        return download(url, outDir, format, YtDlpOptions.fromSystemProperties(), DEFAULT_CONCURRENCY, observer);
+    }
+
+    public static YtDlpHelper.Handle download(String url, Path outDir, String format, YtDlpOptions options,
+            int concurrency, Observer observer) {
+        Run run = new Run(url, outDir, format, options, Math.max(1, concurrency), observer);
+        EXPANDERS.execute(run::expand);
+        return run;
+    }
+
+    private static final class Run implements YtDlpHelper.Handle {
+        private final String url;
+        private final Path outDir;
+        private final String format;
+        private final YtDlpOptions options;
+        private final int concurrency;
+        private final Observer observer;
+        private final Map<Integer, YtDlpHelper.Handle> active = new HashMap<>();
+        private List<Entry> entries = List.of();
+        private int[] percents = new int[0];
+        private EntryResult[] results = new EntryResult[0];
+        private int nextEntry;
+        private int finished;
+        private int reported;
+        private boolean cancelled;
+        private boolean done;
+
+        Run(String url, Path outDir, String format, YtDlpOptions options, int concurrency, Observer observer) {
+            this.url = url;
+            this.outDir = outDir;
+            this.format = format;
+            this.options = options;
+            this.concurrency = concurrency;
+            this.observer = observer;
+        }
+
+        void expand() {
+            List<Entry> expanded;
+            try {
+                expanded = YtDlpHelper.expandPlaylist(url);
+            } catch (IOException ex) {
+                if (markDone()) {
+                    observer.onFailed("Gagal membaca playlist: " + ex.getMessage());
+                }
+                return;
+            }
+
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                entries = List.copyOf(expanded);
+                percents = new int[entries.size()];
+                results = new EntryResult[entries.size()];
+            }
+            observer.onExpanded(entries);
+            if (entries.isEmpty()) {
+                if (markDone()) {
+                    observer.onCompleted(List.of());
+                }
+                return;
+            }
+            for (int i = 0; i < concurrency; i++) {
+                launchNext();
+            }
+        }
+
+        private void launchNext() {
+            Entry entry;
+            synchronized (this) {
+                if (cancelled || nextEntry >= entries.size()) {
+                    return;
+                }
+                entry = entries.get(nextEntry++);
+            }
+
+            int slot = entry.index() - 1;
+            YtDlpHelper.Observer entryObserver = new EntryObserver(slot);
+            YtDlpHelper.Handle handle = "mp3".equalsIgnoreCase(format)
+                    ? YtDlpHelper.downloadMp3(entry.url(), outDir, null, options, entryObserver)
+                    : YtDlpHelper.downloadMp4(entry.url(), outDir, null, options, entryObserver);
+
+            boolean cancelNow;
+            synchronized (this) {
+                cancelNow = cancelled;
+                if (!cancelNow && results[slot] == null) {
+                    active.put(slot, handle);
+                }
+            }
+            if (cancelNow) {
+                handle.cancel();
+            }
+        }
+
+        private void entryProgress(int slot, int percent) {
+            int finishedNow;
+            int total;
+            long sum = 0;
+            synchronized (this) {
+                if (done || results[slot] != null || percent <= percents[slot]) {
+                    return;
+                }
+                percents[slot] = percent;
+                for (int value : percents) {
+                    sum += value;
+                }
+                finishedNow = finished;
+                total = percents.length;
+            }
+            observer.onProgress(finishedNow, total, (int) (sum / total));
+        }
+
+        private void entryFinished(int slot, Path producedFile, String error) {
+            EntryResult result;
+            int finishedNow;
+            int total;
+            long sum = 0;
+            synchronized (this) {
+                if (done || results[slot] != null) {
+                    return;
+                }
+                result = new EntryResult(entries.get(slot), producedFile, error);
+                results[slot] = result;
+                percents[slot] = 100;
+                active.remove(slot);
+                finished++;
+                for (int value : percents) {
+                    sum += value;
+                }
+                finishedNow = finished;
+                total = percents.length;
+                if (finished == total) {
+                    done = true;
+                }
+            }
+
+            observer.onEntryFinished(result);
+            observer.onProgress(finishedNow, total, (int) (sum / total));
+            // onCompleted dikirim oleh thread yang melaporkan hasil terakhir, agar tidak mendahului onEntryFinished lain.
+            boolean last;
+            synchronized (this) {
+                last = ++reported == total;
+            }
+            if (last) {
+                List<EntryResult> ordered;
+                synchronized (this) {
+                    ordered = List.copyOf(Arrays.asList(results));
+                }
+                observer.onCompleted(ordered);
+            } else {
+                launchNext();
+            }
+        }
+
+        private synchronized boolean markDone() {
+            if (done) {
+                return false;
+            }
+            done = true;
+            return true;
+        }
+
+        @Override
+        public void cancel() {
+            List<YtDlpHelper.Handle> running;
+            synchronized (this) {
+                if (cancelled || done) {
+                    return;
+                }
+                cancelled = true;
+                done = true;
+                running = new ArrayList<>(active.values());
+                active.clear();
+            }
+            running.forEach(YtDlpHelper.Handle::cancel);
+            observer.onCancelled();
+        }
+
+        @Override
+        public synchronized boolean isDone() {
+            return done && active.isEmpty();
+        }
+
+        private final class EntryObserver implements YtDlpHelper.Observer {
+            private final int slot;
+
+            EntryObserver(int slot) {
+                this.slot = slot;
+            }
+
+            @Override
+            public void onStarted() {
+            }
+
+            @Override
+            public void onProgress(YtDlpHelper.Progress progress) {
+                if (progress.percent() >= 0) {
+                    entryProgress(slot, progress.percent());
+                }
+            }
+
+            @Override
+            public void onMessage(String line) {
+            }
+
+            @Override
+            public void onTitleExtracted(String title) {
+            }
+
+            @Override
+            public void onCompleted(Path producedFile) {
+                entryFinished(slot, producedFile, null);
+            }
+
+            @Override
+            public void onCancelled() {
+                entryFinished(slot, null, "dibatalkan");
+            }
+
+            @Override
+            public void onFailed(String message) {
+                entryFinished(slot, null, message);
+            }
+        }
+    }
+
+    /**
+     * Tebakan kasar apakah URL YouTube menunjuk ke playlist atau channel, bukan satu video.
+     */
+    public static boolean isPlaylist(String url) {
+        if (!YtDlpHelper.isYouTube(url)) {
+            return false;
+        }
+        String u = url.toLowerCase(Locale.ROOT);
+        return u.contains("/playlist") || (u.contains("list=") && !u.contains("v="))
+                || u.contains("/channel/") || u.contains("/c/") || u.contains("/@") || u.contains("/user/");
+    }
+}
@@ -0,0 +1,223 @@
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.swing.SwingUtilities;
+
+/**
+ * Menyaring dan menggabungkan event progres sebelum sampai ke observer.
+ * <p>
+ * {@link #sampled} dipakai oleh mesin unduhan: progres hanya diteruskan bila
+ * interval waktu ({@code downloader.progressIntervalMs}, default 100) atau
+ * langkah byte ({@code downloader.progressBytes}, default 0 = nonaktif)
+ * terlewati. Progres akhir selalu dikirim sebelum {@code onCompleted}.
+ * <p>
+ * {@link #onEventDispatchThread} dipakai oleh GUI: semua callback dijalankan
+ * di EDT dan progres yang belum sempat diproses digabung menjadi satu update,
+ * sehingga EDT tidak dibanjiri {@code Runnable}.
+ */
+public final class ProgressDispatcher {
+
+    private static final long INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(
+            Math.max(0L, Long.getLong("downloader.progressIntervalMs", 100L)));
+    private static final long BYTE_STEP = Math.max(0L, Long.getLong("downloader.progressBytes", 0L));
+
+    private final Executor executor;
+    private final long intervalNanos;
+    private final long byteStep;
+    private final AtomicReference<Runnable> pending = new AtomicReference<>();
+    private long lastEmitNanos;
+    private long lastEmitValue = Long.MIN_VALUE;
+
+    private ProgressDispatcher(Executor executor, long intervalNanos, long byteStep) {
+        this.executor = executor;
+        this.intervalNanos = intervalNanos;
+        this.byteStep = byteStep;
+    }
+
+    public static FileDownloader.DownloadObserver sampled(FileDownloader.DownloadObserver observer) {
+        return wrap(observer, new ProgressDispatcher(Runnable::run, INTERVAL_NANOS, BYTE_STEP));
+    }
+
+    public static YtDlpHelper.Observer sampled(YtDlpHelper.Observer observer) {
+        return wrap(observer, new ProgressDispatcher(Runnable::run, INTERVAL_NANOS, 0L));
+    }
+
+    public static FileDownloader.DownloadObserver onEventDispatchThread(FileDownloader.DownloadObserver observer) {
+        return wrap(observer, new ProgressDispatcher(SwingUtilities::invokeLater, 0L, 0L));
+    }
+
+    public static YtDlpHelper.Observer onEventDispatchThread(YtDlpHelper.Observer observer) {
+        return wrap(observer, new ProgressDispatcher(SwingUtilities::invokeLater, 0L, 0L));
+    }
+
+    public static PlaylistDownloader.Observer onEventDispatchThread(PlaylistDownloader.Observer observer) {
+        return wrap(observer, new ProgressDispatcher(SwingUtilities::invokeLater, 0L, 0L));
+    }
+
+    private synchronized boolean shouldEmit(long value, boolean last) {
+        long now = System.nanoTime();
+        boolean emit = last
+                || lastEmitValue == Long.MIN_VALUE
+                || (intervalNanos == 0 && byteStep == 0)
+                || (intervalNanos > 0 && now - lastEmitNanos >= intervalNanos)
+                || (byteStep > 0 && value - lastEmitValue >= byteStep);
+        if (emit) {
+            lastEmitNanos = now;
+            lastEmitValue = value;
+        }
+        return emit;
+    }
+
+    private synchronized long lastEmitted() {
+        return lastEmitValue;
+    }
+
+    private void progress(Runnable update) {
+        if (pending.getAndSet(update) == null) {
+            executor.execute(() -> {
+                Runnable latest = pending.getAndSet(null);
+                if (latest != null) {
+                    latest.run();
+                }
+            });
+        }
+    }
+
+    private void event(Runnable callback) {
+        executor.execute(callback);
+    }
+
+    private static FileDownloader.DownloadObserver wrap(FileDownloader.DownloadObserver observer,
+            ProgressDispatcher dispatcher) {
+        return new FileDownloader.DownloadObserver() {
+            private volatile long lastDownloaded = -1L;
+            private volatile long lastTotal = -1L;
+
+            @Override
+            public void onStarted(long totalBytes) {
+                dispatcher.event(() -> observer.onStarted(totalBytes));
+            }
+
+            @Override
+            public void onProgress(long downloadedBytes, long totalBytes) {
+                lastDownloaded = downloadedBytes;
+                lastTotal = totalBytes;
+                if (dispatcher.shouldEmit(downloadedBytes, totalBytes > 0 && downloadedBytes >= totalBytes)) {
+                    dispatcher.progress(() -> observer.onProgress(downloadedBytes, totalBytes));
+                }
+            }
+
+            @Override
+            public void onCompleted(Path file) {
+                if (lastDownloaded >= 0 && dispatcher.lastEmitted() != lastDownloaded) {
+                    long downloaded = lastDownloaded;
+                    long total = lastTotal;
+                    dispatcher.progress(() -> observer.onProgress(downloaded, total));
+                }
+                dispatcher.event(() -> observer.onCompleted(file));
+            }
+
+            @Override
+            public void onCancelled(Path partialFile) {
+                dispatcher.event(() -> observer.onCancelled(partialFile));
+            }
+
+            @Override
+            public void onPaused(Path partialFile) {
+                dispatcher.event(() -> observer.onPaused(partialFile));
+            }
+
+            @Override
+            public void onFailed(DownloadError error, Exception exception) {
+                dispatcher.event(() -> observer.onFailed(error, exception));
+            }
+        };
+    }
+
+    private static YtDlpHelper.Observer wrap(YtDlpHelper.Observer observer, ProgressDispatcher dispatcher) {
+        return new YtDlpHelper.Observer() {
+            private volatile YtDlpHelper.Progress lastProgress;
+            private volatile YtDlpHelper.Progress lastForwarded;
+
+            @Override
+            public void onStarted() {
+                dispatcher.event(observer::onStarted);
+            }
+
+            @Override
+            public void onProgress(YtDlpHelper.Progress progress) {
+                lastProgress = progress;
+                if (dispatcher.shouldEmit(progress.downloadedBytes(), progress.percent() >= 100)) {
+                    lastForwarded = progress;
+                    dispatcher.progress(() -> observer.onProgress(progress));
+                }
+            }
+
+            @Override
+            public void onMessage(String line) {
+                dispatcher.event(() -> observer.onMessage(line));
+            }
+
+            @Override
+            public void onTitleExtracted(String title) {
+                dispatcher.event(() -> observer.onTitleExtracted(title));
+            }
+
+            @Override
+            public void onCompleted(Path producedFile) {
+                YtDlpHelper.Progress last = lastProgress;
+                if (last != null && last != lastForwarded) {
+                    dispatcher.progress(() -> observer.onProgress(last));
+                }
+                dispatcher.event(() -> observer.onCompleted(producedFile));
+            }
+
+            @Override
+            public void onCancelled() {
+                dispatcher.event(observer::onCancelled);
+            }
+
+            @Override
+            public void onFailed(String message) {
+                dispatcher.event(() -> observer.onFailed(message));
+            }
+        };
+    }
+
+    private static PlaylistDownloader.Observer wrap(PlaylistDownloader.Observer observer,
+            ProgressDispatcher dispatcher) {
+        return new PlaylistDownloader.Observer() {
+            @Override
+            public void onExpanded(List<PlaylistDownloader.Entry> entries) {
+                dispatcher.event(() -> observer.onExpanded(entries));
+            }
+
+            @Override
+            public void onProgress(int finishedEntries, int totalEntries, int percent) {
+                dispatcher.progress(() -> observer.onProgress(finishedEntries, totalEntries, percent));
+            }
+
+            @Override
+            public void onEntryFinished(PlaylistDownloader.EntryResult result) {
+                dispatcher.event(() -> observer.onEntryFinished(result));
+            }
+
+            @Override
+            public void onCompleted(List<PlaylistDownloader.EntryResult> results) {
+                dispatcher.event(() -> observer.onCompleted(results));
+            }
+
+            @Override
+            public void onCancelled() {
+                dispatcher.event(observer::onCancelled);
+            }
+
+            @Override
+            public void onFailed(String message) {
+                dispatcher.event(() -> observer.onFailed(message));
+            }
+        };
+    }
+}
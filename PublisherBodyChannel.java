@@ -0,0 +1,165 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Body {@code HttpClient} sebagai {@link ReadableByteChannel}. Buffer dari
+ * client disalin langsung ke buffer tujuan (biasanya direct), tanpa lewat
+ * {@code byte[]} seperti pada {@code BodyHandlers.ofInputStream()}. Satu
+ * batch buffer di-prefetch selama batch sebelumnya dibaca.
+ * <p>
+ * Bila tidak ada data sama sekali selama {@code readTimeoutMillis}, body
+ * ditutup dan {@link SocketTimeoutException} dilempar seperti read timeout
+ * pada {@code HttpURLConnection}.
+ */
+final class PublisherBodyChannel implements ReadableByteChannel, Flow.Subscriber<List<ByteBuffer>> {
+
+    private static final Object END = new Object();
+
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final long readTimeoutMillis;
+    private volatile Flow.Subscription subscription;
+    private volatile boolean open = true;
+    private Iterator<ByteBuffer> batch;
+    private ByteBuffer current;
+    private boolean finished;
+
+    PublisherBodyChannel(long readTimeoutMillis) {
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        if (open) {
+            subscription.request(1);
+        } else {
+            subscription.cancel();
+        }
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> item) {
+        queue.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        queue.add(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        queue.add(END);
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        if (finished) {
+            return -1;
+        }
+
+        int copied = 0;
+        while (dst.hasRemaining()) {
+            if (current == null || !current.hasRemaining()) {
+                current = nextBuffer(copied == 0);
+                if (current == null) {
+                    break;
+                }
+                continue;
+            }
+
+            int count = Math.min(current.remaining(), dst.remaining());
+            ByteBuffer slice = current.slice();
+            slice.limit(count);
+            dst.put(slice);
+            current.position(current.position() + count);
+            copied += count;
+        }
+
+        if (copied == 0 && finished) {
+            return -1;
+        }
+        return copied;
+    }
+
+    // Mengembalikan null bila tidak ada buffer yang siap (atau body sudah habis).
+    private ByteBuffer nextBuffer(boolean block) throws IOException {
+        while (true) {
+            if (batch != null && batch.hasNext()) {
+                return batch.next();
+            }
+            if (finished) {
+                return null;
+            }
+
+            Object next;
+            try {
+                next = block ? queue.poll(readTimeoutMillis, TimeUnit.MILLISECONDS) : queue.poll();
+            } catch (InterruptedException ex) {
+                close();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Pembacaan body dibatalkan.");
+            }
+            if (next == null) {
+                if (!block) {
+                    return null;
+                }
+                close();
+                throw new SocketTimeoutException("Tidak ada data dari server selama "
+                        + readTimeoutMillis + " ms.");
+            }
+            if (!open) {
+                throw new AsynchronousCloseException();
+            }
+            if (next == END) {
+                finished = true;
+                return null;
+            }
+            if (next instanceof Throwable error) {
+                finished = true;
+                // Error dari publisher berarti koneksi putus di tengah body (reset, body terpotong).
+                SocketException disconnected = new SocketException("Koneksi terputus: " + error.getMessage());
+                disconnected.initCause(error);
+                throw disconnected;
+            }
+
+            @SuppressWarnings("unchecked")
+            List<ByteBuffer> buffers = (List<ByteBuffer>) next;
+            batch = buffers.iterator();
+            subscription.request(1);
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        if (!open) {
+            return;
+        }
+        open = false;
+        Flow.Subscription active = subscription;
+        if (active != null) {
+            active.cancel();
+        }
+        queue.add(END);
+    }
+}
@@ -0,0 +1,66 @@
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Aturan percobaan ulang untuk {@link FileDownloader}. Yang diulang hanya
+ * {@link DownloadError#NETWORK_INTERRUPTED} serta HTTP 429/5xx; kesalahan
+ * penyimpanan dan izin tidak pernah diulang. Jeda memakai exponential
+ * backoff dengan full jitter, kecuali server memberi {@code Retry-After}.
+ * <p>
+ * Konfigurasi lewat system property:
+ * <ul>
+ * <li>{@code downloader.retries} - jumlah percobaan ulang berturut-turut tanpa
+ * kemajuan (default 5, {@code 0} untuk mematikan)</li>
+ * <li>{@code downloader.retryBaseMs} - jeda dasar (default 500)</li>
+ * <li>{@code downloader.retryMaxMs} - jeda maksimum (default 30000)</li>
+ * </ul>
+ */
+final class RetryPolicy {
+
+    private static final long MAX_RETRY_AFTER_MS = 5 * 60 * 1000L;
+
+    private final int maxRetries;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    RetryPolicy(int maxRetries, long baseDelayMillis, long maxDelayMillis) {
+        this.maxRetries = Math.max(0, maxRetries);
+        this.baseDelayMillis = Math.max(1L, baseDelayMillis);
+        this.maxDelayMillis = Math.max(this.baseDelayMillis, maxDelayMillis);
+    }
+
+    static RetryPolicy fromSystemProperties() {
+        return new RetryPolicy(Integer.getInteger("downloader.retries", 5),
+                Long.getLong("downloader.retryBaseMs", 500L),
+                Long.getLong("downloader.retryMaxMs", 30_000L));
+    }
+
+    /**
+     * @param attempt percobaan ulang ke berapa yang akan dilakukan (mulai 1)
+     */
+    boolean shouldRetry(int attempt, DownloadError error, IOException ex) {
+        if (attempt > maxRetries) {
+            return false;
+        }
+        if (error == DownloadError.INSUFFICIENT_STORAGE || error == DownloadError.PERMISSION_DENIED) {
+            return false;
+        }
+        if (ex instanceof HttpStatusException status) {
+            return isRetryableStatus(status.statusCode());
+        }
+        return error == DownloadError.NETWORK_INTERRUPTED;
+    }
+
+    long delayMillis(int attempt, IOException ex) {
+        if (ex instanceof HttpStatusException status && status.retryAfterMillis() >= 0) {
+            return Math.min(status.retryAfterMillis(), MAX_RETRY_AFTER_MS);
+        }
+        int shift = Math.min(attempt - 1, 30);
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << shift);
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    static boolean isRetryableStatus(int statusCode) {
+        return statusCode == 429 || (statusCode >= 500 && statusCode != 501 && statusCode != 505);
+    }
+}
@@ -0,0 +1,776 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Mengunduh stream HLS/DASH dari URL manifest langsung tanpa yt-dlp. Segmen
+ * diambil paralel oleh hingga {@code connections} koneksi, dengan jendela
+ * segmen yang sedang diambil atau menunggu ditulis dibatasi
+ * {@code downloader.segmentWindow} (default dua kali jumlah koneksi).
+ * Setiap segmen dialirkan lewat {@link ChannelCopier} ke file sementara
+ * {@code .part.seg<n>} lalu ditambahkan ke file {@code .part} sesuai urutan
+ * manifest, sehingga memori yang dipakai tidak bergantung pada ukuran segmen.
+ * <p>
+ * Manifest dengan satu segmen (misalnya DASH {@code SegmentBase}), atau
+ * server yang mengabaikan {@code Range} dan menjawab {@code 200}, diunduh
+ * berurutan langsung ke file {@code .part}; segmen byte range berikutnya
+ * pada URL yang sama dibaca dari stream yang sama.
+ * <p>
+ * Tiap segmen diulang sendiri menurut {@link RetryPolicy}. Jumlah segmen
+ * yang sudah ditulis dicatat di journal kecil sehingga unduhan yang dijeda
+ * dilanjutkan dari segmen berikutnya.
+ */
+final class StreamDownloader implements Runnable, FileDownloader.DownloadHandle {
+
+    private static final int WINDOW = Integer.getInteger("downloader.segmentWindow", 0);
+    private static final long JOURNAL_SAVE_INTERVAL_MS = 1_000;
+    private static final ExecutorService SEGMENT_EXECUTOR = DownloadExecutors.newExecutor("stream-segment");
+
+    private final String url;
+    private final Path destination;
+    private final Path partFile;
+    private final Path journalFile;
+    private final FileDownloader.DownloadObserver observer;
+    private final int window;
+    private final Semaphore fetchSlots;
+    private final HttpTransport transport;
+    private final RetryPolicy retryPolicy;
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final Set<HttpTransport.Response> activeResponses = ConcurrentHashMap.newKeySet();
+    private final Map<String, byte[]> keys = new ConcurrentHashMap<>();
+    private final List<Future<?>> segmentFutures = new ArrayList<>();
+    private final Object lock = new Object();
+    private final Map<Integer, Path> ready = new HashMap<>();
+
+    private IOException failure;
+    private int generation;
+    private volatile boolean done;
+    private volatile boolean succeeded;
+    private volatile boolean paused;
+    private volatile Future<?> future;
+    private volatile FileChannel channel;
+    private int segmentCount;
+    private String segmentsHash;
+    private int written;
+    private long writtenBytes;
+    private long lastJournalSave;
+    private long startNanos;
+    private boolean firstByteSeen;
+    private HttpTransport.Response sequentialResponse;
+    private ReadableByteChannel sequentialBody;
+    private String sequentialUrl;
+    private long sequentialPosition;
+
+    /**
+     * Server menjawab {@code 200} untuk permintaan byte range; segmen sisanya
+     * harus diambil berurutan dari satu stream.
+     */
+    private static final class RangeIgnoredException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        RangeIgnoredException(String resource) {
+            super("Server mengabaikan Range: " + resource);
+        }
+    }
+
+    StreamDownloader(String url, Path destination, FileDownloader.DownloadObserver observer, int connections,
+            HttpTransport transport, RetryPolicy retryPolicy) {
+        this.url = url;
+        this.destination = destination;
+        this.partFile = destination.resolveSibling(destination.getFileName() + ".part");
+        this.journalFile = partFile.resolveSibling(partFile.getFileName() + ".stream");
+        this.observer = observer;
+        this.window = WINDOW > 0 ? WINDOW : connections * 2;
+        this.fetchSlots = new Semaphore(connections);
+        this.transport = transport;
+        this.retryPolicy = retryPolicy;
+    }
+
+    void attachFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    @Override
+    public void run() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        boolean notifiedStart = false;
+        startNanos = System.nanoTime();
+        try {
+            if (destination.getParent() != null) {
+                Files.createDirectories(destination.getParent());
+            }
+
+            StreamManifest manifest = null;
+            for (int attempt = 1; manifest == null; attempt++) {
+                try {
+                    manifest = StreamManifest.load(url, this::fetchText);
+                } catch (IOException ex) {
+                    awaitRetry(attempt, ex);
+                }
+            }
+            List<StreamManifest.Segment> segments = manifest.segments();
+            segmentCount = segments.size();
+            if (segmentCount == 0) {
+                throw new IOException("Manifest tidak berisi segmen.");
+            }
+
+            segmentsHash = hash(segments);
+            boolean resuming = restoreJournal();
+            long knownTotal = knownTotal(segments);
+            observer.onStarted(knownTotal);
+            notifiedStart = true;
+
+            // READ untuk dekripsi di tempat saat segmen ditulis langsung ke file .part.
+            channel = resuming
+                    ? FileChannel.open(partFile, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                    : FileChannel.open(partFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            if (resuming) {
+                channel.truncate(writtenBytes);
+                observer.onProgress(writtenBytes, estimateTotal(knownTotal));
+            }
+
+            boolean sequential = segmentCount == 1;
+            int submitted = written;
+            while (written < segmentCount) {
+                if (sequential) {
+                    writtenBytes += fetchSegment(segments.get(written), channel, writtenBytes,
+                            (position, bytes) -> {
+                                DownloadMetrics.bytesWritten(bytes);
+                                observer.onProgress(position, estimateTotal(knownTotal));
+                                return !cancelled.get() && !Thread.currentThread().isInterrupted();
+                            });
+                    if (cancelled.get()) {
+                        throw new InterruptedException();
+                    }
+                    written++;
+                    observer.onProgress(writtenBytes, estimateTotal(knownTotal));
+                    saveJournalPeriodically();
+                    continue;
+                }
+
+                while (submitted < segmentCount && submitted - written < window) {
+                    submit(submitted, segments.get(submitted));
+                    submitted++;
+                }
+                Path segmentFile;
+                try {
+                    segmentFile = awaitSegment(written);
+                } catch (RangeIgnoredException ex) {
+                    abandonParallel();
+                    sequential = true;
+                    continue;
+                }
+                long bytes;
+                try (FileChannel source = FileChannel.open(segmentFile, StandardOpenOption.READ)) {
+                    bytes = ChannelCopier.copy(source, channel, writtenBytes, source.size(), (position, n) -> true);
+                }
+                Files.deleteIfExists(segmentFile);
+                writtenBytes += bytes;
+                written++;
+                DownloadMetrics.bytesWritten(bytes);
+                observer.onProgress(writtenBytes, estimateTotal(knownTotal));
+                saveJournalPeriodically();
+            }
+
+            channel.close();
+            moveIntoPlace();
+            succeeded = true;
+            observer.onCompleted(destination);
+        } catch (AccessDeniedException ex) {
+            observer.onFailed(DownloadError.PERMISSION_DENIED, ex);
+            cleanupPartialFile();
+        } catch (ClosedByInterruptException | InterruptedException ex) {
+            handleStopped();
+        } catch (IOException ex) {
+            if (cancelled.get()) {
+                handleStopped();
+            } else {
+                DownloadError error = FileDownloader.classifyError(ex);
+                retainOrCleanup(error);
+                observer.onFailed(error, ex);
+            }
+        } catch (SecurityException ex) {
+            observer.onFailed(DownloadError.PERMISSION_DENIED, ex);
+            cleanupPartialFile();
+        } finally {
+            done = true;
+            cancelSegments();
+            closeSequential();
+            closeChannel();
+            deleteSegmentFiles();
+            if (!notifiedStart && !cancelled.get() && !succeeded) {
+                observer.onFailed(DownloadError.GENERAL_FAILURE,
+                        new IllegalStateException("Unduhan gagal dimulai."));
+            }
+        }
+    }
+
+    // Total pasti hanya bila semua segmen punya byte range; selain itu diperkirakan dari rata-rata segmen.
+    private static long knownTotal(List<StreamManifest.Segment> segments) {
+        long total = 0;
+        for (StreamManifest.Segment segment : segments) {
+            if (segment.length() < 0) {
+                return -1L;
+            }
+            total += segment.length();
+        }
+        return total;
+    }
+
+    private long estimateTotal(long knownTotal) {
+        if (knownTotal >= 0) {
+            return knownTotal;
+        }
+        if (written == segmentCount) {
+            return writtenBytes;
+        }
+        return written == 0 ? -1L : writtenBytes / written * segmentCount;
+    }
+
+    private void submit(int index, StreamManifest.Segment segment) {
+        int submittedGeneration;
+        synchronized (lock) {
+            submittedGeneration = generation;
+        }
+        synchronized (segmentFutures) {
+            if (cancelled.get()) {
+                return;
+            }
+            segmentFutures.removeIf(Future::isDone);
+            FutureTask<Void> task = new FutureTask<>(() -> {
+                Path segmentFile = segmentFile(index);
+                try {
+                    fetchSlots.acquire();
+                    try (FileChannel out = FileChannel.open(segmentFile, StandardOpenOption.CREATE,
+                            StandardOpenOption.READ, StandardOpenOption.WRITE,
+                            StandardOpenOption.TRUNCATE_EXISTING)) {
+                        fetchSegment(segment, out, 0, (position, bytes) ->
+                                !cancelled.get() && !Thread.currentThread().isInterrupted());
+                    } finally {
+                        fetchSlots.release();
+                    }
+                    synchronized (lock) {
+                        if (generation == submittedGeneration && !cancelled.get()) {
+                            ready.put(index, segmentFile);
+                            lock.notifyAll();
+                            return;
+                        }
+                    }
+                    Files.deleteIfExists(segmentFile);
+                } catch (IOException ex) {
+                    fail(submittedGeneration, ex);
+                } catch (InterruptedException ex) {
+                    fail(submittedGeneration, new InterruptedIOException("Segmen dibatalkan."));
+                } catch (RuntimeException ex) {
+                    fail(submittedGeneration, new IOException(ex));
+                }
+            }, null);
+            segmentFutures.add(task);
+            SEGMENT_EXECUTOR.execute(task);
+        }
+    }
+
+    private void fail(int failedGeneration, IOException ex) {
+        synchronized (lock) {
+            if (failure == null && failedGeneration == generation) {
+                failure = ex;
+            }
+            lock.notifyAll();
+        }
+    }
+
+    private Path awaitSegment(int index) throws IOException, InterruptedException {
+        synchronized (lock) {
+            while (!ready.containsKey(index)) {
+                if (cancelled.get()) {
+                    throw new InterruptedException();
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+                lock.wait();
+            }
+            return ready.remove(index);
+        }
+    }
+
+    // Segmen yang sedang diambil paralel dibuang; hasil yang terlambat datang diabaikan lewat generation.
+    private void abandonParallel() {
+        synchronized (lock) {
+            generation++;
+            failure = null;
+            ready.clear();
+        }
+        cancelSegments();
+        deleteSegmentFiles();
+    }
+
+    private Path segmentFile(int index) {
+        return partFile.resolveSibling(partFile.getFileName() + ".seg" + index);
+    }
+
+    private void deleteSegmentFiles() {
+        Path directory = partFile.toAbsolutePath().getParent();
+        String prefix = partFile.getFileName() + ".seg";
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, path ->
+                path.getFileName().toString().startsWith(prefix))) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Menulis segmen (sudah didekripsi) ke {@code target} mulai di
+     * {@code position}, dengan percobaan ulang dari awal segmen.
+     *
+     * @return jumlah byte segmen yang ditulis
+     */
+    private long fetchSegment(StreamManifest.Segment segment, FileChannel target, long position,
+            ChannelCopier.ChunkListener listener) throws IOException {
+        for (int attempt = 1;; attempt++) {
+            try {
+                target.truncate(position);
+                long copied = fetchSegmentOnce(segment, target, position, listener);
+                return segment.key() != null ? decrypt(segment, target, position, copied) : copied;
+            } catch (RangeIgnoredException ex) {
+                throw ex;
+            } catch (IOException ex) {
+                if (isSequentialTarget(target)) {
+                    closeSequential();
+                }
+                awaitRetry(attempt, ex);
+            }
+        }
+    }
+
+    private long fetchSegmentOnce(StreamManifest.Segment segment, FileChannel target, long position,
+            ChannelCopier.ChunkListener listener) throws IOException {
+        ChannelCopier.ChunkListener counting = (end, bytes) -> {
+            firstByte();
+            return listener.onChunk(end, bytes);
+        };
+        boolean ranged = segment.length() >= 0;
+        // Stream berurutan hanya dipakai oleh thread run() yang menulis langsung ke file .part.
+        boolean sequential = isSequentialTarget(target);
+        if (sequential && ranged && sequentialBody != null && segment.url().equals(sequentialUrl)
+                && sequentialPosition <= segment.offset()) {
+            discard(sequentialBody, segment.offset() - sequentialPosition);
+            long copied = ChannelCopier.copy(sequentialBody, target, position, segment.length(), counting);
+            sequentialPosition = segment.offset() + copied;
+            return copied;
+        }
+        if (sequential) {
+            closeSequential();
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        if (ranged) {
+            headers.put("Range", segment.rangeHeader());
+        }
+        HttpTransport.Response response = open(segment.url(), headers);
+        boolean keep = false;
+        try {
+            int statusCode = response.statusCode();
+            if (statusCode >= 300) {
+                throw HttpStatusException.from(response);
+            }
+            ReadableByteChannel body = response.bodyChannel();
+            if (ranged && statusCode == HttpURLConnection.HTTP_OK) {
+                if (!sequential) {
+                    throw new RangeIgnoredException(segment.url());
+                }
+                // Seluruh file dikirim dari awal: lompati sampai offset dan simpan stream untuk segmen berikutnya.
+                sequentialResponse = response;
+                sequentialBody = body;
+                sequentialUrl = segment.url();
+                sequentialPosition = 0;
+                keep = true;
+                discard(body, segment.offset());
+                long copied = ChannelCopier.copy(body, target, position, segment.length(), counting);
+                sequentialPosition = segment.offset() + copied;
+                return copied;
+            }
+            try (body) {
+                return ChannelCopier.copy(body, target, position, ranged ? segment.length() : -1L, counting);
+            }
+        } finally {
+            if (!keep) {
+                activeResponses.remove(response);
+                response.close();
+            }
+        }
+    }
+
+    private boolean isSequentialTarget(FileChannel target) {
+        return target == channel;
+    }
+
+    private void discard(ReadableByteChannel body, long count) throws IOException {
+        if (count <= 0) {
+            return;
+        }
+        ByteBuffer buffer = BufferPool.acquire(ChannelCopier.BUFFER_SIZE);
+        try {
+            long remaining = count;
+            while (remaining > 0) {
+                if (cancelled.get()) {
+                    throw new InterruptedIOException("Unduhan dibatalkan.");
+                }
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), remaining));
+                int read = body.read(buffer);
+                if (read < 0) {
+                    throw new EOFException("Stream berakhir sebelum offset segmen.");
+                }
+                remaining -= read;
+            }
+        } finally {
+            BufferPool.release(buffer);
+        }
+    }
+
+    private void closeSequential() {
+        HttpTransport.Response response = sequentialResponse;
+        sequentialResponse = null;
+        sequentialBody = null;
+        sequentialUrl = null;
+        if (response != null) {
+            activeResponses.remove(response);
+            response.close();
+        }
+    }
+
+    private String fetchText(String textUrl) throws IOException {
+        return new String(fetchBytes(textUrl), StandardCharsets.UTF_8);
+    }
+
+    // Hanya untuk sumber kecil (manifest, kunci AES).
+    private byte[] fetchBytes(String resource) throws IOException {
+        HttpTransport.Response response = open(resource, Map.of());
+        try {
+            if (response.statusCode() >= 300) {
+                throw HttpStatusException.from(response);
+            }
+            try (InputStream body = response.body()) {
+                return body.readAllBytes();
+            }
+        } finally {
+            activeResponses.remove(response);
+            response.close();
+        }
+    }
+
+    private HttpTransport.Response open(String resource, Map<String, String> headers) throws IOException {
+        if (cancelled.get()) {
+            throw new InterruptedIOException("Unduhan dibatalkan.");
+        }
+        long requestStart = System.nanoTime();
+        HttpTransport.Response response = transport.open(resource, headers);
+        DownloadMetrics.connectTime(System.nanoTime() - requestStart);
+        activeResponses.add(response);
+        return response;
+    }
+
+    private void firstByte() {
+        synchronized (lock) {
+            if (firstByteSeen) {
+                return;
+            }
+            firstByteSeen = true;
+        }
+        DownloadMetrics.timeToFirstByte(System.nanoTime() - startNanos);
+    }
+
+    // Didekripsi di tempat: hasil CBC tidak pernah lebih panjang dari ciphertext yang sudah dibaca.
+    private long decrypt(StreamManifest.Segment segment, FileChannel file, long position, long length)
+            throws IOException {
+        StreamManifest.Key key = segment.key();
+        byte[] keyBytes = keys.get(key.uri());
+        if (keyBytes == null) {
+            keyBytes = fetchBytes(key.uri());
+            if (keyBytes.length != 16) {
+                throw new IOException("Kunci AES-128 tidak valid (" + keyBytes.length + " byte).");
+            }
+            keys.put(key.uri(), keyBytes);
+        }
+        byte[] iv = key.iv();
+        if (iv == null) {
+            iv = ByteBuffer.allocate(16).putLong(8, segment.sequence()).array();
+        }
+        ByteBuffer input = BufferPool.acquire(ChannelCopier.BUFFER_SIZE);
+        ByteBuffer output = ByteBuffer.allocate(input.capacity() + 32);
+        try {
+            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(keyBytes, "AES"), new IvParameterSpec(iv));
+            long readAt = position;
+            long writeAt = position;
+            long end = position + length;
+            while (readAt < end) {
+                input.clear();
+                input.limit((int) Math.min(input.capacity(), end - readAt));
+                int read = file.read(input, readAt);
+                if (read < 0) {
+                    throw new EOFException("Segmen terenkripsi terpotong.");
+                }
+                readAt += read;
+                input.flip();
+                output.clear();
+                cipher.update(input, output);
+                writeAt = writeFully(file, output, writeAt);
+            }
+            output.clear();
+            cipher.doFinal(ByteBuffer.allocate(0), output);
+            writeAt = writeFully(file, output, writeAt);
+            file.truncate(writeAt);
+            return writeAt - position;
+        } catch (GeneralSecurityException ex) {
+            throw new IOException("Gagal mendekripsi segmen: " + ex.getMessage(), ex);
+        } finally {
+            BufferPool.release(input);
+        }
+    }
+
+    private static long writeFully(FileChannel file, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            position += file.write(buffer, position);
+        }
+        return position;
+    }
+
+    private void awaitRetry(int attempt, IOException ex) throws IOException {
+        if (cancelled.get()) {
+            throw ex;
+        }
+        DownloadError error = FileDownloader.classifyError(ex);
+        if (!retryPolicy.shouldRetry(attempt, error, ex)) {
+            throw ex;
+        }
+        DownloadMetrics.retry(error);
+        try {
+            Thread.sleep(retryPolicy.delayMillis(attempt, ex));
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Percobaan ulang dibatalkan.");
+        }
+        if (cancelled.get()) {
+            throw ex;
+        }
+    }
+
+    private boolean restoreJournal() {
+        if (!Files.isRegularFile(journalFile) || !Files.isRegularFile(partFile)) {
+            return false;
+        }
+        Properties props = new Properties();
+        try (InputStream input = Files.newInputStream(journalFile)) {
+            props.load(input);
+            int savedSegments = Integer.parseInt(props.getProperty("segments", "-1"));
+            int savedWritten = Integer.parseInt(props.getProperty("written", "-1"));
+            long savedBytes = Long.parseLong(props.getProperty("bytes", "-1"));
+            if (!url.equals(props.getProperty("url")) || savedSegments != segmentCount
+                    || !segmentsHash.equals(props.getProperty("segmentsHash")) || savedWritten < 0
+                    || savedWritten > segmentCount || savedBytes < 0 || Files.size(partFile) < savedBytes) {
+                return false;
+            }
+            written = savedWritten;
+            writtenBytes = savedBytes;
+            return true;
+        } catch (IOException | RuntimeException ex) {
+            return false;
+        }
+    }
+
+    // Sidik jari URL, byte range dan kunci semua segmen; journal dari manifest lain tidak dipakai.
+    private static String hash(List<StreamManifest.Segment> segments) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (StreamManifest.Segment segment : segments) {
+                String key = segment.key() != null ? segment.key().uri() : "";
+                digest.update((segment.url() + "\n" + segment.offset() + "\n" + segment.length() + "\n" + key + "\n")
+                        .getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private void saveJournalPeriodically() {
+        long now = System.currentTimeMillis();
+        if (now - lastJournalSave < JOURNAL_SAVE_INTERVAL_MS) {
+            return;
+        }
+        lastJournalSave = now;
+        try {
+            saveJournal();
+        } catch (IOException ignored) {
+            // Journal hanya optimisasi; kegagalan menulisnya tidak menghentikan unduhan.
+        }
+    }
+
+    private void saveJournal() throws IOException {
+        Properties props = new Properties();
+        props.setProperty("url", url);
+        props.setProperty("segments", Integer.toString(segmentCount));
+        props.setProperty("segmentsHash", segmentsHash);
+        props.setProperty("written", Integer.toString(written));
+        props.setProperty("bytes", Long.toString(writtenBytes));
+        Path temp = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+        try (OutputStream output = Files.newOutputStream(temp)) {
+            props.store(output, "StreamDownloader resume journal");
+        }
+        Files.move(temp, journalFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void handleStopped() {
+        Thread.interrupted();
+        if (paused && segmentCount > 0) {
+            try {
+                saveJournal();
+                observer.onPaused(partFile);
+                return;
+            } catch (IOException ignored) {
+            }
+        }
+        observer.onCancelled(destination);
+        cleanupPartialFile();
+    }
+
+    private void retainOrCleanup(DownloadError error) {
+        boolean transientError = error == DownloadError.NETWORK_INTERRUPTED
+                || error == DownloadError.GENERAL_FAILURE;
+        if (transientError && segmentCount > 0 && written > 0) {
+            try {
+                saveJournal();
+                return;
+            } catch (IOException ignored) {
+            }
+        }
+        cleanupPartialFile();
+    }
+
+    private void moveIntoPlace() throws IOException {
+        try {
+            Files.move(partFile, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            Files.move(partFile, destination, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.deleteIfExists(journalFile);
+    }
+
+    private void cleanupPartialFile() {
+        try {
+            Files.deleteIfExists(partFile);
+            Files.deleteIfExists(journalFile);
+        } catch (IOException ignored) {
+        }
+        deleteSegmentFiles();
+    }
+
+    private void cancelSegments() {
+        synchronized (segmentFutures) {
+            for (Future<?> segmentFuture : segmentFutures) {
+                segmentFuture.cancel(true);
+            }
+        }
+        for (HttpTransport.Response response : activeResponses) {
+            activeResponses.remove(response);
+            response.close();
+        }
+    }
+
+    private void closeChannel() {
+        FileChannel current = channel;
+        channel = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    @Override
+    public void cancel() {
+        paused = false;
+        stop();
+    }
+
+    @Override
+    public void pause() {
+        paused = true;
+        stop();
+    }
+
+    private void stop() {
+        if (cancelled.compareAndSet(false, true)) {
+            cancelSegments();
+            synchronized (lock) {
+                lock.notifyAll();
+            }
+            Future<?> current = future;
+            if (current != null) {
+                current.cancel(true);
+            }
+            // Masih di antrean executor: run() tidak akan jalan, jadi kabar akhir dikirim dari sini.
+            if (started.compareAndSet(false, true)) {
+                done = true;
+                if (paused && Files.isRegularFile(journalFile)) {
+                    observer.onPaused(partFile);
+                } else {
+                    observer.onCancelled(destination);
+                    cleanupPartialFile();
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public boolean isCompletedSuccessfully() {
+        return done && succeeded;
+    }
+}
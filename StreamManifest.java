@@ -0,0 +1,467 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+/**
+ * Daftar segmen dari manifest HLS ({@code .m3u8}) atau DASH ({@code .mpd})
+ * statis untuk {@link StreamDownloader}.
+ * <p>
+ * HLS: master playlist memilih varian dengan BANDWIDTH tertinggi; didukung
+ * {@code EXT-X-BYTERANGE}, {@code EXT-X-MAP} dan enkripsi AES-128.
+ * DASH: satu AdaptationSet (audio dan video tergabung), representasi dengan
+ * bandwidth tertinggi, lewat SegmentTemplate ({@code $Number$}/{@code $Time$},
+ * dengan atau tanpa SegmentTimeline), SegmentList atau SegmentBase.
+ * Live stream dan audio/video terpisah tidak didukung; untuk itu gunakan yt-dlp.
+ */
+final class StreamManifest {
+
+    /**
+     * Kunci AES-128 untuk segmen HLS; {@code iv} {@code null} berarti IV
+     * diturunkan dari nomor urut segmen.
+     */
+    record Key(String uri, byte[] iv) {
+    }
+
+    /**
+     * @param length panjang byte range, atau {@code -1} untuk seluruh resource
+     */
+    record Segment(String url, long offset, long length, Key key, long sequence) {
+        String rangeHeader() {
+            return length < 0 ? null : "bytes=" + offset + "-" + (offset + length - 1);
+        }
+    }
+
+    @FunctionalInterface
+    interface Fetcher {
+        String fetchText(String url) throws IOException;
+    }
+
+    private static final Pattern ATTRIBUTE = Pattern.compile("([A-Z0-9-]+)=(\"[^\"]*\"|[^,]*)");
+    private static final Pattern TEMPLATE_FIELD = Pattern.compile(
+            "\\$(RepresentationID|Number|Time|Bandwidth)(%0(\\d+)d)?\\$");
+
+    private final List<Segment> segments;
+
+    private StreamManifest(List<Segment> segments) {
+        this.segments = List.copyOf(segments);
+    }
+
+    List<Segment> segments() {
+        return segments;
+    }
+
+    static boolean isManifestUrl(String url) {
+        String path;
+        try {
+            path = URI.create(url.trim()).getPath();
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+        if (path == null) {
+            return false;
+        }
+        String lower = path.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".m3u8") || lower.endsWith(".mpd");
+    }
+
+    static StreamManifest load(String url, Fetcher fetcher) throws IOException {
+        String text = fetcher.fetchText(url);
+        if (text.startsWith("\uFEFF")) {
+            text = text.substring(1);
+        }
+        if (text.stripLeading().startsWith("#EXTM3U")) {
+            return parseHls(url, text, fetcher);
+        }
+        if (text.contains("<MPD")) {
+            return parseDash(url, text);
+        }
+        throw new IOException("Manifest tidak dikenali (bukan HLS atau DASH).");
+    }
+
+    private static StreamManifest parseHls(String url, String text, Fetcher fetcher) throws IOException {
+        if (text.contains("#EXT-X-STREAM-INF")) {
+            String variant = selectVariant(url, text);
+            String media = fetcher.fetchText(variant);
+            if (media.contains("#EXT-X-STREAM-INF")) {
+                throw new IOException("Master playlist bertingkat tidak didukung.");
+            }
+            return parseMediaPlaylist(variant, media);
+        }
+        return parseMediaPlaylist(url, text);
+    }
+
+    private static String selectVariant(String url, String text) throws IOException {
+        Map<String, Boolean> audioGroupsWithUri = new HashMap<>();
+        String best = null;
+        String bestAudioGroup = null;
+        long bestBandwidth = -1;
+        String[] lines = text.split("\\R");
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].trim();
+            if (line.startsWith("#EXT-X-MEDIA:")) {
+                Map<String, String> attributes = attributes(line);
+                if ("AUDIO".equals(attributes.get("TYPE")) && attributes.containsKey("URI")) {
+                    audioGroupsWithUri.put(attributes.get("GROUP-ID"), Boolean.TRUE);
+                }
+            } else if (line.startsWith("#EXT-X-STREAM-INF:")) {
+                Map<String, String> attributes = attributes(line);
+                long bandwidth = parseLong(attributes.get("BANDWIDTH"), 0);
+                String uri = null;
+                for (int j = i + 1; j < lines.length && uri == null; j++) {
+                    String candidate = lines[j].trim();
+                    if (!candidate.isEmpty() && !candidate.startsWith("#")) {
+                        uri = candidate;
+                        i = j;
+                    }
+                }
+                if (uri != null && bandwidth > bestBandwidth) {
+                    bestBandwidth = bandwidth;
+                    best = resolve(url, uri);
+                    bestAudioGroup = attributes.get("AUDIO");
+                }
+            }
+        }
+        if (best == null) {
+            throw new IOException("Master playlist tidak berisi varian.");
+        }
+        if (bestAudioGroup != null && audioGroupsWithUri.containsKey(bestAudioGroup)) {
+            throw new IOException("Audio dan video stream terpisah; gunakan yt-dlp untuk menggabungkannya.");
+        }
+        return best;
+    }
+
+    private static StreamManifest parseMediaPlaylist(String url, String text) throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        long sequence = 0;
+        Key key = null;
+        long nextOffset = 0;
+        long pendingLength = -1;
+        long pendingOffset = -1;
+        boolean ended = false;
+
+        for (String raw : text.split("\\R")) {
+            String line = raw.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.startsWith("#EXT-X-MEDIA-SEQUENCE:")) {
+                sequence = parseLong(line.substring("#EXT-X-MEDIA-SEQUENCE:".length()), 0);
+            } else if (line.startsWith("#EXT-X-ENDLIST")) {
+                ended = true;
+            } else if (line.startsWith("#EXT-X-PLAYLIST-TYPE:VOD")) {
+                ended = true;
+            } else if (line.startsWith("#EXT-X-KEY:")) {
+                Map<String, String> attributes = attributes(line);
+                String method = attributes.getOrDefault("METHOD", "NONE");
+                if ("NONE".equals(method)) {
+                    key = null;
+                } else if ("AES-128".equals(method) && attributes.containsKey("URI")) {
+                    key = new Key(resolve(url, attributes.get("URI")), parseIv(attributes.get("IV")));
+                } else {
+                    throw new IOException("Enkripsi " + method + " tidak didukung.");
+                }
+            } else if (line.startsWith("#EXT-X-MAP:")) {
+                Map<String, String> attributes = attributes(line);
+                long[] range = parseByteRange(attributes.get("BYTERANGE"), 0);
+                // Init segment ikut dienkripsi dengan kunci yang aktif saat EXT-X-MAP muncul.
+                segments.add(new Segment(resolve(url, attributes.get("URI")), range[1], range[0], key, sequence));
+            } else if (line.startsWith("#EXT-X-BYTERANGE:")) {
+                long[] range = parseByteRange(line.substring("#EXT-X-BYTERANGE:".length()), nextOffset);
+                pendingLength = range[0];
+                pendingOffset = range[1];
+            } else if (!line.startsWith("#")) {
+                long offset = pendingLength >= 0 ? pendingOffset : 0;
+                segments.add(new Segment(resolve(url, line), offset, pendingLength, key, sequence++));
+                nextOffset = pendingLength >= 0 ? offset + pendingLength : 0;
+                pendingLength = -1;
+            }
+        }
+        if (!ended) {
+            throw new IOException("Live stream (tanpa #EXT-X-ENDLIST) tidak didukung.");
+        }
+        return new StreamManifest(segments);
+    }
+
+    private static StreamManifest parseDash(String url, String text) throws IOException {
+        Document document;
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(false);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.setExpandEntityReferences(false);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            document = builder.parse(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (ParserConfigurationException | SAXException ex) {
+            throw new IOException("MPD tidak valid: " + ex.getMessage(), ex);
+        }
+
+        Element mpd = document.getDocumentElement();
+        if ("dynamic".equals(mpd.getAttribute("type"))) {
+            throw new IOException("Live stream DASH tidak didukung.");
+        }
+        Element period = firstChild(mpd, "Period");
+        if (period == null) {
+            throw new IOException("MPD tidak berisi Period.");
+        }
+        List<Element> adaptationSets = children(period, "AdaptationSet");
+        if (adaptationSets.size() != 1) {
+            throw new IOException("MPD dengan " + adaptationSets.size()
+                    + " AdaptationSet (audio/video terpisah) tidak didukung; gunakan yt-dlp.");
+        }
+        Element adaptation = adaptationSets.get(0);
+        Element representation = null;
+        long bestBandwidth = -1;
+        for (Element candidate : children(adaptation, "Representation")) {
+            long bandwidth = parseLong(candidate.getAttribute("bandwidth"), 0);
+            if (bandwidth > bestBandwidth) {
+                bestBandwidth = bandwidth;
+                representation = candidate;
+            }
+        }
+        if (representation == null) {
+            throw new IOException("AdaptationSet tidak berisi Representation.");
+        }
+
+        String base = url;
+        for (Element level : List.of(mpd, period, adaptation, representation)) {
+            Element baseUrl = firstChild(level, "BaseURL");
+            if (baseUrl != null) {
+                base = resolve(base, baseUrl.getTextContent().trim());
+            }
+        }
+
+        String duration = period.hasAttribute("duration") ? period.getAttribute("duration")
+                : mpd.getAttribute("mediaPresentationDuration");
+
+        Element template = firstChild(representation, "SegmentTemplate");
+        if (template == null) {
+            template = firstChild(adaptation, "SegmentTemplate");
+        }
+        if (template != null) {
+            return new StreamManifest(templateSegments(base, template, representation, duration));
+        }
+
+        Element list = firstChild(representation, "SegmentList");
+        if (list == null) {
+            list = firstChild(adaptation, "SegmentList");
+        }
+        if (list != null) {
+            List<Segment> segments = new ArrayList<>();
+            Element init = firstChild(list, "Initialization");
+            if (init != null) {
+                segments.add(rangedSegment(base, init.getAttribute("sourceURL"), init.getAttribute("range"), -1));
+            }
+            long sequence = 0;
+            for (Element item : children(list, "SegmentURL")) {
+                segments.add(rangedSegment(base, item.getAttribute("media"), item.getAttribute("mediaRange"),
+                        sequence++));
+            }
+            return new StreamManifest(segments);
+        }
+
+        // SegmentBase atau hanya BaseURL: seluruh media berada dalam satu file.
+        return new StreamManifest(List.of(new Segment(base, 0, -1, null, 0)));
+    }
+
+    private static List<Segment> templateSegments(String base, Element template, Element representation,
+            String duration) throws IOException {
+        String id = representation.getAttribute("id");
+        String bandwidth = representation.getAttribute("bandwidth");
+        long timescale = parseLong(template.getAttribute("timescale"), 1);
+        long number = parseLong(template.getAttribute("startNumber"), 1);
+        String media = template.getAttribute("media");
+        List<Segment> segments = new ArrayList<>();
+
+        if (template.hasAttribute("initialization")) {
+            segments.add(new Segment(resolve(base, fillTemplate(template.getAttribute("initialization"), id,
+                    bandwidth, number, 0)), 0, -1, null, -1));
+        }
+
+        Element timeline = firstChild(template, "SegmentTimeline");
+        if (timeline != null) {
+            long time = 0;
+            for (Element s : children(timeline, "S")) {
+                if (s.hasAttribute("t")) {
+                    time = parseLong(s.getAttribute("t"), time);
+                }
+                long length = parseLong(s.getAttribute("d"), 0);
+                long repeat = parseLong(s.getAttribute("r"), 0);
+                if (repeat < 0) {
+                    throw new IOException("SegmentTimeline dengan r negatif tidak didukung.");
+                }
+                for (long i = 0; i <= repeat; i++) {
+                    segments.add(new Segment(resolve(base, fillTemplate(media, id, bandwidth, number, time)), 0, -1,
+                            null, number));
+                    number++;
+                    time += length;
+                }
+            }
+            return segments;
+        }
+
+        long segmentDuration = parseLong(template.getAttribute("duration"), 0);
+        double totalSeconds = parseIsoDuration(duration);
+        if (segmentDuration <= 0 || totalSeconds <= 0) {
+            throw new IOException("SegmentTemplate tanpa durasi tidak dapat dihitung.");
+        }
+        long count = (long) Math.ceil(totalSeconds * timescale / segmentDuration);
+        for (long i = 0; i < count; i++) {
+            segments.add(new Segment(resolve(base, fillTemplate(media, id, bandwidth, number, i * segmentDuration)),
+                    0, -1, null, number));
+            number++;
+        }
+        return segments;
+    }
+
+    private static String fillTemplate(String template, String id, String bandwidth, long number, long time) {
+        Matcher matcher = TEMPLATE_FIELD.matcher(template);
+        StringBuilder out = new StringBuilder();
+        while (matcher.find()) {
+            String value = switch (matcher.group(1)) {
+                case "RepresentationID" -> id;
+                case "Bandwidth" -> bandwidth;
+                case "Number" -> Long.toString(number);
+                default -> Long.toString(time);
+            };
+            if (matcher.group(3) != null && !"RepresentationID".equals(matcher.group(1))) {
+                value = String.format(Locale.ROOT, "%0" + matcher.group(3) + "d", Long.parseLong(value));
+            }
+            matcher.appendReplacement(out, Matcher.quoteReplacement(value));
+        }
+        matcher.appendTail(out);
+        return out.toString().replace("$$", "$");
+    }
+
+    private static Segment rangedSegment(String base, String media, String range, long sequence)
+            throws IOException {
+        String url = media == null || media.isEmpty() ? base : resolve(base, media);
+        if (range == null || range.isEmpty()) {
+            return new Segment(url, 0, -1, null, sequence);
+        }
+        int dash = range.indexOf('-');
+        long start = parseLong(range.substring(0, dash), 0);
+        long end = parseLong(range.substring(dash + 1), start);
+        return new Segment(url, start, end - start + 1, null, sequence);
+    }
+
+    private static double parseIsoDuration(String value) {
+        if (value == null || value.isEmpty()) {
+            return -1;
+        }
+        try {
+            return Duration.parse(value).toMillis() / 1000.0;
+        } catch (DateTimeParseException ex) {
+            return -1;
+        }
+    }
+
+    // EXT-X-BYTERANGE: <panjang>[@<offset>]; tanpa offset berarti lanjut dari akhir range sebelumnya.
+    private static long[] parseByteRange(String value, long defaultOffset) {
+        if (value == null) {
+            return new long[] { -1, 0 };
+        }
+        String trimmed = value.trim();
+        int at = trimmed.indexOf('@');
+        if (at < 0) {
+            return new long[] { parseLong(trimmed, -1), defaultOffset };
+        }
+        return new long[] { parseLong(trimmed.substring(0, at), -1), parseLong(trimmed.substring(at + 1), 0) };
+    }
+
+    private static byte[] parseIv(String value) throws IOException {
+        if (value == null) {
+            return null;
+        }
+        String hex = value.startsWith("0x") || value.startsWith("0X") ? value.substring(2) : value;
+        if (hex.length() > 32) {
+            throw new IOException("IV tidak valid: " + value);
+        }
+        byte[] iv = new byte[16];
+        String padded = "0".repeat(32 - hex.length()) + hex;
+        try {
+            for (int i = 0; i < 16; i++) {
+                iv[i] = (byte) Integer.parseInt(padded.substring(i * 2, i * 2 + 2), 16);
+            }
+        } catch (NumberFormatException ex) {
+            throw new IOException("IV tidak valid: " + value, ex);
+        }
+        return iv;
+    }
+
+    private static Map<String, String> attributes(String line) {
+        Map<String, String> attributes = new HashMap<>();
+        Matcher matcher = ATTRIBUTE.matcher(line.substring(line.indexOf(':') + 1));
+        while (matcher.find()) {
+            String value = matcher.group(2);
+            if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                value = value.substring(1, value.length() - 1);
+            }
+            attributes.put(matcher.group(1), value);
+        }
+        return attributes;
+    }
+
+    private static String resolve(String base, String reference) throws IOException {
+        if (reference == null) {
+            throw new IOException("URI segmen tidak ada di manifest.");
+        }
+        try {
+            return URI.create(base).resolve(reference.trim().replace(" ", "%20")).toString();
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("URI tidak valid di manifest: " + reference, ex);
+        }
+    }
+
+    private static long parseLong(String value, long fallback) {
+        if (value == null || value.isBlank()) {
+            return fallback;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException ex) {
+            return fallback;
+        }
+    }
+
+    private static Element firstChild(Element parent, String name) {
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element element && name.equals(localName(element))) {
+                return element;
+            }
+        }
+        return null;
+    }
+
+    private static List<Element> children(Element parent, String name) {
+        List<Element> result = new ArrayList<>();
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element element && name.equals(localName(element))) {
+                result.add(element);
+            }
+        }
+        return result;
+    }
+
+    private static String localName(Element element) {
+        String name = element.getTagName();
+        int colon = name.indexOf(':');
+        return colon < 0 ? name : name.substring(colon + 1);
+    }
+}
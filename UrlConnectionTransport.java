@@ -0,0 +1,67 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.util.Map;
+
+public final class UrlConnectionTransport implements HttpTransport {
+
+    private static final int CONNECT_TIMEOUT_MS = 15_000;
+    private static final int READ_TIMEOUT_MS = 30_000;
+
+    @Override
+    public Response open(String url, Map<String, String> headers) throws IOException {
+        URL targetUrl = URI.create(url).toURL();
+        HttpURLConnection connection = (HttpURLConnection) targetUrl.openConnection();
+        connection.setInstanceFollowRedirects(true);
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        headers.forEach(connection::setRequestProperty);
+        try {
+            connection.connect();
+            connection.getResponseCode();
+        } catch (IOException ex) {
+            connection.disconnect();
+            throw ex;
+        }
+        return new UrlConnectionResponse(connection);
+    }
+
+    private static final class UrlConnectionResponse implements Response {
+        private final HttpURLConnection connection;
+
+        UrlConnectionResponse(HttpURLConnection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public int statusCode() {
+            try {
+                return connection.getResponseCode();
+            } catch (IOException ex) {
+                return -1;
+            }
+        }
+
+        @Override
+        public long contentLength() {
+            return connection.getContentLengthLong();
+        }
+
+        @Override
+        public String header(String name) {
+            return connection.getHeaderField(name);
+        }
+
+        @Override
+        public InputStream body() throws IOException {
+            return connection.getInputStream();
+        }
+
+        @Override
+        public void close() {
+            connection.disconnect();
+        }
+    }
+}
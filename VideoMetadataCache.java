@@ -0,0 +1,255 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Pattern;
+
+/**
+ * Cache metadata video (judul, daftar format, durasi) agar yt-dlp tidak
+ * dijalankan ulang untuk video yang sama. Kunci adalah ID video yang
+ * dinormalisasi sehingga {@code youtu.be/ID}, {@code watch?v=ID} dan
+ * {@code shorts/ID} berbagi satu entri.
+ * <p>
+ * Lapisan depan berupa LRU di memori, di belakangnya satu file
+ * {@code .properties} per video. Keduanya memakai TTL yang sama; entri
+ * kedaluwarsa diambil ulang lewat {@link Loader}. Permintaan bersamaan untuk
+ * video yang sama hanya memicu satu pemanggilan loader.
+ */
+final class VideoMetadataCache {
+
+    record Metadata(String videoId, String title, List<String> formats, long durationSeconds, long fetchedAtMillis) {
+        Metadata {
+            formats = List.copyOf(formats);
+        }
+    }
+
+    @FunctionalInterface
+    interface Loader {
+        Metadata load(String url, String videoId) throws IOException;
+    }
+
+    private static final Pattern YOUTUBE_ID = Pattern.compile("[A-Za-z0-9_-]{11}");
+
+    private final Path directory;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Loader loader;
+    private final Map<String, Metadata> memory;
+    private final Map<String, CompletableFuture<Metadata>> inFlight = new ConcurrentHashMap<>();
+
+    VideoMetadataCache(Path directory, int maxEntries, long ttlMillis, Loader loader) {
+        this.directory = directory;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlMillis = Math.max(0L, ttlMillis);
+        this.loader = loader;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Metadata> eldest) {
+                return size() > VideoMetadataCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * ID video YouTube dari berbagai bentuk URL, atau URL apa adanya bila
+     * bukan tautan video YouTube yang dikenali.
+     */
+    static String videoId(String url) {
+        String trimmed = url.trim();
+        try {
+            URI uri = URI.create(trimmed);
+            String host = uri.getHost() == null ? "" : uri.getHost().toLowerCase(Locale.ROOT);
+            String path = uri.getPath() == null ? "" : uri.getPath();
+            String candidate = null;
+            if (host.equals("youtu.be") || host.endsWith(".youtu.be")) {
+                candidate = firstSegment(path, 0);
+            } else if (host.equals("youtube.com") || host.endsWith(".youtube.com")
+                    || host.equals("youtube-nocookie.com") || host.endsWith(".youtube-nocookie.com")) {
+                if (path.equals("/watch")) {
+                    candidate = queryParameter(uri.getRawQuery(), "v");
+                } else if (path.startsWith("/shorts/") || path.startsWith("/embed/") || path.startsWith("/live/")
+                        || path.startsWith("/v/")) {
+                    candidate = firstSegment(path, 1);
+                }
+            }
+            if (candidate != null && YOUTUBE_ID.matcher(candidate).matches()) {
+                return candidate;
+            }
+        } catch (IllegalArgumentException ignored) {
+        }
+        return trimmed;
+    }
+
+    private static String firstSegment(String path, int index) {
+        String[] segments = Arrays.stream(path.split("/")).filter(s -> !s.isEmpty()).toArray(String[]::new);
+        return segments.length > index ? segments[index] : null;
+    }
+
+    private static String queryParameter(String rawQuery, String name) {
+        if (rawQuery == null) {
+            return null;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                return pair.substring(eq + 1);
+            }
+        }
+        return null;
+    }
+
+    Metadata get(String url) throws IOException {
+        String id = videoId(url);
+        Metadata cached = fromMemory(id);
+        if (cached != null) {
+            DownloadMetrics.metadataLookup("memory");
+            return cached;
+        }
+
+        CompletableFuture<Metadata> own = new CompletableFuture<>();
+        CompletableFuture<Metadata> pending = inFlight.putIfAbsent(id, own);
+        if (pending != null) {
+            return await(pending);
+        }
+        try {
+            Metadata loaded = fromDisk(id);
+            if (loaded != null) {
+                DownloadMetrics.metadataLookup("disk");
+            } else {
+                DownloadMetrics.metadataLookup("miss");
+                loaded = loader.load(url, id);
+                store(id, loaded);
+            }
+            synchronized (memory) {
+                memory.put(id, loaded);
+            }
+            own.complete(loaded);
+            return loaded;
+        } catch (IOException | RuntimeException ex) {
+            own.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(id, own);
+        }
+    }
+
+    void invalidate(String url) {
+        String id = videoId(url);
+        synchronized (memory) {
+            memory.remove(id);
+        }
+        try {
+            Files.deleteIfExists(fileFor(id));
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static Metadata await(CompletableFuture<Metadata> pending) throws IOException {
+        try {
+            return pending.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Menunggu metadata dibatalkan", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(ex.getCause());
+        }
+    }
+
+    private Metadata fromMemory(String id) {
+        synchronized (memory) {
+            Metadata cached = memory.get(id);
+            if (cached != null && expired(cached)) {
+                memory.remove(id);
+                return null;
+            }
+            return cached;
+        }
+    }
+
+    private boolean expired(Metadata metadata) {
+        return System.currentTimeMillis() - metadata.fetchedAtMillis() > ttlMillis;
+    }
+
+    private Metadata fromDisk(String id) {
+        Path file = fileFor(id);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        Properties props = new Properties();
+        try (InputStream input = Files.newInputStream(file)) {
+            props.load(input);
+            String formats = props.getProperty("formats", "");
+            Metadata metadata = new Metadata(props.getProperty("videoId", id), props.getProperty("title"),
+                    formats.isEmpty() ? List.of() : List.of(formats.split(",")),
+                    Long.parseLong(props.getProperty("duration", "-1")),
+                    Long.parseLong(props.getProperty("fetchedAt", "0")));
+            if (!id.equals(metadata.videoId()) || metadata.title() == null || expired(metadata)) {
+                return null;
+            }
+            return metadata;
+        } catch (IOException | RuntimeException ex) {
+            return null;
+        }
+    }
+
+    private void store(String id, Metadata metadata) {
+        Properties props = new Properties();
+        props.setProperty("videoId", id);
+        props.setProperty("title", metadata.title());
+        props.setProperty("formats", String.join(",", metadata.formats()));
+        props.setProperty("duration", Long.toString(metadata.durationSeconds()));
+        props.setProperty("fetchedAt", Long.toString(metadata.fetchedAtMillis()));
+
+        Path file = fileFor(id);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            try (OutputStream output = Files.newOutputStream(temp)) {
+                props.store(output, "yt-dlp metadata");
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException ex) {
+            // Cache di disk hanya pelengkap; entri tetap tersedia di memori.
+            System.err.println("Gagal menyimpan metadata " + id + ": " + ex.getMessage());
+        }
+    }
+
+    // ID YouTube aman dipakai sebagai nama file; kunci lain (URL utuh) di-hash.
+    private Path fileFor(String id) {
+        if (YOUTUBE_ID.matcher(id).matches()) {
+            return directory.resolve(id + ".properties");
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(id.getBytes(StandardCharsets.UTF_8));
+            return directory.resolve("url-" + HexFormat.of().formatHex(digest, 0, 16) + ".properties");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
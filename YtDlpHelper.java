@@ -2,33 +2,59 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public final class YtDlpHelper {
 
     private static final long PROCESS_KILL_TIMEOUT_MS = 2_000;
-    private static final Pattern PCT = Pattern.compile("(\\d{1,3}(?:\\.\\d+)?)%");
+    private static final ExecutorService WORKERS = DownloadExecutors.newBoundedExecutor("yt-dlp-worker");
+    private static final String TITLE_MARKER = "[ytdlp-title] ";
+    private static final String FILE_MARKER = "[ytdlp-file] ";
+    // .100B membatasi nama ke 100 byte, setara batas di sanitizeFilename.
+    private static final String TITLE_TEMPLATE = "%(title).100B.%(ext)s";
+    private static final String DURATION_MARKER = "[ytdlp-duration] ";
+    private static final String FORMATS_MARKER = "[ytdlp-formats] ";
+    private static final String ENTRY_MARKER = "[ytdlp-entry] ";
+    private static final YtDlpOptions DEFAULT_OPTIONS = YtDlpOptions.fromSystemProperties();
+    private static volatile String resolvedCommand;
+    private static final VideoMetadataCache METADATA = new VideoMetadataCache(Paths.get("data", "metadata"),
+            Integer.getInteger("downloader.metadataCacheSize", 256),
+            TimeUnit.HOURS.toMillis(Long.getLong("downloader.metadataTtlHours", 24L)), YtDlpHelper::probeMetadata);
 
     private YtDlpHelper() {
     }
 
+    /**
+     * Progres unduhan dari {@code --progress-template}. Nilai yang tidak
+     * dilaporkan yt-dlp bernilai {@code -1}; {@code totalEstimated} berarti
+     * {@code totalBytes} masih perkiraan (misalnya stream HLS/DASH).
+     */
+    public record Progress(int percent, long downloadedBytes, long totalBytes, boolean totalEstimated,
+            double bytesPerSecond, long etaSeconds, int fragmentIndex, int fragmentCount) {
+    }
+
     public interface Observer {
         void onStarted();
 
-        void onProgress(int percent, String rawLine);
+        void onProgress(Progress progress);
+
+        /**
+         * Baris output yt-dlp selain progres, misalnya tahap merge atau peringatan.
+         */
+        void onMessage(String line);
 
         void onTitleExtracted(String title);
 
@@ -53,32 +79,132 @@ public final class YtDlpHelper {
         return u.contains("youtube.com") || u.contains("youtu.be");
     }
 
+    /**
+     * Judul video yang sudah disanitasi untuk nama file, atau {@code null}
+     * bila metadata tidak bisa diambil. Hasil diambil dari
+     * {@link VideoMetadataCache} bila tersedia.
+     */
     public static String extractVideoTitle(String url) {
         try {
-            List<String> cmd = new ArrayList<>();
-            cmd.add(findYtDlpCommand());
-            cmd.add("--get-title");
-            cmd.add(url);
-            
-            ProcessBuilder pb = new ProcessBuilder(cmd);
-            Process process = pb.start();
-            
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String title = reader.readLine();
-                if (title != null && !title.trim().isEmpty()) {
-                    // Sanitize filename
-                    return sanitizeFilename(title.trim());
+            return sanitizeFilename(METADATA.get(url).title());
+        } catch (IOException e) {
+            System.err.println("Failed to extract video title: " + e.getMessage());
+            return null;
+        }
+    }
+
+    static VideoMetadataCache.Metadata fetchMetadata(String url) throws IOException {
+        return METADATA.get(url);
+    }
+
+    private static VideoMetadataCache.Metadata probeMetadata(String url, String videoId) throws IOException {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(findYtDlpCommand());
+        cmd.add("--skip-download");
+        cmd.add("--no-playlist");
+        cmd.add("--no-warnings");
+        cmd.add("--print");
+        cmd.add(TITLE_MARKER + "%(title)s");
+        cmd.add("--print");
+        cmd.add(DURATION_MARKER + "%(duration)s");
+        cmd.add("--print");
+        cmd.add(FORMATS_MARKER + "%(formats.:.format_id)l");
+        cmd.add(url);
+
+        String title = null;
+        long duration = -1L;
+        List<String> formats = List.of();
+        int code;
+        YtDlpWorkerPool.Session session = YtDlpWorkerPool.open(cmd);
+        try {
+            String line;
+            while ((line = session.readLine()) != null) {
+                if (line.startsWith(TITLE_MARKER)) {
+                    title = line.substring(TITLE_MARKER.length()).trim();
+                } else if (line.startsWith(DURATION_MARKER)) {
+                    duration = parseDuration(line.substring(DURATION_MARKER.length()).trim());
+                } else if (line.startsWith(FORMATS_MARKER)) {
+                    formats = parseFormats(line.substring(FORMATS_MARKER.length()).trim());
                 }
             }
-            
-            process.waitFor(10, TimeUnit.SECONDS);
-        } catch (Exception e) {
-            System.err.println("Failed to extract video title: " + e.getMessage());
+            code = session.waitFor();
+        } catch (InterruptedException e) {
+            terminateProcessTree(session.process());
+            Thread.currentThread().interrupt();
+            throw new IOException("Pengambilan metadata dibatalkan", e);
+        } finally {
+            session.close();
+        }
+        if (code != 0 || title == null || title.isEmpty()) {
+            throw new IOException("yt-dlp gagal mengambil metadata (exit code " + code + ")");
+        }
+        return new VideoMetadataCache.Metadata(videoId, title, formats, duration, System.currentTimeMillis());
+    }
+
+    /**
+     * Daftar video dalam playlist/channel tanpa mengambil metadata tiap video
+     * ({@code --flat-playlist}). URL satu video menghasilkan satu entri.
+     */
+    static List<PlaylistDownloader.Entry> expandPlaylist(String url) throws IOException {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(findYtDlpCommand());
+        cmd.add("--flat-playlist");
+        cmd.add("--no-warnings");
+        cmd.add("--print");
+        cmd.add(ENTRY_MARKER + "%(id)s\t%(webpage_url,url)s\t%(title)s");
+        cmd.add(url);
+
+        List<PlaylistDownloader.Entry> entries = new ArrayList<>();
+        int code;
+        YtDlpWorkerPool.Session session = YtDlpWorkerPool.open(cmd);
+        try {
+            String line;
+            while ((line = session.readLine()) != null) {
+                if (!line.startsWith(ENTRY_MARKER)) {
+                    continue;
+                }
+                String[] fields = line.substring(ENTRY_MARKER.length()).split("\t", 3);
+                if (fields.length < 2 || fields[1].isBlank() || "NA".equals(fields[1])) {
+                    continue;
+                }
+                String title = fields.length > 2 && !"NA".equals(fields[2]) ? fields[2] : null;
+                entries.add(new PlaylistDownloader.Entry(entries.size() + 1, fields[0], fields[1], title));
+            }
+            code = session.waitFor();
+        } catch (InterruptedException e) {
+            terminateProcessTree(session.process());
+            Thread.currentThread().interrupt();
+            throw new IOException("Pembacaan playlist dibatalkan", e);
+        } finally {
+            session.close();
+        }
+        if (code != 0 && entries.isEmpty()) {
+            throw new IOException("yt-dlp gagal (exit code " + code + ")");
+        }
+        return entries;
+    }
+
+    private static long parseDuration(String value) {
+        try {
+            return Math.round(Double.parseDouble(value));
+        } catch (NumberFormatException ignored) {
+            return -1L;
         }
-        
-        return null;
     }
-    
+
+    private static List<String> parseFormats(String value) {
+        if (value.isEmpty() || "NA".equals(value)) {
+            return List.of();
+        }
+        List<String> formats = new ArrayList<>();
+        for (String id : value.split(",")) {
+            if (!id.isBlank()) {
+                formats.add(id.trim());
+            }
+        }
+        return formats;
+    }
+
     private static String sanitizeFilename(String filename) {
         if (filename == null) {
             return "video";
@@ -103,223 +229,137 @@ public final class YtDlpHelper {
     }
 
     public static Handle downloadMp4(String url, Path outDir, String baseName, Observer obs) {
-        // If baseName is null or empty, extract title first
-        if (baseName == null || baseName.trim().isEmpty()) {
-            return downloadWithTitleExtraction(url, outDir, "mp4", obs);
-        }
-        
+        return downloadMp4(url, outDir, baseName, DEFAULT_OPTIONS, obs);
+    }
+
+    public static Handle downloadMp4(String url, Path outDir, String baseName, YtDlpOptions options, Observer obs) {
+        Observer observer = obs != null ? DownloadMetrics.instrument(ProgressDispatcher.sampled(obs)) : null;
         List<String> cmd = new ArrayList<>();
         cmd.add(findYtDlpCommand());
-        cmd.add("-f");
-        cmd.add("bv*+ba/b");
+        cmd.addAll(options.toArguments("bv*+ba/b"));
         cmd.add("--merge-output-format");
         cmd.add("mp4");
-        cmd.add("-o");
-        cmd.add(outDir.resolve(baseName + ".%(ext)s").toString());
-        cmd.add(url);
-        Path produced = outDir.resolve(baseName + ".mp4");
-        return runAsync(cmd, produced, obs);
+        return runAsync(cmd, url, outDir, baseName, "mp4", observer);
     }
 
     public static Handle downloadMp3(String url, Path outDir, String baseName, Observer obs) {
-        // If baseName is null or empty, extract title first
-        if (baseName == null || baseName.trim().isEmpty()) {
-            return downloadWithTitleExtraction(url, outDir, "mp3", obs);
-        }
-        
+        return downloadMp3(url, outDir, baseName, DEFAULT_OPTIONS, obs);
+    }
+
+    public static Handle downloadMp3(String url, Path outDir, String baseName, YtDlpOptions options, Observer obs) {
+        Observer observer = obs != null ? DownloadMetrics.instrument(ProgressDispatcher.sampled(obs)) : null;
         List<String> cmd = new ArrayList<>();
         cmd.add(findYtDlpCommand());
+        cmd.addAll(options.toArguments(null));
         cmd.add("-x");
         cmd.add("--audio-format");
         cmd.add("mp3");
         cmd.add("--audio-quality");
         cmd.add("0");
+        return runAsync(cmd, url, outDir, baseName, "mp3", observer);
+    }
+
+    /**
+     * Melengkapi perintah dengan template output dan {@code --print} agar judul
+     * serta nama file akhir dilaporkan oleh proses yt-dlp yang sama, tanpa
+     * pemanggilan {@code --get-title} terpisah. Bila {@code baseName} kosong,
+     * nama file diambil dari judul video.
+     */
+    private static Handle runAsync(List<String> command, String url, Path outDir, String baseName, String format,
+            Observer obs) {
+        boolean useTitle = baseName == null || baseName.trim().isEmpty();
+        String template = useTitle ? TITLE_TEMPLATE : baseName + ".%(ext)s";
+
+        List<String> cmd = new ArrayList<>(command);
+        if (useTitle) {
+            cmd.add("--windows-filenames");
+        }
+        cmd.add("--no-simulate");
+        cmd.add("--progress");
+        cmd.add("--newline");
+        cmd.add("--progress-template");
+        cmd.add(YtDlpProgressParser.TEMPLATE);
+        cmd.add("--print");
+        cmd.add("before_dl:" + TITLE_MARKER + "%(title)s");
+        cmd.add("--print");
+        cmd.add("before_dl:" + FILE_MARKER + "%(filename)s");
+        cmd.add("--print");
+        cmd.add("after_move:" + FILE_MARKER + "%(filepath)s");
         cmd.add("-o");
-        cmd.add(outDir.resolve(baseName + ".%(ext)s").toString());
+        cmd.add(outDir.resolve(template).toString());
         cmd.add(url);
-        Path produced = outDir.resolve(baseName + ".mp3");
-        return runAsync(cmd, produced, obs);
+
+        Path expected = useTitle ? null : outDir.resolve(baseName + "." + format);
+        return runAsync(cmd, expected, obs);
     }
 
-    private static Handle downloadWithTitleExtraction(String url, Path outDir, String format, Observer obs) {
+    private static Handle runAsync(List<String> command, Path expectedFile, Observer obs) {
         final ProcessHolder holder = new ProcessHolder();
-        Thread t = new Thread(() -> {
+        holder.producedFile = expectedFile;
+        WORKERS.execute(() -> {
             holder.worker = Thread.currentThread();
-            if (obs != null) {
-                obs.onStarted();
-            }
-
-            try {
-                // First, extract the title
-                String title = extractVideoTitle(url);
-                if (title == null) {
-                    title = "video_" + System.currentTimeMillis();
-                }
-                
-                if (obs != null) {
-                    obs.onTitleExtracted(title);
-                }
-
-                // Now download with the extracted title
-                List<String> cmd = new ArrayList<>();
-                cmd.add(findYtDlpCommand());
-                
-                if ("mp4".equals(format)) {
-                    cmd.add("-f");
-                    cmd.add("bv*+ba/b");
-                    cmd.add("--merge-output-format");
-                    cmd.add("mp4");
-                } else {
-                    cmd.add("-x");
-                    cmd.add("--audio-format");
-                    cmd.add("mp3");
-                    cmd.add("--audio-quality");
-                    cmd.add("0");
-                }
-                
-                cmd.add("-o");
-                cmd.add(outDir.resolve(title + ".%(ext)s").toString());
-                cmd.add(url);
-                
-                Path producedFile = outDir.resolve(title + "." + format);
-                
-                // Start the actual download
-                ProcessBuilder pb = new ProcessBuilder(cmd);
-                pb.redirectErrorStream(true);
-                
-                Process process = pb.start();
-                holder.process = process;
-                holder.processInput = process.getInputStream();
-                holder.processOutput = process.getOutputStream();
-                holder.reader = new BufferedReader(new InputStreamReader(holder.processInput));
-
-                String line;
-                while ((line = holder.reader.readLine()) != null) {
-                    int percent = parsePercent(line);
-                    if (obs != null) {
-                        obs.onProgress(percent, line);
-                    }
-                }
-
-                int code = process.waitFor();
-                holder.done = true;
-                if (holder.cancelled) {
-                    cleanupPartialOutput(producedFile);
-                    if (obs != null) {
-                        obs.onCancelled();
-                    }
-                } else if (code == 0) {
-                    if (obs != null) {
-                        obs.onCompleted(producedFile);
-                    }
-                } else if (obs != null) {
-                    obs.onFailed("yt-dlp gagal (exit code " + code + ")");
-                }
-                
-            } catch (IOException e) {
-                holder.done = true;
-                if (holder.cancelled) {
-                    if (obs != null) {
-                        obs.onCancelled();
-                    }
-                } else if (obs != null) {
-                    String msg = e.getMessage();
-                    if (msg != null && msg.toLowerCase(Locale.ROOT).contains("cannot run program")) {
-                        obs.onFailed("yt-dlp tidak ditemukan di PATH. Pastikan instalasi benar.");
-                    } else {
-                        obs.onFailed("Gagal menjalankan yt-dlp: " + e.getMessage());
-                    }
-                }
-            } catch (InterruptedException ie) {
+            if (holder.cancelled) {
                 holder.done = true;
                 if (obs != null) {
                     obs.onCancelled();
                 }
-                Thread.currentThread().interrupt();
-            } finally {
-                closeQuietly(holder.reader);
-                closeQuietly(holder.processInput);
-                closeQuietly(holder.processOutput);
-            }
-        }, "yt-dlp-title-extractor");
-        t.setDaemon(true);
-        t.start();
-
-        return new Handle() {
-            @Override
-            public void cancel() {
-                holder.cancelled = true;
-                Process process = holder.process;
-                if (process != null) {
-                    terminateProcessTree(process);
-                    try {
-                        if (!process.waitFor(PROCESS_KILL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
-                            process.destroyForcibly();
-                            process.waitFor(PROCESS_KILL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
-                        }
-                    } catch (InterruptedException ignored) {
-                        Thread.currentThread().interrupt();
-                        process.destroyForcibly();
-                    }
-                }
-
-                closeQuietly(holder.reader);
-                closeQuietly(holder.processInput);
-                closeQuietly(holder.processOutput);
-
-                if (!holder.done) {
-                    holder.done = true;
-                }
-
-                Thread worker = holder.worker;
-                if (worker != null) {
-                    worker.interrupt();
-                }
+                return;
             }
-
-            @Override
-            public boolean isDone() {
-                return holder.done;
-            }
-        };
-    }
-
-    private static Handle runAsync(List<String> command, Path producedFile, Observer obs) {
-        final ProcessHolder holder = new ProcessHolder();
-        Thread t = new Thread(() -> {
-            holder.worker = Thread.currentThread();
             if (obs != null) {
                 obs.onStarted();
             }
 
-            ProcessBuilder pb = new ProcessBuilder(command);
-            pb.redirectErrorStream(true);
-
+            YtDlpWorkerPool.Session session = null;
             try {
-                Process process = pb.start();
+                session = YtDlpWorkerPool.open(command);
+                Process process = session.process();
                 holder.process = process;
                 holder.processInput = process.getInputStream();
                 holder.processOutput = process.getOutputStream();
-                holder.reader = new BufferedReader(new InputStreamReader(holder.processInput));
+                holder.reader = session.reader();
 
+                YtDlpProgressParser progress = new YtDlpProgressParser();
+                boolean titleReported = false;
                 String line;
-                while ((line = holder.reader.readLine()) != null) {
-                    int percent = parsePercent(line);
+                while ((line = session.readLine()) != null) {
+                    if (line.startsWith(TITLE_MARKER)) {
+                        if (!titleReported && obs != null) {
+                            titleReported = true;
+                            obs.onTitleExtracted(sanitizeFilename(line.substring(TITLE_MARKER.length()).trim()));
+                        }
+                        continue;
+                    }
+                    if (line.startsWith(FILE_MARKER)) {
+                        String reported = line.substring(FILE_MARKER.length()).trim();
+                        if (!reported.isEmpty() && !"NA".equals(reported)) {
+                            try {
+                                holder.producedFile = Paths.get(reported);
+                            } catch (InvalidPathException ignored) {
+                                // Nama tidak bisa dipetakan ke charset sistem; pakai perkiraan sebelumnya.
+                            }
+                        }
+                        continue;
+                    }
+
                     if (obs != null) {
-                        obs.onProgress(percent, line);
+                        if (progress.parse(line)) {
+                            obs.onProgress(progress.snapshot());
+                        } else if (!line.isBlank()) {
+                            obs.onMessage(line);
+                        }
                     }
                 }
 
-                int code = process.waitFor();
+                int code = session.waitFor();
                 holder.done = true;
                 if (holder.cancelled) {
-                    cleanupPartialOutput(producedFile);
+                    cleanupPartialOutput(holder.producedFile);
                     if (obs != null) {
                         obs.onCancelled();
                     }
                 } else if (code == 0) {
                     if (obs != null) {
-                        obs.onCompleted(producedFile);
+                        obs.onCompleted(holder.producedFile);
                     }
                 } else if (obs != null) {
                     obs.onFailed("yt-dlp gagal (exit code " + code + ")");
@@ -327,7 +367,7 @@ public final class YtDlpHelper {
             } catch (IOException e) {
                 holder.done = true;
                 if (holder.cancelled) {
-                    cleanupPartialOutput(producedFile);
+                    cleanupPartialOutput(holder.producedFile);
                     if (obs != null) {
                         obs.onCancelled();
                     }
@@ -341,19 +381,18 @@ public final class YtDlpHelper {
                 }
             } catch (InterruptedException ie) {
                 holder.done = true;
-                cleanupPartialOutput(producedFile);
+                cleanupPartialOutput(holder.producedFile);
                 if (obs != null) {
                     obs.onCancelled();
                 }
                 Thread.currentThread().interrupt();
             } finally {
-                closeQuietly(holder.reader);
-                closeQuietly(holder.processInput);
-                closeQuietly(holder.processOutput);
+                holder.worker = null;
+                if (session != null) {
+                    session.close();
+                }
             }
-        }, "yt-dlp-runner");
-        t.setDaemon(true);
-        t.start();
+        });
 
         return new Handle() {
             @Override
@@ -378,7 +417,7 @@ public final class YtDlpHelper {
                 closeQuietly(holder.processOutput);
 
                 if (!holder.done) {
-                    cleanupPartialOutput(producedFile);
+                    cleanupPartialOutput(holder.producedFile);
                     holder.done = true;
                 }
 
@@ -395,14 +434,29 @@ public final class YtDlpHelper {
         };
     }
 
+    // Hanya path yang berhasil ditemukan yang diingat; kegagalan dicoba lagi pada pemanggilan berikutnya.
+    // downloader.ytDlpCommand melewati pencarian dan unduhan otomatis, misalnya untuk bench/fake-yt-dlp.
     private static String findYtDlpCommand() {
+        String override = System.getProperty("downloader.ytDlpCommand");
+        if (override != null && !override.isBlank()) {
+            return override.trim();
+        }
+
+        String cached = resolvedCommand;
+        if (cached != null) {
+            return cached;
+        }
+
         String bundledPath = getBundledYtDlpPath();
         if (bundledPath != null) {
+            resolvedCommand = bundledPath;
             return bundledPath;
         }
 
         try {
-            return downloadYtDlpIfNeeded();
+            String downloaded = downloadYtDlpIfNeeded();
+            resolvedCommand = downloaded;
+            return downloaded;
         } catch (Exception e) {
             System.err.println("Gagal download yt-dlp: " + e.getMessage());
             String os = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
@@ -520,31 +574,6 @@ public final class YtDlpHelper {
         return String.format(Locale.getDefault(), "%.1f %s", value, units[unitIndex]);
     }
 
-    private static int parsePercent(String line) {
-        if (line == null) {
-            return -1;
-        }
-        if (!line.contains("%")) {
-            return -1;
-        }
-        Matcher matcher = PCT.matcher(line);
-        if (matcher.find()) {
-            try {
-                double value = Double.parseDouble(matcher.group(1));
-                int pct = (int) Math.round(value);
-                if (pct < 0) {
-                    pct = 0;
-                }
-                if (pct > 100) {
-                    pct = 100;
-                }
-                return pct;
-            } catch (NumberFormatException ignored) {
-            }
-        }
-        return -1;
-    }
-
     private static void cleanupPartialOutput(Path producedFile) {
         if (producedFile == null) {
             return;
@@ -567,30 +596,29 @@ public final class YtDlpHelper {
         }
     }
 
+    // Semua proses diberi sinyal dulu, baru ditunggu dengan satu tenggat bersama. Anak yang sudah mati tetap
+    // terlihat hidup (zombie) sampai induknya berhenti, jadi menunggu tiap anak sebelum induk dihentikan
+    // selalu berakhir di timeout.
     private static void terminateProcessTree(Process process) {
         if (process == null) {
             return;
         }
 
-        process.descendants().forEach(ph -> {
-            try {
-                if (!ph.isAlive()) {
-                    return;
-                }
+        List<ProcessHandle> descendants = process.descendants().filter(ProcessHandle::isAlive).toList();
+        descendants.forEach(ProcessHandle::destroy);
+        process.destroy();
 
-                ph.destroy();
-                try {
-                    ph.onExit().get(PROCESS_KILL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
-                } catch (ExecutionException | TimeoutException ex) {
-                    ph.destroyForcibly();
-                }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PROCESS_KILL_TIMEOUT_MS);
+        for (ProcessHandle ph : descendants) {
+            try {
+                ph.onExit().get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException | TimeoutException ex) {
+                ph.destroyForcibly();
             } catch (InterruptedException ignored) {
                 Thread.currentThread().interrupt();
                 ph.destroyForcibly();
             }
-        });
-
-        process.destroy();
+        }
     }
 
     private static void closeQuietly(AutoCloseable closeable) {
@@ -611,5 +639,6 @@ public final class YtDlpHelper {
         volatile BufferedReader reader;
         volatile InputStream processInput;
         volatile OutputStream processOutput;
+        volatile Path producedFile;
     }
 }
\ No newline at end of file
@@ -0,0 +1,229 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Opsi unduhan yt-dlp per pekerjaan: pemilih format, jumlah fragmen
+ * DASH/HLS yang diunduh bersamaan, ukuran chunk HTTP, batas kecepatan,
+ * ukuran buffer dan downloader eksternal. Nilai yang tidak diisi tidak
+ * menghasilkan argumen sehingga default yt-dlp yang berlaku.
+ * <p>
+ * Profil siap pakai: {@link #defaults()}, {@link #highThroughput()} dan
+ * {@link #lowMemory()}; {@link #fromSystemProperties()} memilih profil lewat
+ * {@code downloader.ytDlpProfile} ({@code default}, {@code high-throughput},
+ * {@code low-memory}).
+ */
+public final class YtDlpOptions {
+
+    private static final YtDlpOptions DEFAULTS = builder().build();
+
+    private final String formatSelector;
+    private final int concurrentFragments;
+    private final long httpChunkSize;
+    private final long rateLimit;
+    private final long bufferSize;
+    private final boolean resizeBuffer;
+    private final String externalDownloader;
+    private final String externalDownloaderArgs;
+
+    private YtDlpOptions(Builder builder) {
+        this.formatSelector = builder.formatSelector;
+        this.concurrentFragments = builder.concurrentFragments;
+        this.httpChunkSize = builder.httpChunkSize;
+        this.rateLimit = builder.rateLimit;
+        this.bufferSize = builder.bufferSize;
+        this.resizeBuffer = builder.resizeBuffer;
+        this.externalDownloader = builder.externalDownloader;
+        this.externalDownloaderArgs = builder.externalDownloaderArgs;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+        builder.formatSelector = formatSelector;
+        builder.concurrentFragments = concurrentFragments;
+        builder.httpChunkSize = httpChunkSize;
+        builder.rateLimit = rateLimit;
+        builder.bufferSize = bufferSize;
+        builder.resizeBuffer = resizeBuffer;
+        builder.externalDownloader = externalDownloader;
+        builder.externalDownloaderArgs = externalDownloaderArgs;
+        return builder;
+    }
+
+    /**
+     * Tanpa argumen tambahan; perilaku sama dengan yt-dlp bawaan.
+     */
+    public static YtDlpOptions defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Untuk koneksi cepat: 8 fragmen bersamaan pada stream DASH/HLS, chunk
+     * HTTP 10 MB (menghindari pembatasan kecepatan per request) dan buffer
+     * awal 1 MB.
+     */
+    public static YtDlpOptions highThroughput() {
+        return builder().concurrentFragments(8).httpChunkSize(10L * 1024 * 1024).bufferSize(1024 * 1024).build();
+    }
+
+    /**
+     * Untuk mesin dengan memori kecil: satu fragmen, buffer tetap 16 KB.
+     */
+    public static YtDlpOptions lowMemory() {
+        return builder().concurrentFragments(1).bufferSize(16 * 1024).resizeBuffer(false).build();
+    }
+
+    public static YtDlpOptions profile(String name) {
+        String normalized = name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+        return switch (normalized) {
+            case "", "default" -> defaults();
+            case "high-throughput" -> highThroughput();
+            case "low-memory" -> lowMemory();
+            default -> throw new IllegalArgumentException("Profil yt-dlp tidak dikenal: " + name);
+        };
+    }
+
+    public static YtDlpOptions fromSystemProperties() {
+        try {
+            return profile(System.getProperty("downloader.ytDlpProfile", "default"));
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage() + "; memakai profil default.");
+            return defaults();
+        }
+    }
+
+    public String formatSelector() {
+        return formatSelector;
+    }
+
+    /**
+     * Argumen yt-dlp untuk opsi ini. Pemilih format hanya ditambahkan bila
+     * diisi; bila kosong pemanggil memakai {@code defaultFormat}.
+     */
+    List<String> toArguments(String defaultFormat) {
+        List<String> args = new ArrayList<>();
+        String format = formatSelector != null ? formatSelector : defaultFormat;
+        if (format != null) {
+            args.add("-f");
+            args.add(format);
+        }
+        if (concurrentFragments > 1) {
+            args.add("--concurrent-fragments");
+            args.add(Integer.toString(concurrentFragments));
+        }
+        if (httpChunkSize > 0) {
+            args.add("--http-chunk-size");
+            args.add(Long.toString(httpChunkSize));
+        }
+        if (rateLimit > 0) {
+            args.add("--limit-rate");
+            args.add(Long.toString(rateLimit));
+        }
+        if (bufferSize > 0) {
+            args.add("--buffer-size");
+            args.add(Long.toString(bufferSize));
+        }
+        if (!resizeBuffer) {
+            args.add("--no-resize-buffer");
+        }
+        if (externalDownloader != null) {
+            args.add("--downloader");
+            args.add(externalDownloader);
+            if (externalDownloaderArgs != null) {
+                args.add("--downloader-args");
+                args.add(externalDownloader + ":" + externalDownloaderArgs);
+            }
+        }
+        return args;
+    }
+
+    @Override
+    public String toString() {
+        return "YtDlpOptions" + toArguments(null);
+    }
+
+    public static final class Builder {
+        private String formatSelector;
+        private int concurrentFragments = 1;
+        private long httpChunkSize;
+        private long rateLimit;
+        private long bufferSize;
+        private boolean resizeBuffer = true;
+        private String externalDownloader;
+        private String externalDownloaderArgs;
+
+        private Builder() {
+        }
+
+        /**
+         * Pemilih format yt-dlp ({@code -f}), misalnya {@code bv*[height<=720]+ba/b}.
+         */
+        public Builder formatSelector(String selector) {
+            this.formatSelector = selector == null || selector.isBlank() ? null : selector.trim();
+            return this;
+        }
+
+        public Builder concurrentFragments(int fragments) {
+            if (fragments < 1) {
+                throw new IllegalArgumentException("Jumlah fragmen minimal 1: " + fragments);
+            }
+            this.concurrentFragments = fragments;
+            return this;
+        }
+
+        /**
+         * @param bytes ukuran chunk per request HTTP, {@code 0} untuk satu request
+         */
+        public Builder httpChunkSize(long bytes) {
+            this.httpChunkSize = requireNonNegative(bytes, "Ukuran chunk");
+            return this;
+        }
+
+        /**
+         * @param bytesPerSecond batas kecepatan, {@code 0} tanpa batas
+         */
+        public Builder rateLimit(long bytesPerSecond) {
+            this.rateLimit = requireNonNegative(bytesPerSecond, "Batas kecepatan");
+            return this;
+        }
+
+        public Builder bufferSize(long bytes) {
+            this.bufferSize = requireNonNegative(bytes, "Ukuran buffer");
+            return this;
+        }
+
+        /**
+         * @param resize {@code false} agar yt-dlp tidak membesarkan buffer secara otomatis
+         */
+        public Builder resizeBuffer(boolean resize) {
+            this.resizeBuffer = resize;
+            return this;
+        }
+
+        /**
+         * Downloader eksternal yang didukung yt-dlp (misalnya {@code aria2c}),
+         * dengan argumen tambahan opsional.
+         */
+        public Builder externalDownloader(String name, String args) {
+            this.externalDownloader = name == null || name.isBlank() ? null : name.trim();
+            this.externalDownloaderArgs = this.externalDownloader == null || args == null || args.isBlank()
+                    ? null : args.trim();
+            return this;
+        }
+
+        public YtDlpOptions build() {
+            return new YtDlpOptions(this);
+        }
+
+        private static long requireNonNegative(long value, String label) {
+            if (value < 0) {
+                throw new IllegalArgumentException(label + " tidak boleh negatif: " + value);
+            }
+            return value;
+        }
+    }
+}
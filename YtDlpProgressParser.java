@@ -0,0 +1,243 @@
+/**
+ * Parser baris progres yt-dlp yang dihasilkan oleh {@link #TEMPLATE}
+ * ({@code --progress-template}). Baris berupa objek JSON datar berisi angka
+ * atau {@code null}; parser membacanya langsung dari {@link CharSequence}
+ * tanpa membuat objek perantara, lalu {@link #snapshot()} membuat event
+ * untuk observer.
+ * <p>
+ * Satu instance dipakai per proses yt-dlp dan tidak thread-safe.
+ */
+final class YtDlpProgressParser {
+
+    static final String MARKER = "[ytdlp-progress] ";
+    static final String TEMPLATE = "download:" + MARKER
+            + "{\"downloaded\":%(progress.downloaded_bytes|null)s"
+            + ",\"total\":%(progress.total_bytes|null)s"
+            + ",\"estimate\":%(progress.total_bytes_estimate|null)s"
+            + ",\"speed\":%(progress.speed|null)s"
+            + ",\"eta\":%(progress.eta|null)s"
+            + ",\"fragment\":%(progress.fragment_index|null)s"
+            + ",\"fragments\":%(progress.fragment_count|null)s}";
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    private static final String DOWNLOADED = "downloaded";
+    private static final String TOTAL = "total";
+    private static final String ESTIMATE = "estimate";
+    private static final String SPEED = "speed";
+    private static final String ETA = "eta";
+    private static final String FRAGMENT = "fragment";
+    private static final String FRAGMENTS = "fragments";
+
+    private long downloaded;
+    private long total;
+    private long estimate;
+    private double speed;
+    private long eta;
+    private long fragment;
+    private long fragments;
+
+    // Posisi baca dan hasil angka terakhir; disimpan di field agar parsing tidak mengalokasi.
+    private int cursor;
+    private double number;
+    private boolean hasNumber;
+
+    /**
+     * @return {@code false} bila baris bukan baris progres dari template
+     */
+    boolean parse(CharSequence line) {
+        int length = line.length();
+        if (!startsWith(line, MARKER)) {
+            return false;
+        }
+        downloaded = total = estimate = eta = fragment = fragments = -1L;
+        speed = -1.0;
+
+        cursor = skipWhitespace(line, MARKER.length());
+        if (cursor >= length || line.charAt(cursor) != '{') {
+            return false;
+        }
+        cursor++;
+        while (true) {
+            cursor = skipWhitespace(line, cursor);
+            if (cursor >= length) {
+                return false;
+            }
+            char c = line.charAt(cursor);
+            if (c == '}') {
+                return true;
+            }
+            if (c == ',') {
+                cursor++;
+                continue;
+            }
+            if (c != '"') {
+                return false;
+            }
+            int keyStart = cursor + 1;
+            int keyEnd = keyStart;
+            while (keyEnd < length && line.charAt(keyEnd) != '"') {
+                keyEnd++;
+            }
+            if (keyEnd >= length) {
+                return false;
+            }
+            cursor = skipWhitespace(line, keyEnd + 1);
+            if (cursor >= length || line.charAt(cursor) != ':') {
+                return false;
+            }
+            cursor = skipWhitespace(line, cursor + 1);
+            readValue(line);
+            if (hasNumber) {
+                assign(line, keyStart, keyEnd - keyStart);
+            }
+        }
+    }
+
+    private void assign(CharSequence line, int keyStart, int keyLength) {
+        if (keyEquals(line, keyStart, keyLength, DOWNLOADED)) {
+            downloaded = (long) number;
+        } else if (keyEquals(line, keyStart, keyLength, TOTAL)) {
+            total = (long) number;
+        } else if (keyEquals(line, keyStart, keyLength, ESTIMATE)) {
+            estimate = (long) number;
+        } else if (keyEquals(line, keyStart, keyLength, SPEED)) {
+            speed = number;
+        } else if (keyEquals(line, keyStart, keyLength, ETA)) {
+            eta = (long) number;
+        } else if (keyEquals(line, keyStart, keyLength, FRAGMENT)) {
+            fragment = (long) number;
+        } else if (keyEquals(line, keyStart, keyLength, FRAGMENTS)) {
+            fragments = (long) number;
+        }
+    }
+
+    // Membaca angka JSON (termasuk pecahan dan eksponen). Nilai lain seperti
+    // null, "NA" atau inf dilewati sampai koma/kurung tutup berikutnya.
+    private void readValue(CharSequence line) {
+        int length = line.length();
+        int i = cursor;
+        boolean negative = false;
+        if (i < length && (line.charAt(i) == '-' || line.charAt(i) == '+')) {
+            negative = line.charAt(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int scale = 0;
+        int digits = 0;
+        while (i < length && isDigit(line.charAt(i))) {
+            if (mantissa < Long.MAX_VALUE / 10 - 10) {
+                mantissa = mantissa * 10 + (line.charAt(i) - '0');
+            } else {
+                scale++;
+            }
+            digits++;
+            i++;
+        }
+        if (i < length && line.charAt(i) == '.') {
+            i++;
+            while (i < length && isDigit(line.charAt(i))) {
+                if (mantissa < Long.MAX_VALUE / 10 - 10) {
+                    mantissa = mantissa * 10 + (line.charAt(i) - '0');
+                    scale--;
+                }
+                digits++;
+                i++;
+            }
+        }
+        if (digits > 0 && i < length && (line.charAt(i) == 'e' || line.charAt(i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < length && (line.charAt(i) == '-' || line.charAt(i) == '+')) {
+                negativeExponent = line.charAt(i) == '-';
+                i++;
+            }
+            int exponent = 0;
+            while (i < length && isDigit(line.charAt(i))) {
+                exponent = Math.min(400, exponent * 10 + (line.charAt(i) - '0'));
+                i++;
+            }
+            scale += negativeExponent ? -exponent : exponent;
+        }
+
+        hasNumber = digits > 0 && (i >= length || line.charAt(i) == ',' || line.charAt(i) == '}'
+                || Character.isWhitespace(line.charAt(i)));
+        if (hasNumber) {
+            double value = scale == 0 ? mantissa
+                    : scale < 0 && -scale < POWERS_OF_TEN.length ? mantissa / POWERS_OF_TEN[-scale]
+                    : scale > 0 && scale < POWERS_OF_TEN.length ? mantissa * POWERS_OF_TEN[scale]
+                    : mantissa * Math.pow(10, scale);
+            number = negative ? -value : value;
+            cursor = i;
+            return;
+        }
+        boolean quoted = false;
+        while (i < length) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (!quoted && (c == ',' || c == '}')) {
+                break;
+            }
+            i++;
+        }
+        cursor = i;
+    }
+
+    /**
+     * Persentase dari total, perkiraan total, atau jumlah fragmen, sesuai
+     * yang tersedia; {@code -1} bila tidak diketahui.
+     */
+    int percent() {
+        long size = total > 0 ? total : estimate;
+        if (size > 0 && downloaded >= 0) {
+            return (int) Math.min(100, downloaded * 100 / size);
+        }
+        if (fragments > 0 && fragment >= 0) {
+            return (int) Math.min(100, fragment * 100 / fragments);
+        }
+        return -1;
+    }
+
+    YtDlpHelper.Progress snapshot() {
+        return new YtDlpHelper.Progress(percent(), downloaded, total > 0 ? total : estimate, total <= 0,
+                speed, eta, (int) fragment, (int) fragments);
+    }
+
+    private static boolean startsWith(CharSequence line, String prefix) {
+        if (line.length() < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (line.charAt(i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean keyEquals(CharSequence line, int start, int length, String key) {
+        if (length != key.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (line.charAt(start + i) != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipWhitespace(CharSequence line, int index) {
+        while (index < line.length() && Character.isWhitespace(line.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,505 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool proses yt-dlp yang tetap hidup di antara pekerjaan. Tiap worker adalah
+ * interpreter Python yang menjalankan shim kecil: modul {@code yt_dlp} diimpor
+ * sekali, lalu pekerjaan diterima sebagai JSON per baris di stdin dan output
+ * yt-dlp diteruskan ke stdout, diakhiri baris penanda berisi exit code.
+ * <p>
+ * Pekerjaan tidak pernah menunggu worker: bila tidak ada worker siap,
+ * {@link #open(List)} langsung menjalankan proses yt-dlp biasa sementara
+ * worker baru dipanaskan di latar belakang. Worker diperiksa sebelum dipakai
+ * (masih hidup, dan di-ping bila lama menganggur), diganti setelah
+ * {@code downloader.ytDlpWorkerJobs} pekerjaan, dan dibuang bila pekerjaannya
+ * dibatalkan atau tidak selesai normal.
+ * <p>
+ * Konfigurasi lewat system property:
+ * <ul>
+ * <li>{@code downloader.ytDlpPool} - {@code true} untuk memakai worker pool; default
+ * {@code false} (proses baru per unduhan) karena interpreter yang dipakai ulang
+ * bisa membawa state modul yt-dlp dari satu pekerjaan ke pekerjaan berikutnya</li>
+ * <li>{@code downloader.ytDlpPython} - interpreter Python (default {@code python3},
+ * {@code python} di Windows)</li>
+ * <li>{@code downloader.ytDlpWorkers} - jumlah worker siap (default 2)</li>
+ * <li>{@code downloader.ytDlpWorkerJobs} - pekerjaan per worker sebelum diganti (default 20)</li>
+ * </ul>
+ * Binary yt-dlp Linux/macOS adalah zipapp Python sehingga bisa langsung
+ * diimpor shim; skrip Python tunggal (misalnya {@code bench/fake-yt-dlp})
+ * dimuat sebagai modul {@code yt_dlp}; untuk {@code yt-dlp.exe} modul {@code yt_dlp} harus terpasang
+ * di interpreter tersebut, bila tidak pool mati sendiri.
+ */
+final class YtDlpWorkerPool {
+
+    /**
+     * Satu pekerjaan yt-dlp, baik di worker pool maupun di proses sendiri.
+     */
+    interface Session {
+        Process process();
+
+        BufferedReader reader();
+
+        /**
+         * @return baris output berikutnya, atau {@code null} bila pekerjaan selesai
+         */
+        String readLine() throws IOException;
+
+        int waitFor() throws InterruptedException;
+
+        /**
+         * Mengembalikan worker ke pool bila pekerjaan selesai normal; selain
+         * itu worker dihentikan.
+         */
+        void close();
+    }
+
+    private static final String SHIM_PREFIX = "[ytdlp-shim] ";
+    private static final long HEALTH_CHECK_IDLE_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final long PING_TIMEOUT_MS = 2_000;
+    private static final long SPAWN_TIMEOUT_SECONDS = 30;
+    private static final long KILL_TIMEOUT_MS = 2_000;
+
+    private static final String SHIM = String.join("\n",
+            "import json, os, sys",
+            "exe = sys.argv[1] if len(sys.argv) > 1 else ''",
+            "if exe and os.path.isfile(exe):",
+            "    import zipfile",
+            "    if zipfile.is_zipfile(exe):",
+            "        sys.path.insert(0, exe)",
+            "    else:",
+            "        with open(exe, 'rb') as f:",
+            "            first = f.readline()",
+            "        if first.startswith(b'#!') and b'python' in first:",
+            "            import importlib.machinery, importlib.util",
+            "            loader = importlib.machinery.SourceFileLoader('yt_dlp', exe)",
+            "            spec = importlib.util.spec_from_loader('yt_dlp', loader)",
+            "            module = importlib.util.module_from_spec(spec)",
+            "            sys.modules['yt_dlp'] = module",
+            "            loader.exec_module(module)",
+            "try:",
+            "    import yt_dlp",
+            "except Exception as e:",
+            "    print('" + SHIM_PREFIX + "error %s' % e, flush=True)",
+            "    sys.exit(3)",
+            "print('" + SHIM_PREFIX + "ready %s' % yt_dlp.version.__version__, flush=True)",
+            "for raw in sys.stdin:",
+            "    raw = raw.strip()",
+            "    if not raw:",
+            "        continue",
+            "    job = json.loads(raw)",
+            "    if job.get('op') == 'ping':",
+            "        print('" + SHIM_PREFIX + "pong', flush=True)",
+            "        continue",
+            "    code = 0",
+            "    try:",
+            "        yt_dlp.main(job['args'])",
+            "    except SystemExit as e:",
+            "        code = e.code if isinstance(e.code, int) else (0 if e.code is None else 1)",
+            "    except BaseException as e:",
+            "        print('ERROR: %s' % e, file=sys.stderr, flush=True)",
+            "        code = 1",
+            "    sys.stderr.flush()",
+            "    print('" + SHIM_PREFIX + "done %s %d' % (job.get('id', ''), code), flush=True)",
+            "");
+
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("downloader.ytDlpPool", "false"));
+    private static final AtomicLong JOB_IDS = new AtomicLong();
+    private static volatile YtDlpWorkerPool shared;
+
+    private final String executable;
+    private final String python;
+    private final int size;
+    private final int maxJobsPerWorker;
+    private final ExecutorService warmup = DownloadExecutors.newExecutor("yt-dlp-warmup");
+    private final ArrayDeque<Worker> idle = new ArrayDeque<>();
+    private int spawning;
+    private int busy;
+    private volatile boolean disabled;
+    private Path shimFile;
+
+    private YtDlpWorkerPool(String executable) {
+        String os = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+        this.executable = executable;
+        this.python = System.getProperty("downloader.ytDlpPython", os.contains("win") ? "python" : "python3");
+        this.size = Math.max(0, Integer.getInteger("downloader.ytDlpWorkers", 2));
+        this.maxJobsPerWorker = Math.max(1, Integer.getInteger("downloader.ytDlpWorkerJobs", 20));
+    }
+
+    /**
+     * Menjalankan {@code command} (elemen pertama adalah executable yt-dlp) di
+     * worker yang siap, atau sebagai proses baru bila tidak ada.
+     */
+    static Session open(List<String> command) throws IOException {
+        YtDlpWorkerPool pool = sharedFor(command.get(0));
+        if (pool != null) {
+            Worker worker = pool.acquire();
+            if (worker != null) {
+                DownloadMetrics.ytDlpSession(true);
+                return worker.submit(command.subList(1, command.size()));
+            }
+        }
+        DownloadMetrics.ytDlpSession(false);
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.redirectErrorStream(true);
+        pb.environment().put("PYTHONIOENCODING", "utf-8");
+        return new ProcessSession(pb.start());
+    }
+
+    private static YtDlpWorkerPool sharedFor(String executable) {
+        if (!ENABLED) {
+            return null;
+        }
+        YtDlpWorkerPool pool = shared;
+        if (pool == null) {
+            synchronized (YtDlpWorkerPool.class) {
+                pool = shared;
+                if (pool == null) {
+                    pool = new YtDlpWorkerPool(executable);
+                    shared = pool;
+                }
+            }
+        }
+        return pool.disabled || pool.size == 0 || !pool.executable.equals(executable) ? null : pool;
+    }
+
+    private Worker acquire() {
+        try {
+            while (true) {
+                Worker worker;
+                synchronized (this) {
+                    worker = idle.pollFirst();
+                    if (worker == null) {
+                        return null;
+                    }
+                    busy++;
+                }
+                if (worker.isHealthy()) {
+                    return worker;
+                }
+                leaveBusy();
+                worker.kill();
+            }
+        } finally {
+            replenish();
+        }
+    }
+
+    private void release(Worker worker) {
+        boolean keep = false;
+        leaveBusy();
+        if (!disabled && worker.jobs < maxJobsPerWorker && worker.process.isAlive()) {
+            synchronized (this) {
+                if (idle.size() + busy < size) {
+                    worker.idleSinceNanos = System.nanoTime();
+                    idle.addLast(worker);
+                    keep = true;
+                }
+            }
+        }
+        if (!keep) {
+            worker.retire();
+        }
+        replenish();
+    }
+
+    private synchronized void leaveBusy() {
+        busy--;
+    }
+
+    // Worker yang sedang dipakai ikut dihitung agar pool tidak tumbuh melebihi downloader.ytDlpWorkers.
+    private void replenish() {
+        int needed;
+        synchronized (this) {
+            if (disabled) {
+                return;
+            }
+            needed = size - idle.size() - busy - spawning;
+            if (needed <= 0) {
+                return;
+            }
+            spawning += needed;
+        }
+        for (int i = 0; i < needed; i++) {
+            warmup.execute(() -> {
+                Worker worker = null;
+                try {
+                    worker = spawn();
+                } catch (IOException ex) {
+                    disable("Worker yt-dlp tidak bisa dijalankan (" + ex.getMessage()
+                            + "); kembali ke satu proses per unduhan.");
+                } finally {
+                    synchronized (this) {
+                        spawning--;
+                        if (worker != null && !disabled) {
+                            worker.idleSinceNanos = System.nanoTime();
+                            idle.addLast(worker);
+                            worker = null;
+                        }
+                    }
+                    if (worker != null) {
+                        worker.retire();
+                    }
+                }
+            });
+        }
+    }
+
+    private void disable(String reason) {
+        List<Worker> stale;
+        synchronized (this) {
+            if (disabled) {
+                return;
+            }
+            disabled = true;
+            stale = List.copyOf(idle);
+            idle.clear();
+        }
+        System.err.println(reason);
+        stale.forEach(Worker::retire);
+    }
+
+    private Worker spawn() throws IOException {
+        ProcessBuilder pb = new ProcessBuilder(python, "-u", shimFile().toString(), executable);
+        pb.redirectErrorStream(true);
+        // Job dikirim sebagai UTF-8; paksa stdin/stdout Python ke UTF-8 juga (default Windows adalah code page).
+        pb.environment().put("PYTHONIOENCODING", "utf-8");
+        Process process = pb.start();
+        CompletableFuture<Void> watchdog = CompletableFuture.runAsync(process::destroyForcibly,
+                CompletableFuture.delayedExecutor(SPAWN_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        BufferedWriter writer = new BufferedWriter(
+                new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(SHIM_PREFIX + "ready")) {
+                    return new Worker(process, reader, writer);
+                }
+                if (line.startsWith(SHIM_PREFIX + "error")) {
+                    throw new IOException(line.substring(SHIM_PREFIX.length()));
+                }
+            }
+            throw new IOException("interpreter berhenti sebelum siap");
+        } catch (IOException ex) {
+            process.destroyForcibly();
+            throw ex;
+        } finally {
+            watchdog.cancel(false);
+        }
+    }
+
+    private synchronized Path shimFile() throws IOException {
+        if (shimFile == null) {
+            Path file = Files.createTempFile("ytdlp-shim", ".py");
+            file.toFile().deleteOnExit();
+            Files.writeString(file, SHIM, StandardCharsets.UTF_8);
+            shimFile = file;
+        }
+        return shimFile;
+    }
+
+    private static void terminate(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroy();
+        try {
+            if (!process.waitFor(KILL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+        }
+    }
+
+    private final class Worker {
+        final Process process;
+        final BufferedReader reader;
+        final BufferedWriter writer;
+        int jobs;
+        long idleSinceNanos;
+
+        Worker(Process process, BufferedReader reader, BufferedWriter writer) {
+            this.process = process;
+            this.reader = reader;
+            this.writer = writer;
+        }
+
+        boolean isHealthy() {
+            if (!process.isAlive()) {
+                return false;
+            }
+            if (System.nanoTime() - idleSinceNanos < HEALTH_CHECK_IDLE_NANOS) {
+                return true;
+            }
+            try {
+                send("{\"op\":\"ping\"}");
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PING_TIMEOUT_MS);
+                while (System.nanoTime() < deadline) {
+                    if (reader.ready()) {
+                        String line = reader.readLine();
+                        if (line != null && line.equals(SHIM_PREFIX + "pong")) {
+                            return true;
+                        }
+                    } else {
+                        Thread.sleep(10);
+                    }
+                }
+            } catch (IOException ignored) {
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+
+        Session submit(List<String> args) throws IOException {
+            jobs++;
+            long id = JOB_IDS.incrementAndGet();
+            StringBuilder job = new StringBuilder("{\"id\":").append(id).append(",\"args\":[");
+            for (int i = 0; i < args.size(); i++) {
+                if (i > 0) {
+                    job.append(',');
+                }
+                job.append(Json.quote(args.get(i)));
+            }
+            send(job.append("]}").toString());
+            return new WorkerSession(this, SHIM_PREFIX + "done " + id + " ");
+        }
+
+        private void send(String line) throws IOException {
+            writer.write(line);
+            writer.write('\n');
+            writer.flush();
+        }
+
+        // Menutup stdin membuat shim keluar dengan sendirinya setelah pekerjaan terakhir.
+        void retire() {
+            try {
+                writer.close();
+                if (process.waitFor(KILL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (IOException ignored) {
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            kill();
+        }
+
+        void kill() {
+            terminate(process);
+        }
+    }
+
+    private final class WorkerSession implements Session {
+        private final Worker worker;
+        private final String doneMarker;
+        private int exitCode = -1;
+        private boolean finished;
+
+        WorkerSession(Worker worker, String doneMarker) {
+            this.worker = worker;
+            this.doneMarker = doneMarker;
+        }
+
+        @Override
+        public Process process() {
+            return worker.process;
+        }
+
+        @Override
+        public BufferedReader reader() {
+            return worker.reader;
+        }
+
+        @Override
+        public String readLine() throws IOException {
+            if (finished) {
+                return null;
+            }
+            String line = worker.reader.readLine();
+            if (line != null && line.startsWith(doneMarker)) {
+                finished = true;
+                try {
+                    exitCode = Integer.parseInt(line.substring(doneMarker.length()).trim());
+                } catch (NumberFormatException ex) {
+                    exitCode = 1;
+                }
+                return null;
+            }
+            return line;
+        }
+
+        // Worker yang mati di tengah pekerjaan dianggap gagal meski exit code-nya 0.
+        @Override
+        public int waitFor() throws InterruptedException {
+            if (finished) {
+                return exitCode;
+            }
+            int code = worker.process.waitFor();
+            return code == 0 ? 1 : code;
+        }
+
+        @Override
+        public void close() {
+            if (finished) {
+                release(worker);
+            } else {
+                leaveBusy();
+                worker.kill();
+                replenish();
+            }
+        }
+    }
+
+    private static final class ProcessSession implements Session {
+        private final Process process;
+        private final BufferedReader reader;
+
+        ProcessSession(Process process) {
+            this.process = process;
+            this.reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public Process process() {
+            return process;
+        }
+
+        @Override
+        public BufferedReader reader() {
+            return reader;
+        }
+
+        @Override
+        public String readLine() throws IOException {
+            return reader.readLine();
+        }
+
+        @Override
+        public int waitFor() throws InterruptedException {
+            return process.waitFor();
+        }
+
+        @Override
+        public void close() {
+            try {
+                reader.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
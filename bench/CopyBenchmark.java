@@ -0,0 +1,147 @@
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Executors;
+
+/**
+ * Membandingkan loop salin lama (BufferedInputStream -> byte[32K] ->
+ * BufferedOutputStream) dengan {@link ChannelCopier} terhadap server HTTP
+ * lokal. Dicetak throughput serta waktu CPU thread penyalin dan proses.
+ * <p>
+ * Jalankan dari root proyek:
+ *
+ * <pre>
+ * javac -d out *.java bench/*.java
+ * java -cp out CopyBenchmark [ukuranMB] [iterasi]
+ * </pre>
+ *
+ * Transport dipilih dengan {@code -Ddownloader.transport} seperti biasa.
+ */
+public final class CopyBenchmark {
+
+    private static final int LEGACY_BUFFER_SIZE = 32 * 1024;
+
+    private CopyBenchmark() {
+    }
+
+    private interface Copier {
+        void copy(HttpTransport.Response response, Path target) throws IOException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int sizeMb = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        byte[] payload = new byte[sizeMb * 1024 * 1024];
+        new Random(42).nextBytes(payload);
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/payload", exchange -> {
+            exchange.sendResponseHeaders(200, payload.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(payload);
+            } catch (IOException ignored) {
+            }
+        });
+        server.start();
+
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/payload";
+        HttpTransport transport = HttpTransport.fromSystemProperty();
+        Path target = Files.createTempFile("copy-benchmark", ".bin");
+
+        try {
+            System.out.printf(Locale.ROOT, "transport=%s ukuran=%d MB iterasi=%d%n",
+                    transport.getClass().getSimpleName(), sizeMb, iterations);
+            run("stream", CopyBenchmark::legacyCopy, transport, url, target, payload.length, iterations);
+            run("nio", CopyBenchmark::channelCopy, transport, url, target, payload.length, iterations);
+
+            BufferPool.Stats pool = BufferPool.stats();
+            System.out.printf(Locale.ROOT, "pool hit rate %.1f%% (%d hit, %d miss), ukuran dipilih %s%n",
+                    pool.hitRate() * 100, pool.hits(), pool.misses(), pool.acquiredBySize());
+        } finally {
+            Files.deleteIfExists(target);
+            server.stop(0);
+        }
+    }
+
+    private static void run(String name, Copier copier, HttpTransport transport, String url, Path target,
+            long size, int iterations) throws IOException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        // Satu putaran pemanasan agar JIT dan koneksi siap.
+        measureOnce(copier, transport, url, target);
+
+        long wallNanos = 0;
+        long threadCpuNanos = 0;
+        long processCpuNanos = 0;
+        for (int i = 0; i < iterations; i++) {
+            long processStart = processCpuTime();
+            long threadStart = threads.getCurrentThreadCpuTime();
+            wallNanos += measureOnce(copier, transport, url, target);
+            threadCpuNanos += threads.getCurrentThreadCpuTime() - threadStart;
+            processCpuNanos += processCpuTime() - processStart;
+            if (Files.size(target) != size) {
+                throw new IllegalStateException("Ukuran hasil salinan tidak sesuai: " + Files.size(target));
+            }
+        }
+
+        double totalBytes = (double) size * iterations;
+        double gigabytes = totalBytes / (1024.0 * 1024.0 * 1024.0);
+        System.out.printf(Locale.ROOT,
+                "%-6s %8.1f MB/s  cpu thread %6.1f ms/GB  cpu proses %6.1f ms/GB%n",
+                name,
+                totalBytes / (1024.0 * 1024.0) / (wallNanos / 1e9),
+                threadCpuNanos / 1e6 / gigabytes,
+                processCpuNanos < 0 ? Double.NaN : processCpuNanos / 1e6 / gigabytes);
+    }
+
+    private static long measureOnce(Copier copier, HttpTransport transport, String url, Path target)
+            throws IOException {
+        long start = System.nanoTime();
+        try (HttpTransport.Response response = transport.open(url, Collections.emptyMap())) {
+            copier.copy(response, target);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void legacyCopy(HttpTransport.Response response, Path target) throws IOException {
+        try (InputStream input = new BufferedInputStream(response.body());
+                OutputStream output = new BufferedOutputStream(Files.newOutputStream(target))) {
+            byte[] buffer = new byte[LEGACY_BUFFER_SIZE];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+        }
+    }
+
+    private static void channelCopy(HttpTransport.Response response, Path target) throws IOException {
+        try (ReadableByteChannel body = response.bodyChannel();
+                FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            ChannelCopier.copy(body, channel, 0, -1, (position, bytes) -> true);
+        }
+    }
+
+    private static long processCpuTime() {
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+            return os.getProcessCpuTime();
+        }
+        return -1;
+    }
+}
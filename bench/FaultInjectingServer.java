@@ -0,0 +1,253 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Server HTTP loopback untuk uji beban {@link FileDownloader}. Melayani file
+ * sintetis di {@code /files/<nama>} dengan isi yang dihitung dari offset dan
+ * versi file, sehingga file berukuran besar tidak perlu disimpan di memori
+ * dan hasil unduhan bisa diverifikasi dengan {@link #verify(Path, long)}.
+ * <p>
+ * Gangguan yang bisa disuntikkan lewat {@link Faults}: batas bandwidth per
+ * koneksi, latensi sebelum header, dukungan Range, pergantian versi file
+ * (ETag/Last-Modified berubah), koneksi diputus di tengah body, serta
+ * respons 429/503 dengan {@code Retry-After}.
+ */
+final class FaultInjectingServer implements Closeable {
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+    private static final long EPOCH_SECONDS = 1_700_000_000L;
+
+    /**
+     * @param bandwidthBytesPerSecond batas per koneksi, {@code 0} tanpa batas
+     * @param latencyMillis jeda sebelum header respons dikirim
+     * @param rangeSupport kirim {@code Accept-Ranges} dan layani {@code Range}
+     * @param etagChangeEvery versi file naik setiap sekian permintaan, {@code 0} tidak pernah
+     * @param resetProbability peluang koneksi diputus di tengah body
+     * @param tooManyRequestsProbability peluang respons 429
+     * @param unavailableProbability peluang respons 503
+     * @param retryAfterSeconds nilai {@code Retry-After} untuk 429/503, negatif untuk tidak dikirim
+     */
+    record Faults(long bandwidthBytesPerSecond, long latencyMillis, boolean rangeSupport, int etagChangeEvery,
+            double resetProbability, double tooManyRequestsProbability, double unavailableProbability,
+            long retryAfterSeconds) {
+
+        static Faults none() {
+            return new Faults(0, 0, true, 0, 0, 0, 0, -1);
+        }
+    }
+
+    record Stats(long requests, long full, long partial, long tooManyRequests, long unavailable, long resets,
+            long bytesSent, int version) {
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long fileSize;
+    private final Faults faults;
+    private final AtomicInteger version = new AtomicInteger();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final LongAdder full = new LongAdder();
+    private final LongAdder partial = new LongAdder();
+    private final LongAdder tooManyRequests = new LongAdder();
+    private final LongAdder unavailable = new LongAdder();
+    private final LongAdder resets = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+
+    FaultInjectingServer(long fileSize, Faults faults) throws IOException {
+        this.fileSize = fileSize;
+        this.faults = faults;
+        this.executor = DownloadExecutors.newExecutor("fault-server");
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 256);
+        server.setExecutor(executor);
+        server.createContext("/files/", this::handle);
+        server.start();
+    }
+
+    String url(String name) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/files/" + name;
+    }
+
+    Stats stats() {
+        return new Stats(requestCount.get(), full.sum(), partial.sum(), tooManyRequests.sum(), unavailable.sum(),
+                resets.sum(), bytesSent.sum(), version.get());
+    }
+
+    /**
+     * Memeriksa bahwa {@code file} sama persis dengan salah satu versi file
+     * sintetis, artinya tidak ada potongan dari versi berbeda yang tercampur.
+     */
+    static boolean verify(Path file, long expectedSize) throws IOException {
+        if (Files.size(file) != expectedSize) {
+            return false;
+        }
+        byte[] actual = new byte[CHUNK_SIZE];
+        byte[] expected = new byte[CHUNK_SIZE];
+        try (InputStream input = Files.newInputStream(file)) {
+            int fileVersion = -1;
+            long position = 0;
+            int read;
+            while ((read = input.readNBytes(actual, 0, actual.length)) > 0) {
+                if (fileVersion < 0) {
+                    // Versi hanya terbaca 8 bit; cukup untuk membedakan versi yang berdekatan.
+                    fileVersion = (actual[0] ^ contentByte(0, 0)) & 0xFF;
+                }
+                fill(expected, position, read, fileVersion);
+                for (int i = 0; i < read; i++) {
+                    if (actual[i] != expected[i]) {
+                        return false;
+                    }
+                }
+                position += read;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            serve(exchange);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ignored) {
+            // Klien menutup koneksi lebih dulu.
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void serve(HttpExchange exchange) throws IOException, InterruptedException {
+        long request = requestCount.incrementAndGet();
+        if (faults.etagChangeEvery() > 0 && request % faults.etagChangeEvery() == 0) {
+            version.incrementAndGet();
+        }
+        int currentVersion = version.get();
+        if (faults.latencyMillis() > 0) {
+            Thread.sleep(faults.latencyMillis());
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < faults.tooManyRequestsProbability()) {
+            tooManyRequests.increment();
+            sendError(exchange, 429);
+            return;
+        }
+        if (random.nextDouble() < faults.unavailableProbability()) {
+            unavailable.increment();
+            sendError(exchange, 503);
+            return;
+        }
+
+        String etag = "\"v" + currentVersion + "\"";
+        String lastModified = HTTP_DATE.format(Instant.ofEpochSecond(EPOCH_SECONDS + currentVersion));
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.getResponseHeaders().set("Last-Modified", lastModified);
+        if (faults.rangeSupport()) {
+            exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+        }
+
+        long start = 0;
+        long end = fileSize - 1;
+        int status = 200;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+        boolean validatorMatches = ifRange == null || ifRange.equals(etag) || ifRange.equals(lastModified);
+        if (faults.rangeSupport() && range != null && range.startsWith("bytes=") && validatorMatches) {
+            String[] bounds = range.substring("bytes=".length()).split("-", 2);
+            start = Long.parseLong(bounds[0].trim());
+            if (bounds.length > 1 && !bounds[1].isBlank()) {
+                end = Math.min(end, Long.parseLong(bounds[1].trim()));
+            }
+            if (start > end) {
+                exchange.getResponseHeaders().set("Content-Range", "bytes */" + fileSize);
+                sendError(exchange, 416);
+                return;
+            }
+            status = 206;
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + fileSize);
+        }
+        (status == 206 ? partial : full).increment();
+
+        long length = end - start + 1;
+        boolean head = "HEAD".equals(exchange.getRequestMethod());
+        exchange.sendResponseHeaders(status, head ? -1 : length);
+        if (head) {
+            return;
+        }
+
+        long resetAt = random.nextDouble() < faults.resetProbability() ? random.nextLong(length) : -1L;
+        byte[] chunk = new byte[CHUNK_SIZE];
+        long sent = 0;
+        long began = System.nanoTime();
+        OutputStream body = exchange.getResponseBody();
+        while (sent < length) {
+            int size = (int) Math.min(chunk.length, length - sent);
+            if (resetAt >= 0 && sent + size > resetAt) {
+                size = (int) (resetAt - sent);
+            }
+            fill(chunk, start + sent, size, currentVersion);
+            body.write(chunk, 0, size);
+            sent += size;
+            bytesSent.add(size);
+            if (resetAt >= 0 && sent >= resetAt) {
+                // Body belum lengkap; menutup exchange memutus koneksi sehingga klien menerima EOF prematur.
+                resets.increment();
+                body.flush();
+                return;
+            }
+            throttle(sent, began);
+        }
+    }
+
+    private void throttle(long sent, long began) throws InterruptedException {
+        long bandwidth = faults.bandwidthBytesPerSecond();
+        if (bandwidth <= 0) {
+            return;
+        }
+        long dueNanos = sent * TimeUnit.SECONDS.toNanos(1) / bandwidth;
+        long aheadNanos = dueNanos - (System.nanoTime() - began);
+        if (aheadNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(aheadNanos);
+        }
+    }
+
+    private void sendError(HttpExchange exchange, int status) throws IOException {
+        if ((status == 429 || status == 503) && faults.retryAfterSeconds() >= 0) {
+            exchange.getResponseHeaders().set("Retry-After", Long.toString(faults.retryAfterSeconds()));
+        }
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    private static void fill(byte[] target, long position, int length, int fileVersion) {
+        for (int i = 0; i < length; i++) {
+            target[i] = contentByte(position + i, fileVersion);
+        }
+    }
+
+    private static byte contentByte(long position, int fileVersion) {
+        long mixed = (position + 1) * 0x9E3779B97F4A7C15L;
+        return (byte) ((mixed >>> 56) ^ fileVersion);
+    }
+}
@@ -0,0 +1,224 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Uji beban {@link FileDownloader} terhadap {@link FaultInjectingServer}
+ * tanpa internet. {@code --clients} klien berjalan bersamaan dan
+ * masing-masing mengunduh {@code --rounds} file berurutan; setiap hasil
+ * diverifikasi isinya. Di akhir dicetak waktu selesai p50/p90/p99,
+ * throughput gabungan, sebaran {@link DownloadError} dan statistik server.
+ * <p>
+ * Jalankan dari root proyek:
+ *
+ * <pre>
+ * javac -d out *.java bench/*.java
+ * java -Ddownloader.retryBaseMs=100 -cp out LoadTest --clients 16 --size 64m \
+ *      --bandwidth 20m --latency 20 --reset 0.05 --429 0.05 --503 0.05 --etag-every 40
+ * </pre>
+ *
+ * Opsi lain: {@code --rounds}, {@code --connections}, {@code --no-range},
+ * {@code --retry-after}. Ukuran menerima akhiran {@code k}, {@code m}, {@code g}.
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    private record Result(long nanos, long bytes, DownloadError error, boolean cancelled, boolean corrupt) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = 8;
+        int rounds = 2;
+        int connections = 4;
+        long size = parseSize("32m");
+        long bandwidth = 0;
+        long latency = 0;
+        boolean rangeSupport = true;
+        int etagEvery = 0;
+        double reset = 0;
+        double tooMany = 0;
+        double unavailable = 0;
+        long retryAfter = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--clients" -> clients = Integer.parseInt(args[++i]);
+                case "--rounds" -> rounds = Integer.parseInt(args[++i]);
+                case "--connections" -> connections = Integer.parseInt(args[++i]);
+                case "--size" -> size = parseSize(args[++i]);
+                case "--bandwidth" -> bandwidth = parseSize(args[++i]);
+                case "--latency" -> latency = Long.parseLong(args[++i]);
+                case "--no-range" -> rangeSupport = false;
+                case "--etag-every" -> etagEvery = Integer.parseInt(args[++i]);
+                case "--reset" -> reset = Double.parseDouble(args[++i]);
+                case "--429" -> tooMany = Double.parseDouble(args[++i]);
+                case "--503" -> unavailable = Double.parseDouble(args[++i]);
+                case "--retry-after" -> retryAfter = Long.parseLong(args[++i]);
+                default -> throw new IllegalArgumentException("Opsi tidak dikenal: " + args[i]);
+            }
+        }
+
+        FaultInjectingServer.Faults faults = new FaultInjectingServer.Faults(bandwidth, latency, rangeSupport,
+                etagEvery, reset, tooMany, unavailable, retryAfter);
+        Path directory = Files.createTempDirectory("load-test");
+        ConcurrentLinkedQueue<Result> results = new ConcurrentLinkedQueue<>();
+        ExecutorService clientExecutor = DownloadExecutors.newExecutor("load-test-client");
+
+        System.out.printf(Locale.ROOT, "klien=%d putaran=%d koneksi=%d ukuran=%s %s%n", clients, rounds,
+                connections, formatBytes(size), faults);
+        long fileSize = size;
+        int perDownloadConnections = connections;
+        int roundsPerClient = rounds;
+        long wallStart;
+        long wallNanos;
+        FaultInjectingServer.Stats stats;
+        try (FaultInjectingServer server = new FaultInjectingServer(size, faults)) {
+            AtomicInteger sequence = new AtomicInteger();
+            List<CompletableFuture<Void>> running = new ArrayList<>();
+            wallStart = System.nanoTime();
+            for (int client = 0; client < clients; client++) {
+                running.add(CompletableFuture.runAsync(() -> {
+                    for (int round = 0; round < roundsPerClient; round++) {
+                        int id = sequence.incrementAndGet();
+                        results.add(downloadOnce(server.url("file-" + id + ".bin"),
+                                directory.resolve("file-" + id + ".bin"), fileSize, perDownloadConnections));
+                    }
+                }, clientExecutor));
+            }
+            CompletableFuture.allOf(running.toArray(new CompletableFuture<?>[0])).join();
+            wallNanos = System.nanoTime() - wallStart;
+            stats = server.stats();
+        } finally {
+            clientExecutor.shutdownNow();
+            deleteRecursively(directory);
+        }
+
+        report(new ArrayList<>(results), wallNanos, stats);
+    }
+
+    private static Result downloadOnce(String url, Path destination, long size, int connections) {
+        CompletableFuture<Result> outcome = new CompletableFuture<>();
+        long start = System.nanoTime();
+        FileDownloader.download(url, destination, new FileDownloader.DownloadObserver() {
+            @Override
+            public void onStarted(long totalBytes) {
+            }
+
+            @Override
+            public void onProgress(long downloadedBytes, long totalBytes) {
+            }
+
+            @Override
+            public void onCompleted(Path file) {
+                long nanos = System.nanoTime() - start;
+                boolean corrupt;
+                try {
+                    corrupt = !FaultInjectingServer.verify(file, size);
+                    Files.deleteIfExists(file);
+                } catch (IOException ex) {
+                    corrupt = true;
+                }
+                outcome.complete(new Result(nanos, size, null, false, corrupt));
+            }
+
+            @Override
+            public void onCancelled(Path partialFile) {
+                outcome.complete(new Result(System.nanoTime() - start, 0, null, true, false));
+            }
+
+            @Override
+            public void onFailed(DownloadError error, Exception exception) {
+                outcome.complete(new Result(System.nanoTime() - start, 0, error, false, false));
+            }
+        }, connections);
+        return outcome.join();
+    }
+
+    private static void report(List<Result> results, long wallNanos, FaultInjectingServer.Stats stats) {
+        List<Long> completed = new ArrayList<>();
+        Map<DownloadError, Integer> errors = new EnumMap<>(DownloadError.class);
+        long bytes = 0;
+        int cancelled = 0;
+        int corrupt = 0;
+        for (Result result : results) {
+            if (result.error() != null) {
+                errors.merge(result.error(), 1, Integer::sum);
+            } else if (result.cancelled()) {
+                cancelled++;
+            } else {
+                completed.add(result.nanos());
+                bytes += result.bytes();
+                if (result.corrupt()) {
+                    corrupt++;
+                }
+            }
+        }
+        Collections.sort(completed);
+
+        double seconds = wallNanos / 1e9;
+        System.out.printf(Locale.ROOT, "selesai %d/%d, gagal %d, dibatalkan %d, isi rusak %d, waktu total %.2f s%n",
+                completed.size(), results.size(), results.size() - completed.size() - cancelled, cancelled, corrupt,
+                seconds);
+        if (!completed.isEmpty()) {
+            System.out.printf(Locale.ROOT, "waktu selesai p50 %.0f ms  p90 %.0f ms  p99 %.0f ms  maks %.0f ms%n",
+                    percentile(completed, 0.50), percentile(completed, 0.90), percentile(completed, 0.99),
+                    completed.get(completed.size() - 1) / 1e6);
+        }
+        System.out.printf(Locale.ROOT, "throughput %.1f MB/s (%s data utuh, %s dikirim server)%n",
+                bytes / (1024.0 * 1024.0) / seconds, formatBytes(bytes), formatBytes(stats.bytesSent()));
+        for (DownloadError error : DownloadError.values()) {
+            System.out.printf(Locale.ROOT, "  %-20s %d%n", error, errors.getOrDefault(error, 0));
+        }
+        System.out.printf(Locale.ROOT,
+                "server: permintaan %d, 200 %d, 206 %d, 429 %d, 503 %d, diputus %d, versi file %d%n",
+                stats.requests(), stats.full(), stats.partial(), stats.tooManyRequests(), stats.unavailable(),
+                stats.resets(), stats.version());
+    }
+
+    // Nearest-rank, dalam milidetik.
+    private static double percentile(List<Long> sorted, double quantile) {
+        int rank = (int) Math.ceil(quantile * sorted.size());
+        return sorted.get(Math.max(0, rank - 1)) / 1e6;
+    }
+
+    private static long parseSize(String value) {
+        String text = value.trim().toLowerCase(Locale.ROOT);
+        long multiplier = switch (text.isEmpty() ? ' ' : text.charAt(text.length() - 1)) {
+            case 'k' -> 1024L;
+            case 'm' -> 1024L * 1024;
+            case 'g' -> 1024L * 1024 * 1024;
+            default -> 1L;
+        };
+        if (multiplier > 1) {
+            text = text.substring(0, text.length() - 1);
+        }
+        return Long.parseLong(text) * multiplier;
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes >= 1024L * 1024 * 1024) {
+            return String.format(Locale.ROOT, "%.2f GB", bytes / (1024.0 * 1024 * 1024));
+        }
+        return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024));
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Collections.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark penanganan proses yt-dlp di {@link YtDlpHelper} memakai
+ * {@code bench/fake-yt-dlp}, tanpa jaringan dan tanpa yt-dlp asli:
+ * <ul>
+ * <li>overhead spawn: pekerjaan kosong dari panggilan sampai {@code onCompleted}</li>
+ * <li>throughput baris: satu pekerjaan yang mencetak baris progres secepatnya</li>
+ * <li>latensi batal: waktu {@code cancel()}, sampai {@code onCancelled}, dan
+ * sampai seluruh proses anak mati serta file parsial terhapus</li>
+ * </ul>
+ * Jalankan dari root proyek (Python 3 harus ada di PATH):
+ *
+ * <pre>
+ * javac -d out *.java bench/*.java
+ * java -cp out YtDlpProcessBenchmark [spawn] [baris] [batal]
+ * java -Ddownloader.ytDlpPool=true -cp out YtDlpProcessBenchmark
+ * </pre>
+ *
+ * Executable lain bisa dipakai dengan {@code -Ddownloader.ytDlpCommand}.
+ */
+public final class YtDlpProcessBenchmark {
+
+    private static final String CHILD_MARKER = "[fake-yt-dlp] child ";
+    private static final long TIMEOUT_SECONDS = 60;
+
+    private YtDlpProcessBenchmark() {
+    }
+
+    /**
+     * Observer yang mencatat waktu tiap event relatif terhadap pembuatannya.
+     */
+    private static final class Recorder implements YtDlpHelper.Observer {
+        final long createdNanos = System.nanoTime();
+        final CountDownLatch progressed = new CountDownLatch(1);
+        final CompletableFuture<String> finished = new CompletableFuture<>();
+        final List<Long> childPids = Collections.synchronizedList(new ArrayList<>());
+        volatile CountDownLatch childrenSeen = new CountDownLatch(0);
+        volatile long messages;
+        volatile long finishedNanos;
+
+        @Override
+        public void onStarted() {
+        }
+
+        @Override
+        public void onProgress(YtDlpHelper.Progress progress) {
+            progressed.countDown();
+        }
+
+        @Override
+        public void onMessage(String line) {
+            messages++;
+            if (line.startsWith(CHILD_MARKER)) {
+                childPids.add(Long.parseLong(line.substring(CHILD_MARKER.length()).trim()));
+                childrenSeen.countDown();
+            }
+        }
+
+        @Override
+        public void onTitleExtracted(String title) {
+        }
+
+        @Override
+        public void onCompleted(Path producedFile) {
+            finish("completed");
+        }
+
+        @Override
+        public void onCancelled() {
+            finish("cancelled");
+        }
+
+        @Override
+        public void onFailed(String message) {
+            finish("failed: " + message);
+        }
+
+        private void finish(String outcome) {
+            finishedNanos = System.nanoTime();
+            finished.complete(outcome);
+        }
+
+        String await() throws Exception {
+            return finished.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int spawnJobs = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int lines = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int cancelTrials = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        if (System.getProperty("downloader.ytDlpCommand") == null) {
+            System.setProperty("downloader.ytDlpCommand",
+                    Paths.get("bench", "fake-yt-dlp").toAbsolutePath().toString());
+        }
+        System.out.println("yt-dlp: " + System.getProperty("downloader.ytDlpCommand") + ", pool "
+                + System.getProperty("downloader.ytDlpPool", "false"));
+
+        Path directory = Files.createTempDirectory("ytdlp-bench");
+        try {
+            spawnOverhead(directory, spawnJobs);
+            lineThroughput(directory, lines);
+            cancellationLatency(directory, cancelTrials);
+        } finally {
+            deleteRecursively(directory);
+        }
+        // Worker pool yt-dlp tetap hidup sampai JVM berakhir.
+        System.exit(0);
+    }
+
+    private static void spawnOverhead(Path directory, int jobs) throws Exception {
+        List<Long> latencies = new ArrayList<>();
+        for (int i = 0; i < jobs; i++) {
+            Recorder recorder = new Recorder();
+            YtDlpHelper.downloadMp4("fake://spawn?size=0&lines=1&rate=0", directory, "spawn-" + i, recorder);
+            expect(recorder.await(), "completed");
+            latencies.add(recorder.finishedNanos - recorder.createdNanos);
+        }
+        Collections.sort(latencies);
+        System.out.printf(Locale.ROOT, "spawn  %d pekerjaan: p50 %.1f ms  p99 %.1f ms  maks %.1f ms%n", jobs,
+                percentile(latencies, 0.50), percentile(latencies, 0.99),
+                latencies.get(latencies.size() - 1) / 1e6);
+    }
+
+    private static void lineThroughput(Path directory, int lines) throws Exception {
+        int noiseEvery = 10;
+        Recorder recorder = new Recorder();
+        YtDlpHelper.downloadMp4("fake://lines?size=1m&rate=0&lines=" + lines + "&noise=" + noiseEvery, directory,
+                "lines", recorder);
+        expect(recorder.await(), "completed");
+        double seconds = (recorder.finishedNanos - recorder.createdNanos) / 1e9;
+        long total = lines + lines / noiseEvery;
+        System.out.printf(Locale.ROOT, "baris  %d baris dalam %.2f s: %.0f baris/s (%d pesan non-progres diterima)%n",
+                total, seconds, total / seconds, recorder.messages);
+    }
+
+    private static void cancellationLatency(Path directory, int trials) throws Exception {
+        int children = 2;
+        List<Long> cancelCalls = new ArrayList<>();
+        List<Long> callbacks = new ArrayList<>();
+        List<Long> treeGone = new ArrayList<>();
+        int leftovers = 0;
+        for (int i = 0; i < trials; i++) {
+            Recorder recorder = new Recorder();
+            recorder.childrenSeen = new CountDownLatch(children);
+            String baseName = "cancel-" + i;
+            YtDlpHelper.Handle handle = YtDlpHelper.downloadMp4("fake://cancel?size=64m&lines=100000&rate=20&children="
+                    + children, directory, baseName, recorder);
+            if (!recorder.progressed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    || !recorder.childrenSeen.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("fake-yt-dlp tidak mulai mengunduh");
+            }
+
+            long start = System.nanoTime();
+            handle.cancel();
+            cancelCalls.add(System.nanoTime() - start);
+            expect(recorder.await(), "cancelled");
+            callbacks.add(recorder.finishedNanos - start);
+            List<ProcessHandle> alive = new ArrayList<>();
+            for (long pid : recorder.childPids) {
+                Optional<ProcessHandle> process = ProcessHandle.of(pid);
+                process.filter(ProcessHandle::isAlive).ifPresent(alive::add);
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (alive.stream().anyMatch(ProcessHandle::isAlive) && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            treeGone.add(System.nanoTime() - start);
+            if (alive.stream().anyMatch(ProcessHandle::isAlive)
+                    || Files.exists(directory.resolve(baseName + ".mp4.part"))) {
+                leftovers++;
+            }
+        }
+        Collections.sort(cancelCalls);
+        Collections.sort(callbacks);
+        Collections.sort(treeGone);
+        System.out.printf(Locale.ROOT,
+                "batal  %d percobaan: cancel() p50 %.1f ms, onCancelled p50 %.1f ms, pohon proses mati p50 %.1f ms"
+                        + " (maks %.1f ms), sisa proses/file %d%n",
+                trials, percentile(cancelCalls, 0.50), percentile(callbacks, 0.50), percentile(treeGone, 0.50),
+                treeGone.get(treeGone.size() - 1) / 1e6, leftovers);
+    }
+
+    private static void expect(String outcome, String expected) {
+        if (!expected.equals(outcome)) {
+            throw new IllegalStateException("Hasil pekerjaan tidak sesuai: " + outcome);
+        }
+    }
+
+    // Nearest-rank, dalam milidetik.
+    private static double percentile(List<Long> sorted, double quantile) {
+        int rank = (int) Math.ceil(quantile * sorted.size());
+        return sorted.get(Math.max(0, rank - 1)) / 1e6;
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Collections.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
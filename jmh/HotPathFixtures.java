@@ -0,0 +1,162 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongConsumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Jembatan antara kelas JMH di paket {@code benchmarks} dan kode aplikasi di
+ * paket default. JMH menolak kelas benchmark tanpa paket, sedangkan kelas
+ * bernama paket tidak bisa mengimpor paket default; karena itu jalur panas
+ * dibungkus di sini menjadi tipe fungsional JDK dan diambil sekali lewat
+ * refleksi saat {@code @Setup}. Pemanggilan di dalam {@code @Benchmark}
+ * tetap langsung (panggilan interface biasa).
+ */
+public final class HotPathFixtures {
+
+    private HotPathFixtures() {
+    }
+
+    /**
+     * Satu pemanggilan menyalin seluruh {@code payload} dengan
+     * {@link ChannelCopier#copy} ke {@code target} mulai posisi 0 dan
+     * mengembalikan jumlah byte yang ditulis.
+     */
+    public static Callable<Long> copyLoop(byte[] payload, FileChannel target) {
+        return () -> ChannelCopier.copy(Channels.newChannel(new ByteArrayInputStream(payload)), target, 0,
+                payload.length, (position, bytes) -> true);
+    }
+
+    /**
+     * Satu pemanggilan mengunduh {@code url} dengan {@link FileDownloader}
+     * satu koneksi ke {@code target}, menunggu selesai, lalu menghapus hasilnya.
+     * Mengembalikan ukuran file yang diunduh.
+     */
+    public static Callable<Long> download(String url, Path target) {
+        return () -> {
+            CountDownLatch done = new CountDownLatch(1);
+            AtomicReference<Exception> failure = new AtomicReference<>();
+            FileDownloader.download(url, target, new FileDownloader.DownloadObserver() {
+                @Override
+                public void onStarted(long totalBytes) {
+                }
+
+                @Override
+                public void onProgress(long downloadedBytes, long totalBytes) {
+                }
+
+                @Override
+                public void onCompleted(Path file) {
+                    done.countDown();
+                }
+
+                @Override
+                public void onCancelled(Path partialFile) {
+                    failure.set(new IOException("Dibatalkan"));
+                    done.countDown();
+                }
+
+                @Override
+                public void onFailed(DownloadError error, Exception exception) {
+                    failure.set(exception != null ? exception : new IOException(error.name()));
+                    done.countDown();
+                }
+            }, 1);
+            done.await();
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+            long size = Files.size(target);
+            Files.delete(target);
+            return size;
+        };
+    }
+
+    /**
+     * Parser progres yt-dlp baru: persen bila baris adalah baris progres,
+     * {@code -1} bila bukan.
+     */
+    public static ToIntFunction<String> progressParser() {
+        YtDlpProgressParser parser = new YtDlpProgressParser();
+        return line -> parser.parse(line) ? parser.percent() : -1;
+    }
+
+    /**
+     * Rekaman output yt-dlp untuk satu video 250 MB: baris progres dari
+     * template bercampur pesan biasa.
+     */
+    public static List<String> capturedYtDlpOutput() {
+        long total = 250L * 1024 * 1024;
+        List<String> lines = new ArrayList<>();
+        lines.add("[youtube] Extracting URL: https://www.youtube.com/watch?v=dQw4w9WgXcQ");
+        lines.add("[youtube] dQw4w9WgXcQ: Downloading webpage");
+        lines.add("[info] dQw4w9WgXcQ: Downloading 1 format(s): 137+140");
+        lines.add("[download] Destination: Video.f137.mp4");
+        Random random = new Random(7);
+        for (int i = 0; i <= 2_000; i++) {
+            long downloaded = total * i / 2_000;
+            double speed = 4_000_000 + random.nextDouble() * 1_000_000;
+            String eta = i == 2_000 ? "null" : Long.toString((long) ((total - downloaded) / speed));
+            lines.add(YtDlpProgressParser.MARKER + "{\"downloaded\":" + downloaded + ",\"total\":" + total
+                    + ",\"estimate\":null,\"speed\":" + speed + ",\"eta\":" + eta
+                    + ",\"fragment\":null,\"fragments\":null}");
+            if (i % 250 == 0) {
+                lines.add("WARNING: [youtube] Falling back to generic n function search");
+            }
+        }
+        lines.add("[Merger] Merging formats into \"Video.mp4\"");
+        lines.add("Deleting original file Video.f137.mp4 (pass -k to keep)");
+        return lines;
+    }
+
+    /**
+     * Rantai progres mesin unduhan ({@link ProgressDispatcher#sampled},
+     * opsional dibungkus {@link DownloadMetrics#instrument}) ke observer
+     * headless yang sudah menerima {@code onStarted(totalBytes)}. Setiap
+     * pemanggilan meneruskan satu event {@code onProgress}.
+     */
+    public static LongConsumer progressChain(boolean instrumented, long totalBytes) {
+        FileDownloader.DownloadObserver headless = new FileDownloader.DownloadObserver() {
+            @Override
+            public void onStarted(long total) {
+            }
+
+            @Override
+            public void onProgress(long downloadedBytes, long total) {
+            }
+
+            @Override
+            public void onCompleted(Path file) {
+            }
+
+            @Override
+            public void onCancelled(Path partialFile) {
+            }
+
+            @Override
+            public void onFailed(DownloadError error, Exception exception) {
+            }
+        };
+        FileDownloader.DownloadObserver observer = ProgressDispatcher.sampled(headless);
+        if (instrumented) {
+            observer = DownloadMetrics.instrument(observer);
+        }
+        observer.onStarted(totalBytes);
+        FileDownloader.DownloadObserver chain = observer;
+        return downloaded -> chain.onProgress(downloaded, totalBytes);
+    }
+
+    /** Ordinal {@link DownloadError} hasil {@link FileDownloader#classifyError}. */
+    public static ToIntFunction<IOException> errorClassifier() {
+        return error -> FileDownloader.classifyError(error).ordinal();
+    }
+}
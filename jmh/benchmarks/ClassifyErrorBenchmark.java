@@ -0,0 +1,57 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileSystemException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code FileDownloader.classifyError} atas campuran exception jaringan dan
+ * file system yang umum, bergiliran per pemanggilan.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassifyErrorBenchmark {
+
+    private final IOException[] errors = {
+            new ConnectException("Connection refused"),
+            new SocketException("Connection reset"),
+            new SocketTimeoutException("Read timed out"),
+            new FileSystemException("/tmp/a.part", null, "No space left on device"),
+            new AccessDeniedException("/root/a.part", null, "Permission denied"),
+            new IOException("Server returned HTTP response code: 500"),
+            new IOException("Premature EOF"),
+    };
+    private ToIntFunction<IOException> classifier;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        classifier = Fixtures.get("errorClassifier");
+    }
+
+    @Benchmark
+    public int classifyError() {
+        IOException error = errors[cursor];
+        cursor = cursor + 1 == errors.length ? 0 : cursor + 1;
+        return classifier.applyAsInt(error);
+    }
+}
@@ -0,0 +1,140 @@
+package benchmarks;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loop salin unduhan per ukuran payload dan {@code downloader.bufferSize}.
+ * <ul>
+ * <li>{@code copyLoop}: {@code ChannelCopier.copy} dari channel di memori ke
+ * {@link FileChannel}, jadi yang terukur hanya loop baca/tulis</li>
+ * <li>{@code download}: {@code FileDownloader} satu koneksi terhadap server
+ * HTTP lokal, jalur salin lengkap lewat socket</li>
+ * </ul>
+ * Ukuran buffer dibaca sekali saat {@code ChannelCopier} dimuat, jadi tiap
+ * ukuran adalah subkelas dengan fork JVM sendiri ({@code Buffer16k},
+ * {@code Buffer64k}, {@code Buffer256k}); buffer adaptif dimatikan agar
+ * ukurannya tetap. Selain ops/s, counter {@code bytes} melaporkan byte per
+ * detik.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public abstract class CopyLoopBenchmark {
+
+    @Param({ "1", "16", "64" })
+    public int payloadMb;
+
+    private Path directory;
+    private FileChannel target;
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private Callable<Long> copyLoop;
+    private Callable<Long> download;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Bytes {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        byte[] payload = new byte[payloadMb * 1024 * 1024];
+        new Random(42).nextBytes(payload);
+
+        directory = Files.createTempDirectory("jmh-copy");
+        target = FileChannel.open(directory.resolve("copy.bin"), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        copyLoop = Fixtures.get("copyLoop", new Class<?>[] { byte[].class, FileChannel.class }, payload, target);
+
+        serverExecutor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(serverExecutor);
+        server.createContext("/payload", exchange -> {
+            boolean head = "HEAD".equals(exchange.getRequestMethod());
+            exchange.sendResponseHeaders(200, head ? -1 : payload.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                if (!head) {
+                    body.write(payload);
+                }
+            } catch (IOException ignored) {
+            }
+        });
+        server.start();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/payload";
+        download = Fixtures.get("download", new Class<?>[] { String.class, Path.class }, url,
+                directory.resolve("download.bin"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        target.close();
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public long copyLoop(Bytes counter) throws Exception {
+        long copied = copyLoop.call();
+        counter.bytes += copied;
+        return copied;
+    }
+
+    @Benchmark
+    public long download(Bytes counter) throws Exception {
+        long size = download.call();
+        counter.bytes += size;
+        return size;
+    }
+
+    @Fork(value = 1, jvmArgsAppend = { "-Ddownloader.bufferSize=16384", "-Ddownloader.adaptiveBuffer=false" })
+    public static class Buffer16k extends CopyLoopBenchmark {
+    }
+
+    @Fork(value = 1, jvmArgsAppend = { "-Ddownloader.bufferSize=65536", "-Ddownloader.adaptiveBuffer=false" })
+    public static class Buffer64k extends CopyLoopBenchmark {
+    }
+
+    @Fork(value = 1, jvmArgsAppend = { "-Ddownloader.bufferSize=262144", "-Ddownloader.adaptiveBuffer=false" })
+    public static class Buffer256k extends CopyLoopBenchmark {
+    }
+}
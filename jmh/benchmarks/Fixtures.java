@@ -0,0 +1,30 @@
+package benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Mengambil fixture dari {@code HotPathFixtures} di paket default. Hanya
+ * dipanggil dari {@code @Setup}, tidak pernah di dalam pengukuran.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T get(String name, Class<?>[] parameterTypes, Object... args) {
+        try {
+            Method method = Class.forName("HotPathFixtures").getMethod(name, parameterTypes);
+            return (T) method.invoke(null, args);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Fixture " + name + " gagal dibuat", e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Fixture " + name + " tidak ditemukan", e);
+        }
+    }
+
+    static <T> T get(String name) {
+        return get(name, new Class<?>[0]);
+    }
+}
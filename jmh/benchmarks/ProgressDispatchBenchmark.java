@@ -0,0 +1,52 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Satu event {@code onProgress} melewati rantai progres mesin unduhan ke
+ * observer headless: {@code sampled} saja, atau dibungkus
+ * {@code DownloadMetrics.instrument} seperti di {@code FileDownloader}.
+ * Posisi naik 64 KB per event dan tidak pernah mencapai total, jadi yang
+ * terukur adalah jalur penyaringan biasa, bukan progres akhir.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProgressDispatchBenchmark {
+
+    private static final long STEP = 64L * 1024;
+    private static final long TOTAL = Long.MAX_VALUE / 2;
+
+    @Param({ "sampled", "instrumented" })
+    public String chain;
+
+    private LongConsumer progress;
+    private long downloaded;
+
+    @Setup
+    public void setUp() {
+        progress = Fixtures.get("progressChain", new Class<?>[] { boolean.class, long.class },
+                "instrumented".equals(chain), TOTAL);
+    }
+
+    @Benchmark
+    public void dispatch() {
+        downloaded += STEP;
+        progress.accept(downloaded);
+    }
+}
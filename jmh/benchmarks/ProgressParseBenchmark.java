@@ -0,0 +1,47 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code YtDlpProgressParser.parse} lalu {@code percent()} per baris output
+ * yt-dlp yang direkam. Baris diambil bergiliran sehingga campuran baris
+ * progres dan pesan biasa sama dengan rekamannya.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProgressParseBenchmark {
+
+    private String[] lines;
+    private ToIntFunction<String> parser;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        List<String> captured = Fixtures.get("capturedYtDlpOutput");
+        lines = captured.toArray(new String[0]);
+        parser = Fixtures.get("progressParser");
+    }
+
+    @Benchmark
+    public int parsePercent() {
+        String line = lines[cursor];
+        cursor = cursor + 1 == lines.length ? 0 : cursor + 1;
+        return parser.applyAsInt(line);
+    }
+}